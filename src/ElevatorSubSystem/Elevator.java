@@ -1,12 +1,15 @@
 package ElevatorSubSystem;
 
-import Util.CallEvent;
-import Util.Parser;
+import Util.CallBuffer;
+import Util.HallCall;
+import Util.MessageCodec;
+import Util.Transport;
 import Util.UDPHelper;
 
+import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -28,10 +31,11 @@ public class Elevator implements Runnable {
     }
 
     private static final int ELEVATOR_SCHEDULER_PORT = 30;
-    private static final int DOOR_OPENING_CLOSING_DELAY = 2;
-    private static final int ELEVATOR_MOVING_TIME = 4;
+    public static final int DOOR_OPENING_CLOSING_DELAY = 2; // Seconds, Also Used By The Scheduler To Predict Routes
+    public static final int ELEVATOR_MOVING_TIME = 4; // Seconds Per Floor
     private static final int GROUND_FLOOR = 1;
     private static final int TOTAL_FLOORS = 5;
+    private static final int WITHDRAWN_MEMORY = 64; // Withdrawn Commands Remembered For A Repeated Cancel
     
     private ElevatorMotor motor;
     private ElevatorDoor door;
@@ -40,12 +44,16 @@ public class Elevator implements Runnable {
     private int currentElevatorLevel;
     private int elevatorElapsedTime;
     private ElevatorState elevatorState;
-    private List<CallEvent> commandReceived;
+    private CallBuffer commandReceived;
     private HashMap<Integer, Direction> floorsProcessingDelayed;
     private HashMap<Integer, ArrivalSensor> elevatorArrivalSensor;
     private HashMap<Integer, ElevatorButton> elevatorFloorButtons;
-    private Parser elevatorParser;
-    private UDPHelper elevatorHelper;
+    private Transport.Endpoint elevatorEndpoint;
+    private InetSocketAddress schedulerAddress;
+    private StatusPublisher statusPublisher;
+    private CallBuffer commandInbox;
+    private CallBuffer withdrawn;
+    private final Object inboxLock = new Object();
 
     /**
      * The Constructor for the Elevator Class. Each elevator is assigned a unique
@@ -54,20 +62,51 @@ public class Elevator implements Runnable {
      * @param elevatorNumber,    The Unique Elevator Number
      * @param elevatorPortNum,   The Elevator Specified Port Number
      */
-    public Elevator(int elevatorNumber, int elevatorPortNum) throws UnknownHostException {
-        commandReceived = Collections.synchronizedList(new LinkedList<CallEvent>());
+    public Elevator(int elevatorNumber, int elevatorPortNum) throws IOException {
+        this(elevatorNumber, elevatorPortNum, Transport.create("Elevator_" + elevatorNumber + "_Communication_Link"));
+    }
+
+    /**
+     * The Constructor for the Elevator Class using a (possibly shared) transport to reach the scheduler.
+     *
+     * @param elevatorNumber,    The Unique Elevator Number
+     * @param elevatorPortNum,   The Elevator Specified Port Number
+     * @param transport,         The transport the elevator port is bound on
+     */
+    public Elevator(int elevatorNumber, int elevatorPortNum, Transport transport) throws IOException {
+        this(elevatorNumber, elevatorPortNum, ElevatorBank.schedulerAddress());
+        this.elevatorEndpoint = transport.open(elevatorPort, this::receiveCommands);
+        this.statusPublisher = new StatusPublisher(elevatorEndpoint, schedulerAddress);
+        transport.start();
+    }
+
+    /**
+     * The Constructor for a car of an elevator bank, sharing the port of the bank
+     *
+     * @param elevatorNumber,    The Unique Elevator Number
+     * @param bankEndpoint,      The port shared by the cars of the bank
+     * @param schedulerAddress,  The address of the scheduler shared by the cars of the bank
+     * @param statusPublisher,   The status publisher shared by the cars of the bank
+     */
+    Elevator(int elevatorNumber, Transport.Endpoint bankEndpoint, InetSocketAddress schedulerAddress,
+             StatusPublisher statusPublisher) {
+        this(elevatorNumber, bankEndpoint.getPort(), schedulerAddress);
+        this.elevatorEndpoint = bankEndpoint;
+        this.statusPublisher = statusPublisher;
+    }
+
+    private Elevator(int elevatorNumber, int elevatorPortNum, InetSocketAddress schedulerAddress) {
+        commandReceived = new CallBuffer(); // Only Used By The Elevator Thread
+        commandInbox = new CallBuffer(); // Guarded By The Inbox Lock
+        withdrawn = new CallBuffer(); // Guarded By The Inbox Lock
+        floorsProcessingDelayed = new HashMap<Integer, Direction>();
         this.elevatorPort = elevatorPortNum;
         currentElevatorLevel = GROUND_FLOOR;
         door = ElevatorDoor.OPEN;
         motor = ElevatorMotor.STOP;
         elevatorState = ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST;
         this.elevatorNumber = elevatorNumber;
-        commandReceived = new LinkedList<>();
-        elevatorParser = new Parser();
-        elevatorParser.ipAddressReader();
-
-        //The IP Address Of the Elevator is the Same
-        this.elevatorHelper = new UDPHelper(elevatorPort);
+        this.schedulerAddress = schedulerAddress;
         initialiseDataSet();
     }
 
@@ -88,6 +127,14 @@ public class Elevator implements Runnable {
         }
     }
 
+    /**
+     * The method is used to return the Unique Elevator Number
+     * @return number, The number of the elevator
+     */
+    public int getElevatorNumber(){
+        return this.elevatorNumber;
+    }
+
     /**
      * The method is used to return the Current State of the Elevator
      * @return State, The Current State of the elevator
@@ -269,103 +316,128 @@ public class Elevator implements Runnable {
     public boolean receiveAndCheckSchedulerRequest() {
         boolean requestSuccessful = false;
         DecimalFormat formatter = new DecimalFormat("00"); //This is used to keep track of the Time Format
-        SimpleDateFormat timeFormatter = new SimpleDateFormat("ss");
         //Retrieve All Commands Sent From the Scheduler
-        while (!commandReceived.isEmpty()) {
+        for (int command = 0; command < commandReceived.size(); command++) {
             // Gets the sent Floor Request associated with the Selected Elevator from the Scheduler
-            CallEvent systemSchedulerCommand = commandReceived.remove(0);
-
-            if (systemSchedulerCommand != null) {
-                elevatorElapsedTime = Integer.parseInt(timeFormatter.format(systemSchedulerCommand.getStartTime()));
-                System.out.println(String.format("[TIME: 00:00:%s] [ELEVATOR] [INFO] Elevator %d Currently In Service "
-                        + "Receives Request", formatter.format(elevatorElapsedTime), elevatorNumber));
-                if (door == ElevatorDoor.OPEN &&
-                        (elevatorState == ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST ||
-                                elevatorState == ElevatorState.ELEVATOR_STOPPED)) {
-                    if (systemSchedulerCommand.getEndFloor() > currentElevatorLevel &&
-                            systemSchedulerCommand.getEndFloor() <= TOTAL_FLOORS) {
-                        //MOVE UP
-                        elevatorElapsedTime+=DOOR_OPENING_CLOSING_DELAY; //Adding Delay for Boarding
-                        System.out.println(String.format("[TIME: 00:00:%s] [ELEVATOR] [INFO] Elevator %d Boarding",
-                                formatter.format(elevatorElapsedTime), elevatorNumber));
-
-                        sendElevatorStatus(); // Informing the Scheduler of the Elevator Current State
-
-                        elevatorFloorButtons.replace(systemSchedulerCommand.getEndFloor(), ElevatorButton.ON);
-                        closeElevatorDoor();
-
-                        sendElevatorStatus();  // Informing the Scheduler of the Elevator Current State
-
-                        requestSuccessful = moveElevator(systemSchedulerCommand.getEndFloor(),
-                                systemSchedulerCommand.getDirection());
-                    } else if (systemSchedulerCommand.getEndFloor() < currentElevatorLevel &&
-                            systemSchedulerCommand.getEndFloor() >= GROUND_FLOOR) {
-                        // Case when the request start floor is below the current elevator level floor
-                        while (currentElevatorLevel > systemSchedulerCommand.getStartFloor()){
-                            elevatorDelay(ELEVATOR_MOVING_TIME);
-                            elevatorElapsedTime +=ELEVATOR_MOVING_TIME;
-                            System.out.println(String.format("\n[TIME: 00:00:%s] [ELEVATOR] [INFO] Elevator Moving Down Towards The " +
-                                    "Request Originated Floor Level %d From Current Floor Level %d\n",
-                                    formatter.format(elevatorElapsedTime), systemSchedulerCommand.getStartFloor(),
-                                    currentElevatorLevel));
-                            currentElevatorLevel--;
-                        }
-                        elevatorElapsedTime+=DOOR_OPENING_CLOSING_DELAY; //Adding Delay for Boarding
-                        System.out.println(String.format("[TIME: 00:00:%s] [ELEVATOR] [INFO] Elevator %d Boarding",
-                                formatter.format(elevatorElapsedTime), elevatorNumber));
+            int systemSchedulerCommand = commandReceived.getCall(command);
+            int endFloor = HallCall.endFloor(systemSchedulerCommand);
+            Direction direction = HallCall.direction(systemSchedulerCommand);
+
+            // The Seconds Of The Request Time
+            elevatorElapsedTime = (int) Math.floorMod(Math.floorDiv(commandReceived.getTime(command), 1000L), 60L);
+            System.out.println(String.format("[TIME: 00:00:%s] [ELEVATOR] [INFO] Elevator %d Currently In Service "
+                    + "Receives Request", formatter.format(elevatorElapsedTime), elevatorNumber));
+            if (door == ElevatorDoor.OPEN &&
+                    (elevatorState == ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST ||
+                            elevatorState == ElevatorState.ELEVATOR_STOPPED)) {
+                if (endFloor > currentElevatorLevel && endFloor <= TOTAL_FLOORS) {
+                    //MOVE UP
+                    elevatorElapsedTime+=DOOR_OPENING_CLOSING_DELAY; //Adding Delay for Boarding
+                    System.out.println(String.format("[TIME: 00:00:%s] [ELEVATOR] [INFO] Elevator %d Boarding",
+                            formatter.format(elevatorElapsedTime), elevatorNumber));
+
+                    sendElevatorStatus(); // Informing the Scheduler of the Elevator Current State
+
+                    elevatorFloorButtons.replace(endFloor, ElevatorButton.ON);
+                    closeElevatorDoor();
 
-                        sendElevatorStatus();  // Informing the Scheduler of the Elevator Current State
-                        
-                        // MOVE DOWNWARD
-                        elevatorFloorButtons.replace(systemSchedulerCommand.getEndFloor(), ElevatorButton.ON);
-                        closeElevatorDoor();
+                    sendElevatorStatus();  // Informing the Scheduler of the Elevator Current State
+
+                    requestSuccessful = moveElevator(endFloor, direction);
+                } else if (endFloor < currentElevatorLevel && endFloor >= GROUND_FLOOR) {
+                    // Case when the request start floor is below the current elevator level floor
+                    while (currentElevatorLevel > HallCall.startFloor(systemSchedulerCommand)){
+                        elevatorDelay(ELEVATOR_MOVING_TIME);
+                        elevatorElapsedTime +=ELEVATOR_MOVING_TIME;
+                        System.out.println(String.format("\n[TIME: 00:00:%s] [ELEVATOR] [INFO] Elevator Moving Down Towards The " +
+                                "Request Originated Floor Level %d From Current Floor Level %d\n",
+                                formatter.format(elevatorElapsedTime), HallCall.startFloor(systemSchedulerCommand),
+                                currentElevatorLevel));
+                        currentElevatorLevel--;
+                    }
+                    elevatorElapsedTime+=DOOR_OPENING_CLOSING_DELAY; //Adding Delay for Boarding
+                    System.out.println(String.format("[TIME: 00:00:%s] [ELEVATOR] [INFO] Elevator %d Boarding",
+                            formatter.format(elevatorElapsedTime), elevatorNumber));
+
+                    sendElevatorStatus();  // Informing the Scheduler of the Elevator Current State
+                    
+                    // MOVE DOWNWARD
+                    elevatorFloorButtons.replace(endFloor, ElevatorButton.ON);
+                    closeElevatorDoor();
 
-                        sendElevatorStatus();  // Informing the Scheduler of the Elevator Current State
+                    sendElevatorStatus();  // Informing the Scheduler of the Elevator Current State
 
-                        requestSuccessful = moveElevator(systemSchedulerCommand.getEndFloor(),
-                                systemSchedulerCommand.getDirection());
-                    } else {
-                        LOGGER.warning(String.format("Elevator %d Request for Floor %d Invalid", elevatorNumber,
-                                systemSchedulerCommand.getEndFloor()));
-                    }
+                    requestSuccessful = moveElevator(endFloor, direction);
                 } else {
-                    System.out.println(String.format("[ELEVATOR] [INFO] Elevator %d Currently Moving", elevatorNumber));
-                    floorsProcessingDelayed.put(systemSchedulerCommand.getEndFloor(),
-                            systemSchedulerCommand.getDirection());
+                    LOGGER.warning(String.format("Elevator %d Request for Floor %d Invalid", elevatorNumber,
+                            endFloor));
                 }
             } else {
-                LOGGER.warning("Elevator %d Received Invalid Request From Scheduler");
+                System.out.println(String.format("[ELEVATOR] [INFO] Elevator %d Currently Moving", elevatorNumber));
+                floorsProcessingDelayed.put(endFloor, direction);
             }
         }
+        commandReceived.clear();
         return requestSuccessful;
     }
 
     /**
-     * Is used to send the current status of the elevator to the Scheduler
+     * Announces the elevator to the Scheduler, which registers the address the elevator is reached at
      */
-    private synchronized void sendElevatorStatus(){
-        try {
-            if(elevatorParser.systemAddresses.isEmpty()){
-
-                elevatorHelper.send(new byte[]{
-                                (byte) elevatorNumber, (byte) elevatorPort,
-                                (byte) getElevatorState().ordinal(), (byte) currentElevatorLevel, (byte) motor.ordinal()},
-                        ELEVATOR_SCHEDULER_PORT, true, InetAddress.getLocalHost());
-
-            }else{
-                System.out.println("jbsauibsyasyu");
-                elevatorHelper.send(new byte[]{
-                                (byte) elevatorNumber, (byte) elevatorPort,
-                                (byte) getElevatorState().ordinal(), (byte) currentElevatorLevel, (byte) motor.ordinal()},
-                        ELEVATOR_SCHEDULER_PORT, true,
-                        InetAddress.getByName(elevatorParser.systemAddresses.get(1)));
-            }
+    private void sendHello(){
+        elevatorEndpoint.send(ByteBuffer.wrap(UDPHelper.createHello(MessageCodec.ROLE_ELEVATOR, elevatorNumber)),
+                schedulerAddress);
+    }
+
+    /**
+     * Is used to hand the current status of the elevator to the status publisher, which sends it to the
+     * Scheduler if it changed. Never blocks on the network
+     */
+    private void sendElevatorStatus(){
+        statusPublisher.publish(elevatorNumber, elevatorPort, getElevatorState(), currentElevatorLevel, motor, door);
+    }
+
+    /**
+     * Receives the commands (a single frame or a batch) sent by the scheduler to the port of this
+     * elevator and queues them for the elevator thread
+     */
+    private void receiveCommands(Transport.Endpoint endpoint, ByteBuffer datagram, SocketAddress source) {
+        ElevatorBank.demultiplex(endpoint, datagram, source, number -> number == elevatorNumber ? this : null, this);
+    }
 
-        } catch (UnknownHostException e) {
-            e.printStackTrace();
+    /**
+     * Queues a command addressed to this elevator, called by the transport thread
+     * @param time,    The time of the request in milliseconds
+     * @param command, The packed request sent by the scheduler (see HallCall)
+     */
+    void command(long time, int command) {
+        synchronized (inboxLock) {
+            commandInbox.add(time, command);
+            inboxLock.notify();
         }
     }
-    
+
+    /**
+     * Withdraws a command the scheduler wants to hand over to another car, called by the transport thread.
+     * A command the elevator has already taken from its inbox is served anyway. The last withdrawn commands
+     * are remembered, so a cancel repeated because its reply was lost gets the same answer
+     * @param time,    The time of the request in milliseconds
+     * @param command, The packed request sent by the scheduler (see HallCall)
+     * @return True if the command was withdrawn, false if the elevator is serving it
+     */
+    boolean cancel(long time, int command) {
+        synchronized (inboxLock) {
+            if (commandInbox.remove(time, command)) {
+                if (withdrawn.size() == WITHDRAWN_MEMORY) {
+                    withdrawn.remove(withdrawn.getTime(0), withdrawn.getCall(0));
+                }
+                withdrawn.add(time, command);
+                return true;
+            }
+            return withdrawn.indexOf(time, command) >= 0;
+        }
+    }
+
     /***
      * This is the main method that is implemented from the Runnable interface. This
      * method ensure that only one elevator thread can process the request and
@@ -373,27 +445,30 @@ public class Elevator implements Runnable {
      */
     @Override
     public void run() {
+        sendHello();
         while (true) {
             sendElevatorStatus();
 
-            commandReceived.add(elevatorParser.parseByteEvent(elevatorHelper.receive(false)));
+            // Swap The Inbox With The Processed Commands, No Command Is Copied Or Allocated
+            synchronized (inboxLock) {
+                try {
+                    while (commandInbox.isEmpty()) {
+                        inboxLock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                CallBuffer received = commandInbox;
+                commandInbox = commandReceived;
+                commandReceived = received;
+            }
             receiveAndCheckSchedulerRequest();
         }
     }
 
     public static void main(String[] args)
 	{
-        Thread elevatorThread_1, elevatorThread_2;
-        try {
-            elevatorThread_1 = new Thread(new Elevator(1,22),"Elevator NO.1");
-            elevatorThread_2 = new Thread(new Elevator(2,24),"Elevator NO.2");
-            elevatorThread_1.start();
-            elevatorThread_2.start();
-        } catch (UnknownHostException e) {
-            e.printStackTrace();
-        }
-
-
-
+        //Every Car Of The Bank Shares A Single Port
+        ElevatorBank.main(args);
     }
 }
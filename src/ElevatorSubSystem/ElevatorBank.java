@@ -0,0 +1,218 @@
+package ElevatorSubSystem;
+
+import Util.HallCall;
+import Util.MessageCodec;
+import Util.Parser;
+import Util.Transport;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntFunction;
+
+/**
+ * Hosts any number of elevator cars behind a single port. The scheduler addresses every car of
+ * the bank with COMMAND frames carrying the elevator number, the bank demultiplexes them into the
+ * command inbox of the matching car and the status of every car is published from the shared port
+ * by a single StatusPublisher.
+ *
+ * The scheduler address is read from ipAddress.txt and resolved once per process and shared by
+ * every car. The number of cars started by main() is set with the elevator.cars system property
+ * (default 2) and the shared port with elevator.bank.port (default 22).
+ */
+public class ElevatorBank {
+
+    private static final int ELEVATOR_SCHEDULER_PORT = 30;
+    private static final int ELEVATOR_BANK_PORT = Integer.getInteger("elevator.bank.port", 22);
+    private static final int ELEVATOR_CARS = Integer.getInteger("elevator.cars", 2);
+
+    private static InetSocketAddress schedulerAddress;
+
+    private final Transport transport;
+    private final Transport.Endpoint bankEndpoint;
+    private final StatusPublisher statusPublisher;
+    private final Map<Integer, Elevator> cars;
+    private final List<Thread> carThreads;
+    private boolean started;
+
+    /**
+     * The constructor of the bank, binds the shared port of the cars
+     *
+     * @param transport, The transport the shared port is bound on
+     * @param port,      The port shared by every car of the bank
+     * @throws IOException if the port cannot be bound or the scheduler address resolved
+     */
+    public ElevatorBank(Transport transport, int port) throws IOException {
+        this.transport = transport;
+        this.cars = new ConcurrentSkipListMap<Integer, Elevator>();
+        this.carThreads = new ArrayList<Thread>();
+        InetSocketAddress scheduler = schedulerAddress();
+        this.bankEndpoint = transport.open(port, this::receiveCommands);
+        this.statusPublisher = new StatusPublisher(bankEndpoint, scheduler);
+    }
+
+    /**
+     * The address of the scheduler, resolved on first use and shared by every car of the process
+     *
+     * @return address, The elevator port of the scheduler
+     * @throws IOException if the address cannot be resolved
+     */
+    static synchronized InetSocketAddress schedulerAddress() throws IOException {
+        if (schedulerAddress == null) {
+            Parser parser = new Parser();
+            parser.ipAddressReader();
+            InetAddress schedulerHost;
+            if (parser.systemAddresses.isEmpty()) {
+                schedulerHost = InetAddress.getLocalHost();
+            } else {
+                schedulerHost = InetAddress.getByName(parser.systemAddresses.get(1));
+            }
+            schedulerAddress = new InetSocketAddress(schedulerHost, ELEVATOR_SCHEDULER_PORT);
+        }
+        return schedulerAddress;
+    }
+
+    /**
+     * Adds a car to the bank. Cars added after start() begin running immediately
+     *
+     * @param elevatorNumber, The Unique Elevator Number
+     * @return elevator, The new car
+     * @throws IOException if the scheduler address cannot be resolved
+     */
+    public synchronized Elevator addCar(int elevatorNumber) throws IOException {
+        if (cars.containsKey(elevatorNumber)) {
+            throw new IllegalArgumentException("Elevator " + elevatorNumber + " is already in the bank");
+        }
+        Elevator elevator = new Elevator(elevatorNumber, bankEndpoint, schedulerAddress(), statusPublisher);
+        cars.put(elevatorNumber, elevator);
+        Thread thread = new Thread(elevator, "Elevator NO." + elevatorNumber);
+        carThreads.add(thread);
+        if (started) {
+            thread.start();
+        }
+        return elevator;
+    }
+
+    /**
+     * Starts the transport and every car of the bank
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        transport.start();
+        for (Thread thread : carThreads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops every car and releases the shared port
+     */
+    public synchronized void close() {
+        for (Thread thread : carThreads) {
+            thread.interrupt();
+        }
+        statusPublisher.close();
+        transport.close();
+    }
+
+    /**
+     * @return port, The port shared by the cars of the bank
+     */
+    public int getPort() {
+        return bankEndpoint.getPort();
+    }
+
+    /**
+     * @return cars, The cars of the bank ordered by elevator number
+     */
+    public Collection<Elevator> getCars() {
+        return Collections.unmodifiableCollection(cars.values());
+    }
+
+    /**
+     * Receives the commands sent by the scheduler to the shared port and hands each of them to its car
+     */
+    private void receiveCommands(Transport.Endpoint endpoint, ByteBuffer datagram, SocketAddress source) {
+        Elevator onlyCar = cars.size() == 1 ? cars.values().iterator().next() : null;
+        demultiplex(endpoint, datagram, source, cars::get, onlyCar);
+    }
+
+    /**
+     * Hands every request of a datagram (a single frame or a batch) to the car it is addressed to.
+     * COMMAND frames name their car, plain CALL frames carry no elevator number and are only
+     * accepted by a port serving a single car. CANCEL frames withdraw a command still queued at
+     * their car, which is confirmed to the scheduler with a CANCELLED frame
+     *
+     * @param endpoint,   The port the datagram arrived on, the CANCELLED replies are sent from it
+     * @param datagram,   The received datagram
+     * @param source,     The address of the scheduler that sent the datagram
+     * @param cars,       The cars served by the port, by elevator number
+     * @param onlyCar,    The car receiving CALL frames, null if the port is shared by several cars
+     */
+    static void demultiplex(Transport.Endpoint endpoint, ByteBuffer datagram, SocketAddress source,
+                            IntFunction<Elevator> cars, Elevator onlyCar) {
+        try {
+            int frames = MessageCodec.openDatagram(datagram);
+            for (int i = 0; i < frames; i++) {
+                byte type = MessageCodec.readHeader(datagram);
+                Elevator car;
+                int elevatorNumber;
+                if (type == MessageCodec.COMMAND || type == MessageCodec.CANCEL) {
+                    elevatorNumber = MessageCodec.getVarInt(datagram);
+                    car = cars.apply(elevatorNumber);
+                } else if (type == MessageCodec.CALL) {
+                    car = onlyCar;
+                    elevatorNumber = car == null ? -1 : car.getElevatorNumber();
+                } else {
+                    throw new IllegalArgumentException("Expected a CALL, COMMAND or CANCEL frame");
+                }
+                long time = MessageCodec.decodeCallTime(datagram);
+                int call = MessageCodec.decodeCallFloors(datagram);
+                if (car == null) {
+                    System.out.println("No elevator " + elevatorNumber + " for request from " + source + ": "
+                            + HallCall.toCallEvent(time, call));
+                    continue;
+                }
+                if (type == MessageCodec.CANCEL) {
+                    boolean withdrawn = car.cancel(time, call);
+                    if (withdrawn) {
+                        System.out.println(String.format("[ELEVATOR] [INFO] Elevator %d Request Handed Over: %s",
+                                elevatorNumber, HallCall.toCallEvent(time, call)));
+                    }
+                    ByteBuffer reply = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+                    MessageCodec.encodeCancelled(reply, elevatorNumber, withdrawn, time, call);
+                    reply.flip();
+                    endpoint.send(reply, source);
+                    continue;
+                }
+                car.command(time, call);
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            System.out.println("Invalid command from " + source + ": " + e.getMessage());
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            ElevatorBank bank = new ElevatorBank(Transport.create("Elevator_Communication_Link"), ELEVATOR_BANK_PORT);
+            for (int i = 1; i <= ELEVATOR_CARS; i++) {
+                bank.addCar(i);
+            }
+            bank.start();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
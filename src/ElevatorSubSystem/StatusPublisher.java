@@ -0,0 +1,184 @@
+package ElevatorSubSystem;
+
+import Util.DatagramBatcher;
+import Util.MessageCodec;
+import Util.Transport;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the status of the elevator cars sharing a port to the scheduler. Cars only record
+ * their latest status, which never blocks on the network; the publisher thread sends a DELTA
+ * frame holding the fields that changed since the last publication, coalescing every change
+ * made within the status window into one frame per car and one datagram per window. A car whose
+ * status has not been sent for a keepalive period is republished in full.
+ *
+ * The window and the keepalive period are set in milliseconds with the status.window (default 5)
+ * and status.keepalive (default 1000) system properties.
+ */
+public class StatusPublisher {
+
+    private static final long STATUS_WINDOW = Long.getLong("status.window", 5);
+    private static final long STATUS_KEEPALIVE = Long.getLong("status.keepalive", 1000);
+
+    /**
+     * The latest and the last published status of a car, guarded by the car
+     */
+    private static class CarStatus {
+        final int[] latest = new int[MessageCodec.STATUS_FIELDS];
+        final int[] published = new int[MessageCodec.STATUS_FIELDS];
+        boolean everPublished;
+        long lastPublished;
+    }
+
+    private final Map<Integer, CarStatus> cars;
+    private final ScheduledExecutorService publisher;
+    private final DatagramBatcher batcher;
+    private final long window;
+    private final long keepalive;
+    private final byte[] frame;
+    private boolean flushScheduled;
+
+    /**
+     * The constructor of the publisher, configured by the status.window and status.keepalive properties
+     *
+     * @param endpoint,         The port the cars send from
+     * @param schedulerAddress, The address of the scheduler
+     */
+    public StatusPublisher(Transport.Endpoint endpoint, SocketAddress schedulerAddress) {
+        this(endpoint, schedulerAddress, STATUS_WINDOW, STATUS_KEEPALIVE);
+    }
+
+    /**
+     * The constructor of the publisher
+     *
+     * @param endpoint,         The port the cars send from
+     * @param schedulerAddress, The address of the scheduler
+     * @param window,           How long changes are coalesced before they are sent, in milliseconds
+     * @param keepalive,        How often an unchanged status is republished, in milliseconds
+     */
+    public StatusPublisher(Transport.Endpoint endpoint, SocketAddress schedulerAddress, long window, long keepalive) {
+        this.cars = new ConcurrentHashMap<Integer, CarStatus>();
+        this.window = window;
+        this.keepalive = keepalive;
+        this.frame = new byte[MessageCodec.MAX_FRAME_SIZE];
+        // The Publisher Thread Flushes Every Window Itself, The Batcher Never Lingers On A Timer
+        this.batcher = new DatagramBatcher(MessageCodec.MAX_BATCH_FRAMES, DatagramBatcher.NO_LINGER,
+                (datagram, frames) -> endpoint.send(ByteBuffer.wrap(datagram), schedulerAddress));
+        this.publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Elevator_Status_Publisher");
+            t.setDaemon(true);
+            return t;
+        });
+        publisher.scheduleWithFixedDelay(this::keepalive, keepalive, keepalive, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records the current status of a car, called by the car thread. Returns immediately, the
+     * status is sent by the publisher thread if it changed
+     *
+     * @param elevatorNumber, The Unique Elevator Number
+     * @param port,           The port the elevator is reached at
+     * @param state,          The current state of the elevator
+     * @param floor,          The current floor of the elevator
+     * @param motor,          The current direction of the motor
+     * @param door,           The current position of the doors
+     */
+    public void publish(int elevatorNumber, int port, ElevatorState state, int floor, ElevatorMotor motor,
+                        ElevatorDoor door) {
+        CarStatus car = cars.computeIfAbsent(elevatorNumber, number -> new CarStatus());
+        boolean changed;
+        synchronized (car) {
+            int[] latest = car.latest;
+            changed = !car.everPublished || latest[MessageCodec.STATUS_PORT] != port
+                    || latest[MessageCodec.STATUS_STATE] != state.ordinal()
+                    || latest[MessageCodec.STATUS_FLOOR] != floor
+                    || latest[MessageCodec.STATUS_MOTOR] != motor.ordinal()
+                    || latest[MessageCodec.STATUS_DOOR] != door.ordinal();
+            latest[MessageCodec.STATUS_ELEVATOR_NUMBER] = elevatorNumber;
+            latest[MessageCodec.STATUS_PORT] = port;
+            latest[MessageCodec.STATUS_STATE] = state.ordinal();
+            latest[MessageCodec.STATUS_FLOOR] = floor;
+            latest[MessageCodec.STATUS_MOTOR] = motor.ordinal();
+            latest[MessageCodec.STATUS_DOOR] = door.ordinal();
+        }
+        if (changed) {
+            scheduleFlush();
+        }
+    }
+
+    private synchronized void scheduleFlush() {
+        if (!flushScheduled && !publisher.isShutdown()) {
+            flushScheduled = true;
+            publisher.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends the changed fields of every car, runs on the publisher thread
+     */
+    private void flush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        long now = System.currentTimeMillis();
+        for (CarStatus car : cars.values()) {
+            publishCar(car, now, false);
+        }
+        batcher.flush();
+    }
+
+    /**
+     * Republishes every car whose status has not been sent within the keepalive period
+     */
+    private void keepalive() {
+        long now = System.currentTimeMillis();
+        for (CarStatus car : cars.values()) {
+            publishCar(car, now, true);
+        }
+        batcher.flush();
+    }
+
+    private void publishCar(CarStatus car, long now, boolean keepaliveDue) {
+        ByteBuffer buf = ByteBuffer.wrap(frame);
+        synchronized (car) {
+            int mask = 0;
+            if (!car.everPublished || (keepaliveDue && now - car.lastPublished >= keepalive)) {
+                mask = MessageCodec.DELTA_ALL;
+            } else {
+                for (int field = MessageCodec.STATUS_PORT; field < MessageCodec.STATUS_FIELDS; field++) {
+                    if (car.latest[field] != car.published[field]) {
+                        mask |= 1 << (field - MessageCodec.STATUS_PORT);
+                    }
+                }
+            }
+            if (mask == 0) {
+                return;
+            }
+            MessageCodec.encodeStatusDelta(buf, car.latest, mask);
+            System.arraycopy(car.latest, 0, car.published, 0, MessageCodec.STATUS_FIELDS);
+            car.everPublished = true;
+            car.lastPublished = now;
+        }
+        batcher.add(Arrays.copyOf(frame, buf.position()));
+    }
+
+    /**
+     * Sends the pending changes and stops the publisher thread
+     */
+    public void close() {
+        try {
+            publisher.submit(this::flush).get();
+        } catch (Exception e) {
+            // The publisher has already been stopped
+        }
+        publisher.shutdown();
+    }
+}
@@ -0,0 +1,133 @@
+package FloorSubSystem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import Util.CallEvent;
+import Util.TimeParser;
+
+/**
+ * Replays the calls of a trace at their times. The calls are taken in time order from an iterator,
+ * so the timer queue of the replay is the trace itself: the replay thread reads the next call,
+ * sleeps until it is due and sends it. Nothing is rescanned or removed while replaying, so every
+ * call is sent exactly once, in time order, with millisecond resolution.
+ *
+ * The traces of a TraceReader, a ColumnarTrace and a TrafficGenerator are already in time order
+ * and are replayed as they stream, without being held in memory. A list of calls is only sorted
+ * when it is not in time order; a call of an iterator earlier than the one before it is late and
+ * sent at once.
+ *
+ * Times are offsets since the start of the replay, divided by the speed factor: 1 replays in real
+ * time, 60 replays an hour in a minute and MAX_SPEED sends every call without waiting.
+ */
+public class CallReplayer {
+
+	/** The speed factor that sends the calls as fast as possible */
+	public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+	private final Iterator<CallEvent> calls;
+	private final double speed;
+	private final Consumer<CallEvent> sender;
+	private int replayed;
+
+	/**
+	 * The constructor of the replayer of a list of calls
+	 *
+	 * @param events, The calls to replay, in any order. The list is not modified
+	 * @param speed, How many times faster than real time the calls are replayed, MAX_SPEED for no waiting
+	 * @param sender, Sends a call when it is due, runs on the replaying thread
+	 */
+	public CallReplayer(List<CallEvent> events, double speed, Consumer<CallEvent> sender) {
+		this(inTimeOrder(events).iterator(), speed, sender);
+	}
+
+	/**
+	 * The constructor of the replayer of a trace streamed in time order
+	 *
+	 * @param events, The calls to replay in time order, read as they are replayed
+	 * @param speed, How many times faster than real time the calls are replayed, MAX_SPEED for no waiting
+	 * @param sender, Sends a call when it is due, runs on the replaying thread
+	 */
+	public CallReplayer(Iterator<CallEvent> events, double speed, Consumer<CallEvent> sender) {
+		if (!(speed > 0)) {
+			throw new IllegalArgumentException("The replay speed must be positive: " + speed);
+		}
+		this.calls = events;
+		this.speed = speed;
+		this.sender = sender;
+	}
+
+	/**
+	 * The calls of a list in time order: the list itself when it already is, a sorted copy otherwise
+	 *
+	 * @param events, The calls, the list is not modified
+	 * @return CallEvent List, The calls in time order
+	 */
+	public static List<CallEvent> inTimeOrder(List<CallEvent> events) {
+		for (int i = 1; i < events.size(); i++) {
+			if (events.get(i).getStartTime().before(events.get(i - 1).getStartTime())) {
+				List<CallEvent> sorted = new ArrayList<CallEvent>(events);
+				// A stable sort keeps the trace order of calls made at the same time
+				sorted.sort(Comparator.comparing(CallEvent::getStartTime));
+				return sorted;
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Parses a speed factor: a positive number, or "max" for MAX_SPEED
+	 *
+	 * @param speed, The speed factor
+	 * @return speed, The parsed factor
+	 * @throws IllegalArgumentException if the speed is not a positive number or "max"
+	 */
+	public static double parseSpeed(String speed) {
+		if (speed.trim().equalsIgnoreCase("max")) {
+			return MAX_SPEED;
+		}
+		double factor = Double.parseDouble(speed.trim());
+		if (!(factor > 0)) {
+			throw new IllegalArgumentException("The replay speed must be positive: " + speed);
+		}
+		return factor;
+	}
+
+	/**
+	 * @return count, The number of calls replayed so far
+	 */
+	public int size() {
+		return replayed;
+	}
+
+	/**
+	 * Replays every call on the calling thread, returning once the last call has been sent
+	 *
+	 * @return True if every call was sent, false if the thread was interrupted first
+	 */
+	public boolean replay() {
+		long start = System.nanoTime();
+		while (calls.hasNext()) {
+			CallEvent call = calls.next();
+			if (speed != MAX_SPEED) {
+				long offset = TimeParser.toMillis(call.getStartTime());
+				long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(offset) / speed);
+				long wait;
+				while ((wait = due - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(this, wait);
+					if (Thread.currentThread().isInterrupted()) {
+						return false;
+					}
+				}
+			}
+			sender.accept(call);
+			replayed++;
+		}
+		return true;
+	}
+}
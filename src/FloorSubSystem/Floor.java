@@ -2,15 +2,35 @@
 package FloorSubSystem;
 
 
+import java.io.IOException;
 import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.text.ParseException;
-import java.util.ArrayList;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import ElevatorSubSystem.Direction;
 import Util.CallEvent;
+import Util.DatagramBatcher;
+import Util.HallCall;
+import Util.IngestPorts;
+import Util.MessageCodec;
 import Util.Parser;
+import Util.ReliableSender;
+import Util.TraceReader;
+import Util.TrafficGenerator;
+import Util.Transport;
 import Util.UDPHelper;
 
 /**
@@ -23,71 +43,205 @@ import Util.UDPHelper;
 public class Floor {
 
 	private LinkedList<Integer> eventQ;
-	private List<CallEvent> floorEvents;
+	private Iterator<CallEvent> floorEvents;
+	private Set<Integer> subscribedFloors;
+	private InetSocketAddress scheduler;
+	private ScheduledExecutorService announcer;
 	private Parser parser;
-	private UDPHelper floorHelper;
+	private Transport transport;
+	private Transport.Endpoint floorEndpoint;
+	private DatagramBatcher floorBatcher;
+	private ReliableSender floorSender;
+	private int[] notification;
 
-	private static final int FLOOR_PORT = 33;
-	private static final int FLOOR_SCHEDULER_PORT = 29;
+	private static final int FLOOR_PORT = Integer.getInteger("floor.port", 33);
+	private static final int FLOOR_ID = Integer.getInteger("floor.id", 0);
+	private static final int FLOOR_BATCH_SIZE = Integer.getInteger("floor.batch.size", 16);
+	private static final long FLOOR_BATCH_LINGER = Long.getLong("floor.batch.linger", 20);
+	private static final double FLOOR_SPEED = CallReplayer.parseSpeed(System.getProperty("floor.speed", "1"));
+	private static final int FLOOR_WINDOW = Integer.getInteger("floor.window", 32);
+	private static final long FLOOR_ANNOUNCE = Long.getLong("floor.announce", 1000);
 
 	/**
 	 * The Floor object constructor. A Parser object is created that processes a CSV
 	 * file, and this data is transferred to the scheduler.
 	 *
 	 * @param floorEvents
+	 * @throws IOException if the scheduler address cannot be resolved or the floor port bound
 	 */
-	public Floor(List<CallEvent> floorEvents) {
+	public Floor(List<CallEvent> floorEvents) throws IOException {
+		this(floorEvents, Transport.create("Floor_Communication_Link"));
+	}
+
+	/**
+	 * The Floor object constructor using the given transport to reach the scheduler.
+	 *
+	 * @param floorEvents
+	 * @param transport, The transport the floor port is bound on
+	 * @throws IOException if the scheduler address cannot be resolved or the floor port bound
+	 */
+	public Floor(List<CallEvent> floorEvents, Transport transport) throws IOException {
+		this(CallReplayer.inTimeOrder(floorEvents).iterator(), transport);
+	}
+
+	/**
+	 * The Floor object constructor replaying a trace as it streams, such as a TraceReader or a
+	 * TrafficGenerator, using the given transport to reach the scheduler.
+	 *
+	 * @param floorEvents, The requests in time order, read as they are replayed
+	 * @param transport, The transport the floor port is bound on
+	 * @throws IOException if the scheduler address cannot be resolved or the floor port bound
+	 */
+	public Floor(Iterator<CallEvent> floorEvents, Transport transport) throws IOException {
 	    parser = new Parser();
 	    parser.ipAddressReader();
 		this.eventQ = new LinkedList<Integer>();
 		this.floorEvents = floorEvents;
-		this.floorHelper = new UDPHelper(FLOOR_PORT);
+		this.subscribedFloors = ConcurrentHashMap.newKeySet();
+		this.notification = new int[MessageCodec.NOTIFY_FIELDS];
+
+		InetAddress schedulerAddress;
+		if (parser.systemAddresses.isEmpty()) {
+			schedulerAddress = InetAddress.getLocalHost();
+		} else {
+			schedulerAddress = InetAddress.getByName(parser.systemAddresses.get(1));
+		}
+		this.scheduler = new InetSocketAddress(schedulerAddress, schedulerPort(FLOOR_ID));
+
+		this.transport = transport;
+		this.floorEndpoint = transport.open(FLOOR_PORT, this::receiveAcknowledgement);
+		this.floorSender = new ReliableSender(FLOOR_WINDOW,
+				datagram -> floorEndpoint.send(ByteBuffer.wrap(datagram), scheduler));
+		this.floorBatcher = new DatagramBatcher(FLOOR_BATCH_SIZE, FLOOR_BATCH_LINGER,
+				(datagram, frameCount) -> floorSender.send(datagram));
+		transport.start();
+
+		// Announce The Floor So The Scheduler Can Reach It, Again Every floor.announce Milliseconds
+		// In Case A HELLO Or SUBSCRIBE Was Lost Or The Scheduler Restarted
+		floorEndpoint.send(ByteBuffer.wrap(UDPHelper.createHello(MessageCodec.ROLE_FLOOR, FLOOR_ID)), scheduler);
+		this.announcer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "Floor_Announcer");
+			t.setDaemon(true);
+			return t;
+		});
+		announcer.scheduleWithFixedDelay(this::announce, FLOOR_ANNOUNCE, FLOOR_ANNOUNCE, TimeUnit.MILLISECONDS);
 	}
 
-	/***
-	 * This is the main method that is implemented from the Runnable interface. This
-	 * method ensure that only one floor thread can process the request and
-	 * respond accordingly. (Ensure The Operation is Atomic)
+	/**
+	 * Sends the HELLO of the floor and a SUBSCRIBE for every floor subscribed so far again, runs on the
+	 * announcer thread. The scheduler ignores a registration or subscription it already has
+	 */
+	private void announce() {
+		floorEndpoint.send(ByteBuffer.wrap(UDPHelper.createHello(MessageCodec.ROLE_FLOOR, FLOOR_ID)), scheduler);
+		for (int floor : subscribedFloors) {
+			floorEndpoint.send(ByteBuffer.wrap(UDPHelper.createSubscribe(floor)), scheduler);
+		}
+	}
+
+	/**
+	 * Subscribes to the arrival, assigned car and ETA notifications of a floor, the first time the
+	 * floor has a request
+	 *
+	 * @param floor, The floor of a request
+	 */
+	private void subscribe(int floor) {
+		if (subscribedFloors.add(floor)) {
+			floorEndpoint.send(ByteBuffer.wrap(UDPHelper.createSubscribe(floor)), scheduler);
+		}
+	}
+
+	/**
+	 * The scheduler port a floor sends its requests to. Every floor is pinned to one ingest
+	 * reader of the scheduler so its requests are always handled in order.
+	 *
+	 * @param floorId, The identifier of the floor process
+	 * @return port, The scheduler port of the reader assigned to the floor
 	 */
+	static int schedulerPort(int floorId) {
+		return IngestPorts.floorPort(floorId);
+	}
 
-	public void start() throws UnknownHostException {
-
-		long startTime = System.currentTimeMillis() / 1000;
-		long elapsedTime = 0L;
-		while (true) {
-			elapsedTime = (System.currentTimeMillis() / 1000 - startTime); // record time since the program started in s
-			if (floorEvents.size() > 0) {
-				for (int i = 0; i < floorEvents.size(); i++) { // only send events while the csv queue exists
-					double millis = floorEvents.get(i).getStartTime().getTime() - 3600000 * 5;
-					// System.out.println("Comparing: " + millis/1000 + " and " + elapsedTime);
-					if (millis / 1000 == elapsedTime) { // when time listed in the csv is the same as elapsed sent event
-
-						System.out.println("Floor sending event to scheduler:\n" + floorEvents.get(i));
-						// Send floor event to scheduler
-                        if(parser.systemAddresses.isEmpty()){
-                            floorHelper.send(floorHelper.createMessage(floorEvents.get(i)), FLOOR_SCHEDULER_PORT,
-                                    false, InetAddress.getLocalHost());
-                        }else {
-                            floorHelper.send(floorHelper.createMessage(floorEvents.get(i)), FLOOR_SCHEDULER_PORT,
-                                    false, InetAddress.getByName(parser.systemAddresses.get(1)));
-                        }
-
-						// Receive reply from scheduler
-						floorHelper.decodeMessage(floorHelper.receive(false));
-
-						
-						floorEvents.remove(i); // remove event from queue
-					}
-				}
-				try {
-					Thread.sleep(500);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+	/**
+	 * Receives the selective acknowledgements of the scheduler and hands them to the reliable
+	 * sender, which releases the acknowledged batches from the window. Notifications pushed by
+	 * the scheduler are shown on the floor display, as is the car a destination call was
+	 * assigned to.
+	 */
+	private void receiveAcknowledgement(Transport.Endpoint endpoint, ByteBuffer reply, SocketAddress source) {
+		try {
+			byte type = MessageCodec.readHeader(reply);
+			if (type == MessageCodec.SACK) {
+				floorSender.acknowledged(reply);
+			} else if (type == MessageCodec.NOTIFY) {
+				MessageCodec.decodeNotify(reply, notification);
+				displayNotification(notification);
+			} else if (type == MessageCodec.ASSIGN) {
+				MessageCodec.decodeCallTime(reply);
+				int call = MessageCodec.decodeCallFloors(reply);
+				int elevator = MessageCodec.decodeAssignedCar(reply);
+				System.out.println("[FLOOR " + HallCall.startFloor(call) + "] Destination " + HallCall.endFloor(call)
+						+ (elevator < 0 ? ": waiting for a car" : ": take elevator " + elevator));
 			}
+		} catch (IllegalArgumentException | BufferUnderflowException e) {
+			System.out.println("Invalid acknowledgement from " + source + ": " + e.getMessage());
 		}
 	}
 
+	/**
+	 * Shows a notification of the scheduler on the hall lantern and lobby display of its floor
+	 *
+	 * @param notification, The notification in the MessageCodec.NOTIFY_* layout
+	 */
+	private void displayNotification(int[] notification) {
+		int floor = notification[MessageCodec.NOTIFY_FLOOR];
+		int elevator = notification[MessageCodec.NOTIFY_ELEVATOR];
+		switch (notification[MessageCodec.NOTIFY_KIND]) {
+		case MessageCodec.NOTIFY_ARRIVAL:
+			System.out.println("[FLOOR " + floor + "] Elevator " + elevator + " has arrived");
+			break;
+		case MessageCodec.NOTIFY_ASSIGNED:
+			Direction[] directions = Direction.values();
+			int direction = notification[MessageCodec.NOTIFY_VALUE];
+			System.out.println("[FLOOR " + floor + "] Elevator " + elevator + " assigned, going "
+					+ (direction < directions.length ? directions[direction] : "?"));
+			break;
+		default:
+			System.out.println("[FLOOR " + floor + "] Elevator " + elevator + " arriving in "
+					+ notification[MessageCodec.NOTIFY_VALUE] + "s");
+		}
+	}
+
+	/***
+	 * Replays the requests of the floor at their times, scaled by the floor.speed
+	 * system property (1 for real time, a larger factor or "max" to replay faster),
+	 * and returns once every request has been handed to the batcher.
+	 */
+	public void start() {
+
+		long startTime = System.currentTimeMillis();
+		CallReplayer replayer = new CallReplayer(floorEvents, FLOOR_SPEED, event -> {
+			System.out.println("Floor sending event to scheduler:\n" + event);
+			subscribe(event.getStartFloor());
+			// Queue floor event for the next batch to the scheduler
+			floorBatcher.add(UDPHelper.createMessage(event));
+		});
+		if (replayer.replay()) {
+			floorBatcher.flush();
+			System.out.println("Floor replayed " + replayer.size() + " events in "
+					+ (System.currentTimeMillis() - startTime) + " ms");
+		}
+	}
+
+	/**
+	 * Sends any batched events and releases the floor port
+	 */
+	public void shutdown() {
+		announcer.shutdownNow();
+		floorBatcher.flush();
+		floorSender.close();
+		transport.close();
+	}
+
 	/*
 	 * used to notify when people have boarded the elevator if (eventQ.size() > 0 &&
 	 * (Integer) eventQ.peek() == scheduler.getArrivedFloor()) { try {
@@ -98,18 +252,20 @@ public class Floor {
 	 * scheduler.elevatorBoarded(); }
 	 */
 
-	public static void main(String[] args) throws ParseException {
+	public static void main(String[] args) {
 
-		Parser parser = new Parser();
-		List<CallEvent> elevatorEvents = new ArrayList<CallEvent>();
-		List<String[]> csvData = new ArrayList<String[]>();
-		csvData = Parser.csvReader();
-		elevatorEvents = parser.makeList(csvData);
-		
-		Floor f = new Floor(elevatorEvents);
+		// The Trace Is Given As The First Argument Or With -Dtrace, csv.txt By Default
+		Path trace = args.length > 0 ? Paths.get(args[0]) : TraceReader.defaultTrace();
 		try {
-			f.start();
-		} catch (UnknownHostException e) {
+			// Generated Traffic Replaces The Trace When -Dtraffic.profile Is Set
+			TrafficGenerator traffic = TrafficGenerator.fromProperties();
+			// The Trace Is Replayed As It Is Read, Never Held In Memory
+			try (Stream<CallEvent> events = traffic != null ? Stream.empty() : TraceReader.stream(trace)) {
+				Floor f = new Floor(traffic != null ? traffic : events.iterator(),
+						Transport.create("Floor_Communication_Link"));
+				f.start();
+			}
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
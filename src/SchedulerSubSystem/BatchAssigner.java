@@ -0,0 +1,203 @@
+package SchedulerSubSystem;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import Util.CallBuffer;
+import Util.HallCall;
+
+/**
+ * Assigns the hall calls of a dispatch cycle jointly. Assigning calls one at a time sends every
+ * call to the car that is best for it alone, so under a peak the calls pile onto the same car;
+ * here the cars are matched to all the calls at once with the lowest total ETA.
+ *
+ * The cost matrix has a row per call and a column per slot of a candidate car: the cars the
+ * dispatch engine scores for any of the calls, each offered SLOTS times. Slot k of a car costs its
+ * ETA to the call plus the door cycles of the k calls it takes before it in the cycle, so a car is
+ * only given a second call where that beats every other car. The matrix is solved optimally with
+ * the Hungarian method (O(calls^2 * columns)).
+ *
+ * The solver gives up when its time budget runs out or the matrix cannot hold every call, and the
+ * caller falls back to assigning the calls greedily. The budget is set with the
+ * scheduler.dispatch.budget system property in milliseconds (default 5).
+ */
+public class BatchAssigner {
+
+	/** The time budget of one assignment */
+	public static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("scheduler.dispatch.budget", 5));
+
+	/** The calls one car can take in one cycle */
+	public static final int SLOTS = 4;
+
+	private static final int SLOT_COST = DispatchEngine.DOOR_CYCLE_TIME;
+	private static final int NO_CAR = 1 << 24;
+	private static final long INFINITY = Long.MAX_VALUE / 4;
+
+	private final DispatchEngine engine;
+	private final long budgetNanos;
+	private int[] cars = new int[64];
+	private int[] etas = new int[64];
+	private long[] u = new long[16];
+	private long[] v = new long[16];
+	private long[] minv = new long[16];
+	private int[] match = new int[16];
+	private int[] way = new int[16];
+	private boolean[] used = new boolean[16];
+
+	/**
+	 * The constructor of an assigner with the default budget
+	 *
+	 * @param engine, The engine the candidate cars and their ETAs are taken from
+	 */
+	public BatchAssigner(DispatchEngine engine) {
+		this(engine, BUDGET_NANOS);
+	}
+
+	/**
+	 * The constructor of an assigner
+	 *
+	 * @param engine, The engine the candidate cars and their ETAs are taken from
+	 * @param budgetNanos, The time budget of one assignment in nanoseconds
+	 */
+	public BatchAssigner(DispatchEngine engine, long budgetNanos) {
+		this.engine = engine;
+		this.budgetNanos = budgetNanos;
+	}
+
+	/**
+	 * Assigns a cycle of calls jointly, only used by one thread at a time
+	 *
+	 * @param calls, The calls of the cycle
+	 * @param assigned, The array the car of every call is written to, -1 if no car reported
+	 * @return True if the calls were assigned, false if the budget ran out or there are more calls
+	 * than slots and the calls have to be assigned greedily
+	 */
+	public boolean assign(CallBuffer calls, int[] assigned) {
+		long deadline = System.nanoTime() + budgetNanos;
+		int rows = calls.size();
+		int carCount = collectCandidates(calls);
+		Arrays.fill(assigned, 0, rows, -1);
+		if (carCount == 0 || rows == 0) {
+			return true;
+		}
+		int slots = Math.min(SLOTS, rows);
+		int columns = carCount * slots;
+		if (rows > columns) {
+			return false;
+		}
+
+		// The ETA Of Every Candidate Car To Every Call, The Slot Costs Are Added When A Cell Is Read
+		if (etas.length < rows * carCount) {
+			etas = new int[Math.max(rows * carCount, etas.length * 2)];
+		}
+		for (int row = 0; row < rows; row++) {
+			int call = calls.getCall(row);
+			for (int car = 0; car < carCount; car++) {
+				int eta = engine.eta(cars[car], HallCall.startFloor(call), HallCall.directionOrdinal(call));
+				etas[row * carCount + car] = eta < 0 ? NO_CAR : eta;
+			}
+		}
+		if (!solve(rows, columns, carCount, slots, deadline)) {
+			return false;
+		}
+		for (int column = 1; column <= columns; column++) {
+			int row = match[column];
+			if (row != 0 && etas[(row - 1) * carCount + (column - 1) / slots] != NO_CAR) {
+				assigned[row - 1] = cars[(column - 1) / slots];
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the distinct candidate cars of every call into cars
+	 *
+	 * @return count, The number of distinct cars
+	 */
+	private int collectCandidates(CallBuffer calls) {
+		int count = 0;
+		for (int row = 0; row < calls.size(); row++) {
+			if (cars.length - count < 6 * DispatchEngine.CANDIDATES) {
+				cars = Arrays.copyOf(cars, cars.length * 2 + 6 * DispatchEngine.CANDIDATES);
+			}
+			count += engine.candidates(HallCall.startFloor(calls.getCall(row)), cars, count);
+		}
+		Arrays.sort(cars, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || cars[distinct - 1] != cars[i]) {
+				cars[distinct++] = cars[i];
+			}
+		}
+		return distinct;
+	}
+
+	/**
+	 * The Hungarian method with potentials over rows <= columns, rows and columns numbered from 1.
+	 * match[column] is the row given the column, 0 for a free column
+	 *
+	 * @return True if solved before the deadline
+	 */
+	private boolean solve(int rows, int columns, int carCount, int slots, long deadline) {
+		if (match.length <= columns) {
+			int length = Math.max(columns + 1, match.length * 2);
+			v = new long[length];
+			minv = new long[length];
+			match = new int[length];
+			way = new int[length];
+			used = new boolean[length];
+		}
+		if (u.length <= rows) {
+			u = new long[Math.max(rows + 1, u.length * 2)];
+		}
+		Arrays.fill(u, 0, rows + 1, 0);
+		Arrays.fill(v, 0, columns + 1, 0);
+		Arrays.fill(match, 0, columns + 1, 0);
+		for (int row = 1; row <= rows; row++) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			match[0] = row;
+			int column = 0;
+			Arrays.fill(minv, 0, columns + 1, INFINITY);
+			Arrays.fill(used, 0, columns + 1, false);
+			do {
+				used[column] = true;
+				int matchedRow = match[column];
+				int base = (matchedRow - 1) * carCount;
+				long delta = INFINITY;
+				int next = 0;
+				for (int j = 1; j <= columns; j++) {
+					if (!used[j]) {
+						int car = (j - 1) / slots;
+						long cost = etas[base + car] + (long) ((j - 1) - car * slots) * SLOT_COST;
+						long reduced = cost - u[matchedRow] - v[j];
+						if (reduced < minv[j]) {
+							minv[j] = reduced;
+							way[j] = column;
+						}
+						if (minv[j] < delta) {
+							delta = minv[j];
+							next = j;
+						}
+					}
+				}
+				for (int j = 0; j <= columns; j++) {
+					if (used[j]) {
+						u[match[j]] += delta;
+						v[j] -= delta;
+					} else {
+						minv[j] -= delta;
+					}
+				}
+				column = next;
+			} while (match[column] != 0);
+			do {
+				int previous = way[column];
+				match[column] = match[previous];
+				column = previous;
+			} while (column != 0);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,204 @@
+package SchedulerSubSystem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import Util.HallCall;
+
+/**
+ * The destination dispatch mode: passengers enter their destination at the floor, and every call
+ * (start floor and end floor) is assigned to a car at once so the passengers can be told which
+ * car to take. Calls from the same floor in the same direction are grouped into the trip a car is
+ * already making from that floor when their destination is one of its stops or close to one, so
+ * passengers going to the same or nearby floors ride together and every trip makes fewer stops.
+ *
+ * A candidate car of the dispatch engine costs its ETA to the floor. Joining the open trip of a
+ * car adds no pickup stop; a destination that is not yet a stop of the trip adds a door cycle for
+ * every passenger on it plus the floors to the nearest stop of the trip, so a call joins a trip
+ * going to its floor, then a trip going near it, and only then starts a new trip. A trip takes at
+ * most CAPACITY passengers (the elevator.capacity system property, default 12), a car with a
+ * full trip from the floor is not offered, and a trip closes once its car serves the floor.
+ *
+ * The trips are shared by the dispatch and status threads and synchronized.
+ */
+public class DestinationDispatcher {
+
+	/** The passengers of one trip */
+	public static final int CAPACITY = Integer.getInteger("elevator.capacity", 12);
+
+	/**
+	 * The passengers a car picks up at a floor going one way, and the floors they go to
+	 */
+	private static class Trip {
+		private int passengers;
+		private int[] stops = new int[4];
+		private int stopCount;
+
+		private int nearestStop(int floor) {
+			int nearest = Integer.MAX_VALUE;
+			for (int i = 0; i < stopCount; i++) {
+				nearest = Math.min(nearest, Math.abs(stops[i] - floor));
+			}
+			return nearest;
+		}
+
+		private void add(int floor) {
+			passengers++;
+			if (nearestStop(floor) != 0) {
+				if (stopCount == stops.length) {
+					stops = Arrays.copyOf(stops, stopCount * 2);
+				}
+				stops[stopCount++] = floor;
+			}
+		}
+	}
+
+	private final FleetTable fleet;
+	private final DispatchEngine engine;
+	private final Map<Long, Trip> trips;
+	private int[] candidates = new int[6 * DispatchEngine.CANDIDATES];
+
+	/**
+	 * The constructor of the mode
+	 *
+	 * @param fleet, The fleet table the statuses of the cars are read from
+	 * @param engine, The engine the candidate cars and their ETAs are taken from
+	 */
+	public DestinationDispatcher(FleetTable fleet, DispatchEngine engine) {
+		this.fleet = fleet;
+		this.engine = engine;
+		this.trips = new HashMap<Long, Trip>();
+	}
+
+	/**
+	 * Picks the car of a call
+	 *
+	 * @param call, The packed call (see HallCall), its end floor is the destination entered
+	 * @return elevatorNumber, The car, the lowest number on a tie, -1 if no car reported
+	 */
+	public synchronized int select(int call) {
+		int floor = HallCall.startFloor(call);
+		int destination = HallCall.endFloor(call);
+		int direction = HallCall.directionOrdinal(call);
+		int count = engine.candidates(floor, candidates, 0);
+		int bestCar = -1;
+		long bestCost = Long.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			int car = candidates[i];
+			if (!FleetTable.isPresent(fleet.get(car))) {
+				continue;
+			}
+			long cost = cost(car, floor, destination, direction);
+			if (cost == Long.MAX_VALUE) {
+				continue;
+			}
+			if (cost < bestCost || (cost == bestCost && car < bestCar)) {
+				bestCost = cost;
+				bestCar = car;
+			}
+		}
+		return bestCar;
+	}
+
+	/**
+	 * The cost of a car taking a call
+	 *
+	 * @param elevatorNumber, The number of the car
+	 * @param floor, The floor of the call
+	 * @param destination, The destination of the call
+	 * @param direction, The ordinal of the direction of the call
+	 * @return cost, The seconds the call costs the passengers of the car and of the call,
+	 * Long.MAX_VALUE if the trip of the car from the floor is full
+	 */
+	public synchronized long cost(int elevatorNumber, int floor, int destination, int direction) {
+		long eta = engine.eta(elevatorNumber, floor, direction);
+		Trip trip = trips.get(key(elevatorNumber, floor, direction));
+		if (trip == null) {
+			// A New Trip, The Car Opens Its Doors At The Destination
+			return eta + DispatchEngine.DOOR_CYCLE_TIME;
+		} else if (trip.passengers >= CAPACITY) {
+			return Long.MAX_VALUE;
+		}
+		// The Stops Of The Trip Itself, One Per Passenger, Are Counted In The ETA Of Its Car
+		eta = Math.max(0, eta - (long) DispatchEngine.DOOR_CYCLE_TIME * trip.passengers);
+		int detour = trip.nearestStop(destination);
+		if (detour == 0) {
+			return eta;
+		}
+		return eta + (long) DispatchEngine.DOOR_CYCLE_TIME * (trip.passengers + 1)
+				+ (long) DispatchEngine.MOVING_TIME * detour;
+	}
+
+	/**
+	 * Records that a call was sent to a car, joining or opening its trip from the call floor
+	 *
+	 * @param call, The packed call
+	 * @param elevatorNumber, The car
+	 */
+	public synchronized void assign(int call, int elevatorNumber) {
+		long key = key(elevatorNumber, HallCall.startFloor(call), HallCall.directionOrdinal(call));
+		Trip trip = trips.get(key);
+		if (trip == null || trip.passengers >= CAPACITY) {
+			trip = new Trip();
+			trips.put(key, trip);
+		}
+		trip.add(HallCall.endFloor(call));
+	}
+
+	/**
+	 * Closes the trips of a car from a floor, called when the car opens or closes its doors there
+	 *
+	 * @param floor, The floor the car is at
+	 * @param elevatorNumber, The number of the car
+	 * @return count, The number of trips closed
+	 */
+	public synchronized int served(int floor, int elevatorNumber) {
+		int closed = 0;
+		for (int direction = 0; direction < 2; direction++) {
+			if (trips.remove(key(elevatorNumber, floor, direction)) != null) {
+				closed++;
+			}
+		}
+		return closed;
+	}
+
+	/**
+	 * @param elevatorNumber, The number of the car
+	 * @return busy, True if the car has an open trip from any floor
+	 */
+	public synchronized boolean busy(int elevatorNumber) {
+		for (long key : trips.keySet()) {
+			if ((int) (key >>> 32) == elevatorNumber) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param elevatorNumber, The number of the car
+	 * @param floor, The floor of the trip
+	 * @param direction, The ordinal of the direction of the trip
+	 * @return passengers, The passengers of the open trip of the car from the floor, 0 if none
+	 */
+	public synchronized int passengers(int elevatorNumber, int floor, int direction) {
+		Trip trip = trips.get(key(elevatorNumber, floor, direction));
+		return trip == null ? 0 : trip.passengers;
+	}
+
+	/**
+	 * @param elevatorNumber, The number of the car
+	 * @param floor, The floor of the trip
+	 * @param direction, The ordinal of the direction of the trip
+	 * @return stops, The destinations of the open trip of the car from the floor, 0 if none
+	 */
+	public synchronized int stops(int elevatorNumber, int floor, int direction) {
+		Trip trip = trips.get(key(elevatorNumber, floor, direction));
+		return trip == null ? 0 : trip.stopCount;
+	}
+
+	private static long key(int elevatorNumber, int floor, int direction) {
+		return (long) elevatorNumber << 32 | (long) floor << 1 | direction & 1;
+	}
+}
@@ -0,0 +1,243 @@
+package SchedulerSubSystem;
+
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import ElevatorSubSystem.Direction;
+import ElevatorSubSystem.Elevator;
+import ElevatorSubSystem.ElevatorMotor;
+
+/**
+ * Picks the car that reaches a hall call first. The cars are kept in three ordered indexes, one
+ * per motor direction (up, down, stopped), sorted by floor; for a call at floor f only the
+ * CANDIDATES cars nearest to f below and above it in every index are scored, which takes
+ * O(log n) to find them however large the fleet is.
+ *
+ * A candidate is scored with its ETA in seconds: the floors it travels times MOVING_TIME plus
+ * DOOR_CYCLE_TIME for every stop already committed to it. A car moving towards the call in the
+ * requested direction travels the distance; a stopped car travels the distance; any other car
+ * has to pass the floor or finish its run first and is charged REVERSAL_FLOORS extra floors each
+ * way and a door cycle for the stop it reverses at.
+ *
+ * The indexes are concurrent skip lists updated by the status thread from the fleet table, so
+ * dispatching never blocks status ingest. Every candidate is checked against the fleet table
+ * before it is scored, so a car that has just moved is never scored at a stale floor.
+ */
+public class DispatchEngine {
+
+	/** Seconds to travel one floor, as the elevator cars move */
+	public static final int MOVING_TIME = Elevator.ELEVATOR_MOVING_TIME;
+
+	/** Seconds a stop takes: doors opening, boarding and doors closing */
+	public static final int DOOR_CYCLE_TIME = 3 * Elevator.DOOR_OPENING_CLOSING_DELAY;
+
+	/** The number of nearest cars scored on each side of the call in every index */
+	public static final int CANDIDATES = 8;
+
+	/** Floors a car moving away from a call is assumed to travel on before it reverses */
+	public static final int REVERSAL_FLOORS = 2;
+
+	private static final int STOPPED = ElevatorMotor.STOP.ordinal();
+
+	private final FleetTable fleet;
+	private final NavigableSet<Long>[] indexes;
+	private final AtomicIntegerArray committedStops;
+
+	/**
+	 * The constructor of the engine
+	 *
+	 * @param fleet, The fleet table the statuses of the cars are read from
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public DispatchEngine(FleetTable fleet) {
+		this.fleet = fleet;
+		this.indexes = new NavigableSet[ElevatorMotor.values().length];
+		for (int motor = 0; motor < indexes.length; motor++) {
+			indexes[motor] = new ConcurrentSkipListSet<Long>();
+		}
+		this.committedStops = new AtomicIntegerArray(fleet.capacity());
+	}
+
+	/**
+	 * Moves a car in the indexes after its status changed, called by the status thread
+	 *
+	 * @param elevatorNumber, The number of the car
+	 * @param previous, The previous status of the car in the fleet table, 0 if it is new
+	 * @param status, The new status of the car
+	 */
+	public void carUpdated(int elevatorNumber, long previous, long status) {
+		if (FleetTable.isPresent(previous)) {
+			if (index(previous) == index(status) && FleetTable.floor(previous) == FleetTable.floor(status)) {
+				return;
+			}
+			indexes[index(previous)].remove(key(FleetTable.floor(previous), elevatorNumber));
+		}
+		indexes[index(status)].add(key(FleetTable.floor(status), elevatorNumber));
+	}
+
+	/**
+	 * Records that a car opened its doors at a floor, serving one of its committed stops
+	 *
+	 * @param elevatorNumber, The number of the car
+	 */
+	public void carArrived(int elevatorNumber) {
+		if (elevatorNumber >= 0 && elevatorNumber < committedStops.length()) {
+			committedStops.updateAndGet(elevatorNumber, stops -> Math.max(0, stops - 1));
+		}
+	}
+
+	/**
+	 * Records stops committed to a car, one for every command sent to it: the car opens its doors
+	 * once per command, at its destination
+	 *
+	 * @param elevatorNumber, The number of the car
+	 * @param stops, The stops the car commits to
+	 */
+	public void commit(int elevatorNumber, int stops) {
+		committedStops.addAndGet(elevatorNumber, stops);
+	}
+
+	/**
+	 * Records that a call was taken from a car and handed over to another car
+	 *
+	 * @param elevatorNumber, The number of the car the call was taken from
+	 * @param stops, The stops the car had committed to for the call
+	 */
+	public void released(int elevatorNumber, int stops) {
+		committedStops.updateAndGet(elevatorNumber, committed -> Math.max(0, committed - stops));
+	}
+
+	/**
+	 * Forgets the stops committed to a car, called when it reports idle with no call left to serve
+	 * so stops it made without reporting its doors open do not weigh on it forever
+	 *
+	 * @param elevatorNumber, The number of the car
+	 */
+	public void carIdle(int elevatorNumber) {
+		if (elevatorNumber >= 0 && elevatorNumber < committedStops.length()) {
+			committedStops.set(elevatorNumber, 0);
+		}
+	}
+
+	/**
+	 * @param elevatorNumber, The number of the car
+	 * @return stops, The stops assigned to the car that it has not served yet
+	 */
+	public int committedStops(int elevatorNumber) {
+		return committedStops.get(elevatorNumber);
+	}
+
+	/**
+	 * Picks the car with the lowest ETA to a call
+	 *
+	 * @param floor, The floor of the call
+	 * @param direction, The ordinal of the requested direction
+	 * @return elevatorNumber, The car that arrives first, the lowest number on a tie, -1 if no car reported
+	 */
+	public int select(int floor, int direction) {
+		int bestCar = -1;
+		int bestEta = Integer.MAX_VALUE;
+		for (int motor = 0; motor < indexes.length; motor++) {
+			NavigableSet<Long> index = indexes[motor];
+			// The nearest cars at or below the floor, then the nearest cars above it
+			for (int side = 0; side < 2; side++) {
+				Iterator<Long> cars = side == 0 ? index.headSet(key(floor, Integer.MAX_VALUE), true).descendingIterator()
+						: index.tailSet(key(floor + 1, 0), true).iterator();
+				for (int scored = 0; scored < CANDIDATES && cars.hasNext(); scored++) {
+					long key = cars.next();
+					int car = (int) key;
+					long status = fleet.get(car);
+					if (!FleetTable.isPresent(status) || index(status) != motor
+							|| FleetTable.floor(status) != (int) (key >>> 32)) {
+						continue; // The Car Moved Since The Key Was Read, It Is Scored At Its New Key
+					}
+					int eta = eta(status, committedStops.get(car), floor, direction);
+					if (eta < bestEta || (eta == bestEta && car < bestCar)) {
+						bestEta = eta;
+						bestCar = car;
+					}
+				}
+			}
+		}
+		return bestCar;
+	}
+
+	/**
+	 * Collects the cars select scores for a call: the CANDIDATES nearest cars below and above the
+	 * floor in every index
+	 *
+	 * @param floor, The floor of the call
+	 * @param cars, The array the numbers of the cars are written to, a car may appear twice
+	 * @param from, The index of the first car written
+	 * @return count, The number of cars written, at most cars.length - from
+	 */
+	public int candidates(int floor, int[] cars, int from) {
+		int count = 0;
+		for (int motor = 0; motor < indexes.length; motor++) {
+			NavigableSet<Long> index = indexes[motor];
+			for (int side = 0; side < 2; side++) {
+				Iterator<Long> keys = side == 0 ? index.headSet(key(floor, Integer.MAX_VALUE), true).descendingIterator()
+						: index.tailSet(key(floor + 1, 0), true).iterator();
+				for (int scored = 0; scored < CANDIDATES && keys.hasNext() && from + count < cars.length; scored++) {
+					cars[from + count++] = (int) (long) keys.next();
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * The ETA of a car to a call
+	 *
+	 * @param elevatorNumber, The number of the car
+	 * @param floor, The floor of the call
+	 * @param direction, The ordinal of the requested direction
+	 * @return eta, The seconds until the car reaches the floor, -1 if the car never reported
+	 */
+	public int eta(int elevatorNumber, int floor, int direction) {
+		long status = fleet.get(elevatorNumber);
+		if (!FleetTable.isPresent(status)) {
+			return -1;
+		}
+		return eta(status, committedStops.get(elevatorNumber), floor, direction);
+	}
+
+	/**
+	 * The ETA cost function: travel time plus a door cycle per committed stop
+	 *
+	 * @param status, The packed status of the car
+	 * @param stops, The stops committed to the car
+	 * @param floor, The floor of the call
+	 * @param direction, The ordinal of the requested direction
+	 * @return eta, The seconds until the car reaches the floor
+	 */
+	public static int eta(long status, int stops, int floor, int direction) {
+		int carFloor = FleetTable.floor(status);
+		int distance = Math.abs(carFloor - floor);
+		int motor = FleetTable.motor(status);
+		boolean onTheWay;
+		if (motor == ElevatorMotor.UPWARD.ordinal()) {
+			onTheWay = direction == Direction.UP.ordinal() && carFloor <= floor;
+		} else if (motor == ElevatorMotor.DOWNWARD.ordinal()) {
+			onTheWay = direction == Direction.DOWN.ordinal() && carFloor >= floor;
+		} else {
+			onTheWay = true;
+		}
+		int travel = onTheWay ? distance * MOVING_TIME : (distance + 2 * REVERSAL_FLOORS) * MOVING_TIME + DOOR_CYCLE_TIME;
+		return travel + stops * DOOR_CYCLE_TIME;
+	}
+
+	/**
+	 * The index of a status: its motor direction, any unknown motor counts as stopped
+	 */
+	private int index(long status) {
+		int motor = FleetTable.motor(status);
+		return motor < indexes.length ? motor : STOPPED;
+	}
+
+	private static long key(int floor, int elevatorNumber) {
+		return (long) floor << 32 | elevatorNumber & 0xFFFFFFFFL;
+	}
+}
@@ -1,108 +1,250 @@
 package SchedulerSubSystem;
 
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.util.List;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
 import Util.CallEvent;
-import Util.Parser;
-import Util.UDPHelper;
+import Util.DatagramBatcher;
+import Util.EndpointRegistry;
+import Util.HallCall;
+import Util.IngestPorts;
+import Util.MessageCodec;
+import Util.Transport;
 
 /**
  * The Event Handler Class is Associated With the Scheduler and component of the scheduler. The scheduler receives
- * the UDP Packets from-to the elevators/floors
+ * the UDP Packets from-to the elevators/floors. Every floor and elevator port is multiplexed on a single
+ * transport (by default the non-blocking UDP event loop), and decoded messages are handed to the scheduler
+ * for dispatch. Floors and elevators are addressed through the endpoint registry, filled from their HELLO
+ * frames, instead of the positional ipAddress.txt entries.
  */
 public class EventHandler {
 	
-	private static final int FLOOR_PORT = 33;
-	private static final int FLOOR_SCHEDULER_PORT = 29;
 	private static final int ELEVATOR_SCHEDULER_PORT = 30;
+	private static final int ELEVATOR_BATCH_SIZE = Integer.getInteger("elevator.batch.size", 16);
+	private static final long ELEVATOR_BATCH_LINGER = Long.getLong("elevator.batch.linger", 5);
 
 	private Scheduler scheduler;
-	private UDPHelper floorScheduler, elevatorScheduler;
-	private List<CallEvent> list;
-	private Parser p;
+	private Transport eventLoop;
+	private Transport.Endpoint elevatorScheduler;
+	private FloorIngest floorIngest;
+	private EndpointRegistry registry;
+	private FloorNotifier notifier;
+	private Map<SocketAddress, DatagramBatcher> elevatorBatchers;
+	private Map<Integer, int[]> elevatorStatus;
+	private IntFunction<int[]> statusOf;
+	private ByteBuffer commandFrame;
+	private ByteBuffer assignFrame;
 
     /**
      * The constructor for the event handler
      * @param s The connected scheduler class
-     * @param list, The associated list of requests/commands
+     * @param transport, The transport the scheduler ports are bound on
+     * @throws IOException, Exception if the scheduler ports cannot be bound
      */
-	public EventHandler(Scheduler s, List<CallEvent> list) {
+	public EventHandler(Scheduler s, Transport transport) throws IOException {
 		scheduler = s;
-		this.list = list;
 
-		 try {
-            InetAddress hostAddress = InetAddress.getLocalHost();
-            // UDPHelper to send/receive from floor
-            floorScheduler = new UDPHelper(FLOOR_SCHEDULER_PORT);
+		registry = new EndpointRegistry();
+		notifier = new FloorNotifier();
+		elevatorBatchers = new ConcurrentHashMap<SocketAddress, DatagramBatcher>();
+		elevatorStatus = new HashMap<Integer, int[]>(); // Only Used By The Transport Thread
+		statusOf = number -> elevatorStatus.computeIfAbsent(number, n -> new int[MessageCodec.STATUS_FIELDS]);
+		commandFrame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE); // Only Used Under The Scheduler Lock
+		assignFrame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE); // Only Used Under The Scheduler Lock
 
-            //UDPHelper to send/receive from elevator
-            elevatorScheduler = new UDPHelper(ELEVATOR_SCHEDULER_PORT);
+		eventLoop = transport;
+		try {
+            // Endpoints to send/receive from floor, spread over the ingest readers
+            floorIngest = new FloorIngest(s, registry, notifier, eventLoop, IngestPorts.READERS);
 
+            // Endpoint to send/receive from elevator
+            elevatorScheduler = eventLoop.open(ELEVATOR_SCHEDULER_PORT, this::receiveElevatorStatus);
+		} catch (IOException e) {
+		    eventLoop.close();
+		    throw e;
+		}
+	}
 
-        } catch (UnknownHostException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Starts the I/O thread serving every floor and elevator port, the floor ingest readers and the dispatch stage
+     */
+	public void start() {
+		floorIngest.start();
+		eventLoop.start();
+	}
 
-        p = new Parser();
-		p.ipAddressReader(); //Extract The IP Addresses
+    /**
+     * Stops the I/O threads and the dispatch stage and releases the scheduler ports
+     */
+	public void shutdown() {
+		for (DatagramBatcher batcher : elevatorBatchers.values()) {
+			batcher.flush();
+		}
+		floorIngest.close();
+		eventLoop.close();
 	}
 
     /**
-     * Receive the floor request from the Floor and respond back with acknowledgement
-     * stating the floor request has been received by the "Scheduler"
-     * @return c, The event that has been requested by the Floor
+     * @return registry, The addresses of the floors and elevators that announced themselves
      */
-	public CallEvent receiveFloorRequest() {
-		CallEvent c;
-		c = p.parseByteEvent(floorScheduler.receive(false));
-		try {
-		    if(p.systemAddresses.isEmpty()){
-                floorScheduler.send(floorScheduler.createReply(), FLOOR_PORT, false,
-                        InetAddress.getLocalHost());
-            }else{
-                floorScheduler.send(floorScheduler.createReply(), FLOOR_PORT, false,
-                        InetAddress.getByName(p.systemAddresses.get(0)));
-            }
+	public EndpointRegistry getRegistry() {
+		return registry;
+	}
 
-		} catch (IOException e) {
-            e.printStackTrace();
-		}
-		
-		return c;
+    /**
+     * @return notifier, The arrival, assigned car and ETA notifications of the floors
+     */
+	public FloorNotifier getNotifier() {
+		return notifier;
 	}
 
     /**
-     * Transmits the corresponding request event to the Elevator (Selected Elevator)
+     * Queues the corresponding request event for the Elevator (Selected Elevator). The request is sent as a
+     * COMMAND frame naming the elevator, so cars of an elevator bank can share one port, and requests for
+     * the same address are batched into one datagram within the configured linger time.
      * @param c, The request that is to be transmitted
-     * @param portNum, The port number of the elevator thread
-     * @throws UnknownHostException, Exception if the specified IP Address is Invalid
+     * @param elevatorNumber, The number of the selected elevator
+     * @return True if the elevator is registered and the request was queued
      */
-	public void sendElevatorRequest(CallEvent c, int portNum) throws UnknownHostException {
+	public boolean sendElevatorRequest(CallEvent c, int elevatorNumber) {
+		return sendElevatorRequest(c.getStartTime().getTime(), HallCall.pack(c), elevatorNumber);
+	}
+
+    /**
+     * Queues the primitive form of a request for the selected elevator, see sendElevatorRequest(CallEvent, int).
+     * The COMMAND frame is encoded into a buffer reused by every request, only called under the scheduler lock
+     * @param time, The time of the request in milliseconds
+     * @param call, The packed request (see HallCall)
+     * @param elevatorNumber, The number of the selected elevator
+     * @return True if the elevator is registered and the request was queued
+     */
+	public boolean sendElevatorRequest(long time, int call, int elevatorNumber) {
 		System.out.println("Sending Elevator Request");
-        if(p.systemAddresses.isEmpty()) {
-            elevatorScheduler.send(elevatorScheduler.createMessage(c), portNum, false,
-                    InetAddress.getLocalHost());
-        }else {
-            elevatorScheduler.send(elevatorScheduler.createMessage(c), portNum, false,
-                    InetAddress.getByName(p.systemAddresses.get(2)));
-        }
+		SocketAddress destination = registry.lookup(MessageCodec.ROLE_ELEVATOR, elevatorNumber);
+		if (destination == null) {
+			System.out.println("Elevator " + elevatorNumber + " is not registered, request not sent: "
+					+ HallCall.toCallEvent(time, call));
+			return false;
+		}
+		commandFrame.clear();
+		MessageCodec.encodeCommand(commandFrame, elevatorNumber, time, call);
+		commandFrame.flip();
+		batcherFor(destination).add(commandFrame);
+		return true;
+	}
+
+    /**
+     * Tells the floor that sent a destination call which car it was assigned to with an ASSIGN frame, sent
+     * from the floor port the call arrived on. Only called under the scheduler lock
+     * @param endpoint, The floor port the call arrived on, nothing is sent if null
+     * @param floor, The address of the floor that sent the call
+     * @param time, The time of the call in milliseconds
+     * @param call, The packed call (see HallCall)
+     * @param elevatorNumber, The car assigned to the call, -1 if none could be assigned yet
+     */
+	public void sendAssign(Transport.Endpoint endpoint, SocketAddress floor, long time, int call, int elevatorNumber) {
+		if (endpoint == null) {
+			return;
+		}
+		assignFrame.clear();
+		MessageCodec.encodeAssign(assignFrame, time, call, elevatorNumber);
+		assignFrame.flip();
+		endpoint.send(assignFrame, floor);
+	}
 
+    /**
+     * Queues a CANCEL frame withdrawing a request from the elevator it was sent to, before the request is
+     * handed over to another elevator. The elevator replies with a CANCELLED frame telling whether it
+     * withdrew the request, see Scheduler.cancelConfirmed. Only called under the scheduler lock
+     * @param time, The time of the request in milliseconds, as it was sent
+     * @param call, The packed request, as it was sent (see HallCall)
+     * @param elevatorNumber, The number of the elevator the request was sent to
+     * @return True if the elevator is registered and the cancel was queued
+     */
+	public boolean sendElevatorCancel(long time, int call, int elevatorNumber) {
+		SocketAddress destination = registry.lookup(MessageCodec.ROLE_ELEVATOR, elevatorNumber);
+		if (destination == null) {
+			return false;
+		}
+		commandFrame.clear();
+		MessageCodec.encodeCancel(commandFrame, elevatorNumber, time, call);
+		commandFrame.flip();
+		batcherFor(destination).add(commandFrame);
+		return true;
 	}
 
     /**
-     * Receives the Elevator State and status
-     * @return status, The elevator decoded status
+     * The batcher of the commands sent to an elevator address
      */
-    public byte[] receiveElevatorStatus() {
+	private DatagramBatcher batcherFor(SocketAddress destination) {
+		DatagramBatcher batcher = elevatorBatchers.get(destination);
+		if (batcher == null) {
+			batcher = elevatorBatchers.computeIfAbsent(destination, address -> new DatagramBatcher(ELEVATOR_BATCH_SIZE,
+					ELEVATOR_BATCH_LINGER, (datagram, frames) ->
+							elevatorScheduler.send(ByteBuffer.wrap(datagram), address)));
+		}
+		return batcher;
+	}
 
-        byte[] status = elevatorScheduler.receive(true);
-        return status;
+    /**
+     * Receives the Elevator States and statuses (a single frame or a batch) and hands each decoded status
+     * to the scheduler. DELTA frames only carry the fields that changed and are applied to the last known
+     * status of the elevator, which is kept in one array per elevator. HELLO frames and the source of
+     * every status keep the registry of the elevator addresses up to date. CANCELLED frames, the replies
+     * to the CANCEL frames, are handed to the scheduler
+     * @param endpoint, The endpoint the datagram arrived on
+     * @param datagram, The received datagram
+     * @param source, The address of the Elevator that sent the status
+     */
+    private void receiveElevatorStatus(Transport.Endpoint endpoint, ByteBuffer datagram, SocketAddress source) {
+        try {
+            int frames = MessageCodec.openDatagram(datagram);
+            for (int i = 0; i < frames; i++) {
+                byte type = MessageCodec.readHeader(datagram);
+                if (type == MessageCodec.HELLO) {
+                    int role = MessageCodec.getVarInt(datagram);
+                    registry.register(role, MessageCodec.getVarInt(datagram), source);
+                    continue;
+                }
+                if (type == MessageCodec.CANCELLED) {
+                    int elevatorNumber = MessageCodec.getVarInt(datagram);
+                    boolean withdrawn = MessageCodec.getVarInt(datagram) != 0;
+                    long time = MessageCodec.decodeCallTime(datagram);
+                    scheduler.cancelConfirmed(elevatorNumber, time, MessageCodec.decodeCallFloors(datagram), withdrawn);
+                    continue;
+                }
+                int[] status;
+                if (type == MessageCodec.DELTA) {
+                    status = MessageCodec.decodeStatusDelta(datagram, statusOf);
+                } else if (type == MessageCodec.STATUS) {
+                    status = statusOf.apply(MessageCodec.getVarInt(datagram.duplicate()));
+                    MessageCodec.decodeStatus(datagram, status);
+                } else {
+                    break;
+                }
+                registry.register(MessageCodec.ROLE_ELEVATOR, status[MessageCodec.STATUS_ELEVATOR_NUMBER], source);
+                scheduler.elevatorStatus(status);
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            System.out.println("Invalid elevator status frame from " + source + ": " + e.getMessage());
+        }
     }
 
-    public void replyToElevatorStatus(byte[] response, int elevatorPort) throws UnknownHostException {
-        elevatorScheduler.send(response, elevatorPort, false, InetAddress.getByName("192.168.56.1"));
+    /**
+     * Replies to the status of an elevator
+     * @param response, The reply
+     * @param elevatorNumber, The number of the elevator
+     * @return True if the elevator is registered and the reply was sent
+     */
+    public boolean replyToElevatorStatus(byte[] response, int elevatorNumber) {
+        SocketAddress destination = registry.lookup(MessageCodec.ROLE_ELEVATOR, elevatorNumber);
+        return destination != null && elevatorScheduler.send(ByteBuffer.wrap(response), destination);
     }
 
 }
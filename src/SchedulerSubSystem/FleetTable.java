@@ -0,0 +1,186 @@
+package SchedulerSubSystem;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The latest status of every elevator car, indexed by elevator number. The status of a car is
+ * packed into one long of an AtomicLongArray, so the status thread updates a car in place with
+ * a single atomic write and the dispatcher reads a consistent status of any car without a lock;
+ * status ingest and dispatch never contend, and a status can never be seen half written.
+ *
+ * Bits 0 to 15 hold the port, 16 to 31 the floor, 32 to 39 the state ordinal, 40 to 47 the motor
+ * ordinal, 48 to 55 the door ordinal and bit 56 is set once the car has reported. A status of 0
+ * is a car that never reported.
+ *
+ * The capacity is set with the scheduler.fleet.capacity system property (default 1024 cars).
+ */
+public class FleetTable {
+
+	/** The number of cars of the default table, elevator numbers 1 to DEFAULT_CAPACITY - 1 */
+	public static final int DEFAULT_CAPACITY = Integer.getInteger("scheduler.fleet.capacity", 1024);
+
+	private static final int FLOOR_SHIFT = 16;
+	private static final int STATE_SHIFT = 32;
+	private static final int MOTOR_SHIFT = 40;
+	private static final int DOOR_SHIFT = 48;
+	private static final long PRESENT = 1L << 56;
+	private static final int SHORT_MASK = 0xFFFF;
+	private static final int BYTE_MASK = 0xFF;
+
+	private final AtomicLongArray cars;
+	private final AtomicInteger highestCar;
+	private final AtomicInteger size;
+
+	/**
+	 * The constructor of a table holding DEFAULT_CAPACITY cars
+	 */
+	public FleetTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * The constructor of an empty table
+	 *
+	 * @param capacity, The number of elevator numbers the table holds, 0 to capacity - 1
+	 */
+	public FleetTable(int capacity) {
+		cars = new AtomicLongArray(capacity);
+		highestCar = new AtomicInteger(-1);
+		size = new AtomicInteger();
+	}
+
+	/**
+	 * Packs a status
+	 *
+	 * @param port, The port the car is reached at
+	 * @param state, The ordinal of the ElevatorState of the car
+	 * @param floor, The current floor of the car
+	 * @param motor, The ordinal of the ElevatorMotor of the car
+	 * @param door, The ordinal of the ElevatorDoor of the car
+	 * @return status, The packed status
+	 * @throws IllegalArgumentException if a field does not fit its bits
+	 */
+	public static long pack(int port, int state, int floor, int motor, int door) {
+		if ((port & ~SHORT_MASK) != 0 || (floor & ~SHORT_MASK) != 0 || (state & ~BYTE_MASK) != 0
+				|| (motor & ~BYTE_MASK) != 0 || (door & ~BYTE_MASK) != 0) {
+			throw new IllegalArgumentException("Invalid elevator status: port " + port + ", state " + state
+					+ ", floor " + floor + ", motor " + motor + ", door " + door);
+		}
+		return PRESENT | port | (long) floor << FLOOR_SHIFT | (long) state << STATE_SHIFT
+				| (long) motor << MOTOR_SHIFT | (long) door << DOOR_SHIFT;
+	}
+
+	/**
+	 * Records the status of a car, replacing its previous status in one atomic write
+	 *
+	 * @param elevatorNumber, The number of the car
+	 * @param status, The packed status
+	 * @return status, The previous status of the car, 0 if it never reported
+	 * @throws IllegalArgumentException if the elevator number is outside the table
+	 */
+	public long update(int elevatorNumber, long status) {
+		checkCar(elevatorNumber);
+		long previous = cars.getAndSet(elevatorNumber, status | PRESENT);
+		if (previous == 0) {
+			size.incrementAndGet();
+			int highest;
+			while ((highest = highestCar.get()) < elevatorNumber && !highestCar.compareAndSet(highest, elevatorNumber)) {
+				// Another car raised the highest number first, check again
+			}
+		}
+		return previous;
+	}
+
+	/**
+	 * @param elevatorNumber, The number of the car
+	 * @return status, The packed status of the car, 0 if it never reported or is outside the table
+	 */
+	public long get(int elevatorNumber) {
+		return elevatorNumber >= 0 && elevatorNumber < cars.length() ? cars.get(elevatorNumber) : 0;
+	}
+
+	/**
+	 * @return highest, The highest number of a car that reported, -1 if none did. Dispatchers scan
+	 * the cars from 0 to this number
+	 */
+	public int highestCar() {
+		return highestCar.get();
+	}
+
+	/**
+	 * @return capacity, The number of elevator numbers the table holds
+	 */
+	public int capacity() {
+		return cars.length();
+	}
+
+	/**
+	 * @return size, The number of cars that reported
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * @return True if no car has reported
+	 */
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	/**
+	 * @param status, A packed status
+	 * @return True if the status is of a car that reported
+	 */
+	public static boolean isPresent(long status) {
+		return (status & PRESENT) != 0;
+	}
+
+	/**
+	 * @param status, A packed status
+	 * @return port, The port the car is reached at
+	 */
+	public static int port(long status) {
+		return (int) status & SHORT_MASK;
+	}
+
+	/**
+	 * @param status, A packed status
+	 * @return floor, The current floor of the car
+	 */
+	public static int floor(long status) {
+		return (int) (status >>> FLOOR_SHIFT) & SHORT_MASK;
+	}
+
+	/**
+	 * @param status, A packed status
+	 * @return state, The ordinal of the ElevatorState of the car
+	 */
+	public static int state(long status) {
+		return (int) (status >>> STATE_SHIFT) & BYTE_MASK;
+	}
+
+	/**
+	 * @param status, A packed status
+	 * @return motor, The ordinal of the ElevatorMotor of the car
+	 */
+	public static int motor(long status) {
+		return (int) (status >>> MOTOR_SHIFT) & BYTE_MASK;
+	}
+
+	/**
+	 * @param status, A packed status
+	 * @return door, The ordinal of the ElevatorDoor of the car
+	 */
+	public static int door(long status) {
+		return (int) (status >>> DOOR_SHIFT) & BYTE_MASK;
+	}
+
+	private void checkCar(int elevatorNumber) {
+		if (elevatorNumber < 0 || elevatorNumber >= cars.length()) {
+			throw new IllegalArgumentException("Elevator " + elevatorNumber + " is outside the fleet table of "
+					+ cars.length() + " cars");
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package SchedulerSubSystem;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import Util.CallBuffer;
+import Util.EndpointRegistry;
+import Util.InMemoryTransport;
+import Util.IngestPorts;
+import Util.MessageCodec;
+import Util.Parser;
+import Util.ReliableReceiver;
+import Util.SharedMemoryTransport;
+import Util.Transport;
+import Util.UDPHelper;
+
+/**
+ * The floor request ingest of the scheduler. N readers each own a floor port (see IngestPorts)
+ * on their own transport thread, so requests are received, acknowledged and decoded in parallel.
+ * A floor always sends to the same reader, which keeps the requests of every source in order,
+ * and all readers feed the single dispatch stage that runs Scheduler.elevatorRequest.
+ *
+ * The number of readers is set with the scheduler.ingest.readers system property (default 1).
+ *
+ * Requests are decoded into pooled CallBuffers in their primitive form, so receiving and
+ * dispatching a request creates no objects once the pool is warm.
+ *
+ * The dispatch stage hands the scheduler the port and the floor of every datagram, so in the
+ * destination dispatch mode the scheduler can acknowledge every call with an ASSIGN frame naming
+ * the car assigned to it, see Scheduler.elevatorRequest.
+ */
+public class FloorIngest {
+
+	private static final int POOLED_BUFFERS = 64;
+
+	/**
+	 * The requests of one datagram and where they came from
+	 */
+	private static class Request {
+		private final CallBuffer calls = new CallBuffer();
+		private Transport.Endpoint endpoint;
+		private SocketAddress source;
+	}
+
+	/**
+	 * One receiving thread with its own port, acknowledgement state and buffers
+	 */
+	private class Reader {
+		private final Transport transport;
+		private final ReliableReceiver receiver = new ReliableReceiver();
+		private final ByteBuffer ackBuffer = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+
+		private Reader(Transport transport, int port) throws IOException {
+			this.transport = transport;
+			transport.open(port, this::receiveFloorRequests);
+		}
+
+		/**
+		 * Receive the floor requests (a single call or a batch) from the Floor, respond back with an
+		 * acknowledgement stating the requests have been received by the "Scheduler" and queue the
+		 * requests for dispatch. Sequenced (DATA) requests are acknowledged with a selective
+		 * acknowledgement and retransmitted duplicates are not dispatched again. HELLO frames
+		 * register the floor in the endpoint registry and SUBSCRIBE frames subscribe it to the
+		 * notifications of a building floor
+		 */
+		private void receiveFloorRequests(Transport.Endpoint endpoint, ByteBuffer datagram, SocketAddress source) {
+			Request c = null;
+			try {
+				int start = datagram.position();
+				byte type = MessageCodec.readHeader(datagram);
+				if (type == MessageCodec.HELLO) {
+					int role = MessageCodec.getVarInt(datagram);
+					registry.register(role, MessageCodec.getVarInt(datagram), source);
+					return;
+				} else if (type == MessageCodec.SUBSCRIBE) {
+					notifier.subscribe(MessageCodec.getVarInt(datagram), endpoint, source);
+					return;
+				} else if (type == MessageCodec.DATA) {
+					ackBuffer.clear();
+					boolean fresh = receiver.receive(source, datagram, ackBuffer);
+					ackBuffer.flip();
+					endpoint.send(ackBuffer, source);
+					if (!fresh) {
+						return;
+					}
+					c = takeBuffer();
+					parser.parseByteEvents(datagram, c.calls);
+				} else {
+					datagram.position(start);
+					c = takeBuffer();
+					parser.parseByteEvents(datagram, c.calls);
+					endpoint.send(ByteBuffer.wrap(UDPHelper.createReply(c.calls.size())), source);
+				}
+			} catch (IllegalArgumentException | BufferUnderflowException e) {
+				System.out.println("Invalid floor request from " + source + ": " + e.getMessage());
+				if (c != null) {
+					recycle(c);
+				}
+				return;
+			}
+			c.endpoint = endpoint;
+			c.source = source;
+			dispatchQueue.add(c);
+		}
+	}
+
+	private final Scheduler scheduler;
+	private final EndpointRegistry registry;
+	private final FloorNotifier notifier;
+	private final Parser parser;
+	private final List<Reader> readers;
+	private final BlockingQueue<Request> dispatchQueue;
+	private final BlockingQueue<Request> freeBuffers;
+	private Thread dispatcher;
+	private volatile boolean running;
+
+	/**
+	 * The constructor of the ingest
+	 *
+	 * @param scheduler, The scheduler the requests are dispatched by
+	 * @param registry, The registry the floors announcing themselves are added to
+	 * @param notifier, The notifier the floors subscribe to
+	 * @param transport, The scheduler transport, used by the first reader
+	 * @param readerCount, The number of parallel readers
+	 * @throws IOException if a floor port cannot be bound
+	 */
+	public FloorIngest(Scheduler scheduler, EndpointRegistry registry, FloorNotifier notifier, Transport transport,
+			int readerCount) throws IOException {
+		this.scheduler = scheduler;
+		this.registry = registry;
+		this.notifier = notifier;
+		this.parser = new Parser();
+		this.readers = new ArrayList<Reader>(readerCount);
+		this.dispatchQueue = new LinkedBlockingQueue<Request>();
+		this.freeBuffers = new ArrayBlockingQueue<Request>(POOLED_BUFFERS);
+		try {
+			readers.add(new Reader(transport, IngestPorts.ingestPort(0)));
+			for (int i = 1; i < readerCount; i++) {
+				readers.add(new Reader(sameKind(transport, "Floor_Ingest_" + i), IngestPorts.ingestPort(i)));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates a transport of the same kind as the scheduler transport for an additional reader
+	 *
+	 * @param transport, The scheduler transport
+	 * @param name, The name given to the reader thread
+	 * @return transport, A transport that has not been started yet
+	 * @throws IOException if the transport cannot be created
+	 */
+	private static Transport sameKind(Transport transport, String name) throws IOException {
+		if (transport instanceof InMemoryTransport) {
+			return Transport.create("memory", name);
+		} else if (transport instanceof SharedMemoryTransport) {
+			return Transport.create("shm", name);
+		}
+		return Transport.create("udp", name);
+	}
+
+	/**
+	 * Starts the readers and the dispatch stage
+	 */
+	public synchronized void start() {
+		if (dispatcher != null) {
+			return;
+		}
+		running = true;
+		dispatcher = new Thread(this::dispatch, "Scheduler_Dispatch");
+		dispatcher.start();
+		for (Reader reader : readers) {
+			reader.transport.start();
+		}
+	}
+
+	/**
+	 * The dispatch stage: requests are handed to the scheduler one datagram at a time, in the
+	 * order the readers queued them. The buffers go back to the pool once dispatched
+	 */
+	private void dispatch() {
+		while (running) {
+			Request requests;
+			try {
+				requests = dispatchQueue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				scheduler.elevatorRequest(requests.calls, requests.endpoint, requests.source);
+			} finally {
+				recycle(requests);
+			}
+		}
+	}
+
+	/**
+	 * A cleared buffer from the pool, a new one when every pooled buffer is queued for dispatch
+	 */
+	private Request takeBuffer() {
+		Request buffer = freeBuffers.poll();
+		return buffer != null ? buffer : new Request();
+	}
+
+	private void recycle(Request buffer) {
+		buffer.calls.clear();
+		buffer.endpoint = null;
+		buffer.source = null;
+		freeBuffers.offer(buffer);
+	}
+
+	/**
+	 * Stops the additional readers and the dispatch stage, the first reader's transport is
+	 * closed by its owner
+	 */
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			running = false;
+			thread = dispatcher;
+		}
+		for (int i = 1; i < readers.size(); i++) {
+			readers.get(i).transport.close();
+		}
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+}
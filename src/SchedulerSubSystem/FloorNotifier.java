@@ -0,0 +1,133 @@
+package SchedulerSubSystem;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import Util.MessageCodec;
+import Util.Transport;
+import Util.UDPHelper;
+
+/**
+ * Pushes arrival, assigned car and ETA notifications to the floors. Floors subscribe to the
+ * notifications of a building floor with SUBSCRIBE frames; every notification is encoded once
+ * and fanned out with one send per subscriber of that floor, so hall lanterns and lobby displays
+ * are updated as soon as the scheduler knows, without polling it.
+ *
+ * The latest notification of every kind is kept per floor and replayed to a new subscriber, so a
+ * floor that joins late starts from the current picture.
+ */
+public class FloorNotifier {
+
+	/**
+	 * A subscribed floor, reached from the scheduler port it subscribed on
+	 */
+	private static class Subscriber {
+		final Transport.Endpoint endpoint;
+		final SocketAddress address;
+
+		Subscriber(Transport.Endpoint endpoint, SocketAddress address) {
+			this.endpoint = endpoint;
+			this.address = address;
+		}
+
+		void send(byte[] notification) {
+			endpoint.send(ByteBuffer.wrap(notification), address);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Subscriber && address.equals(((Subscriber) o).address);
+		}
+
+		@Override
+		public int hashCode() {
+			return address.hashCode();
+		}
+	}
+
+	private final Map<Integer, Set<Subscriber>> subscribers;
+	private final Map<Integer, byte[][]> snapshots;
+
+	/**
+	 * The constructor of a notifier without subscribers
+	 */
+	public FloorNotifier() {
+		subscribers = new ConcurrentHashMap<Integer, Set<Subscriber>>();
+		snapshots = new ConcurrentHashMap<Integer, byte[][]>();
+	}
+
+	/**
+	 * Subscribes a floor to the notifications of a building floor and sends it the latest
+	 * notifications of that floor
+	 *
+	 * @param floor, The building floor
+	 * @param endpoint, The scheduler port the subscription arrived on
+	 * @param address, The address of the subscriber
+	 */
+	public void subscribe(int floor, Transport.Endpoint endpoint, SocketAddress address) {
+		Subscriber subscriber = new Subscriber(endpoint, address);
+		byte[][] snapshot = snapshot(floor);
+		synchronized (snapshot) {
+			// Under the snapshot lock no notification of the floor can be missed or sent twice
+			if (!subscribers.computeIfAbsent(floor, f -> new CopyOnWriteArraySet<Subscriber>()).add(subscriber)) {
+				return;
+			}
+			for (byte[] notification : snapshot) {
+				if (notification != null) {
+					subscriber.send(notification);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes every subscription of a subscriber
+	 *
+	 * @param address, The address of the subscriber
+	 */
+	public void unsubscribe(SocketAddress address) {
+		Subscriber subscriber = new Subscriber(null, address);
+		for (Set<Subscriber> floorSubscribers : subscribers.values()) {
+			floorSubscribers.remove(subscriber);
+		}
+	}
+
+	/**
+	 * Pushes a notification to the subscribers of a floor
+	 *
+	 * @param kind, MessageCodec.NOTIFY_ARRIVAL, NOTIFY_ASSIGNED or NOTIFY_ETA
+	 * @param floor, The building floor
+	 * @param elevatorNumber, The elevator the notification is about
+	 * @param value, The direction of an assignment or the ETA in seconds
+	 */
+	public void publish(int kind, int floor, int elevatorNumber, int value) {
+		byte[] notification = UDPHelper.createNotify(kind, floor, elevatorNumber, value);
+		byte[][] snapshot = snapshot(floor);
+		synchronized (snapshot) {
+			snapshot[kind] = notification;
+			Set<Subscriber> floorSubscribers = subscribers.get(floor);
+			if (floorSubscribers != null) {
+				for (Subscriber subscriber : floorSubscribers) {
+					subscriber.send(notification);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param floor, The building floor
+	 * @return count, The number of subscribers of the floor
+	 */
+	public int subscriberCount(int floor) {
+		Set<Subscriber> floorSubscribers = subscribers.get(floor);
+		return floorSubscribers == null ? 0 : floorSubscribers.size();
+	}
+
+	private byte[][] snapshot(int floor) {
+		return snapshots.computeIfAbsent(floor, f -> new byte[MessageCodec.NOTIFY_KINDS][]);
+	}
+}
@@ -0,0 +1,521 @@
+package SchedulerSubSystem;
+
+import java.util.Arrays;
+
+import ElevatorSubSystem.Direction;
+import Util.CallBuffer;
+import Util.HallCall;
+
+/**
+ * The hall calls of the building, one per floor and direction, as the call buttons of a real
+ * building are. A press on a floor and direction that already has a pending or assigned call is
+ * merged into it instead of starting a new dispatch: the call keeps the earliest time it was
+ * pressed at and, while it is pending, the farthest destination in its direction. The dispatch
+ * work therefore grows with the distinct calls, not the button presses.
+ *
+ * The car only drives to the destinations it is sent, so every distinct destination of the merged
+ * presses is kept with the call and sent to its car as a command of its own (see destinations). A
+ * destination pressed after the car was sent is queued until the scheduler sends it (see
+ * drainUnsent), so no passenger of a merged call is left without a car to their floor.
+ *
+ * Every call moves from PENDING to ASSIGNED when a car is sent and back to SERVED when that car
+ * reaches the floor (see HallCallState). A pending call stays pending until a car is assigned, so
+ * no call is lost when no car can take it yet. The passengers of a served call ride in the car
+ * until it stops at their destination, and are kept per car until then (see forEachCarried), so the
+ * route of a car still includes the destinations of the calls it picked up.
+ *
+ * An assigned call can be handed over to another car. The status thread marks the assigned calls
+ * near a car that moved or stopped as dirty, and only the dirty calls are re-evaluated, never the
+ * whole registry.
+ *
+ * The calls are kept in primitive arrays indexed by floor * 2 + direction ordinal, grown to the
+ * highest floor pressed, and the pending and dirty calls in lists of those indexes in the order
+ * they were first pressed or marked. The registry is shared by the dispatch and status threads and
+ * synchronized.
+ */
+public class HallCallRegistry {
+
+	/**
+	 * Receives the assigned calls, see forEachAssigned
+	 */
+	public interface AssignedCallConsumer {
+		void accept(int elevatorNumber, long time, int call);
+	}
+
+	private static final int INITIAL_FLOORS = 64;
+	private static final int MAX_CARRIED = 64; // Destinations Kept Per Car, The Oldest Dropped First
+	private static final byte SERVED = (byte) HallCallState.SERVED.ordinal();
+	private static final byte PENDING = (byte) HallCallState.PENDING.ordinal();
+	private static final byte ASSIGNED = (byte) HallCallState.ASSIGNED.ordinal();
+	private static final HallCallState[] STATES = HallCallState.values();
+
+	private byte[] states;
+	private long[] times;
+	private int[] calls;
+	private int[] cars;
+	private int[] presses;
+	private int[][] destinations;
+	private int[] destinationCounts;
+	private int[] sentCounts;
+	private boolean[] unsent;
+	private int[] unsentKeys;
+	private int unsentSize;
+	private int[] pending;
+	private int pendingSize;
+	private boolean[] dirty;
+	private int[] dirtyKeys;
+	private int dirtySize;
+	private CallBuffer[] carried;
+	private long totalReassignments;
+	private long totalPresses;
+	private long totalCalls;
+
+	/**
+	 * The constructor of an empty registry
+	 */
+	public HallCallRegistry() {
+		states = new byte[INITIAL_FLOORS * 2];
+		times = new long[INITIAL_FLOORS * 2];
+		calls = new int[INITIAL_FLOORS * 2];
+		cars = new int[INITIAL_FLOORS * 2];
+		presses = new int[INITIAL_FLOORS * 2];
+		destinations = new int[INITIAL_FLOORS * 2][];
+		destinationCounts = new int[INITIAL_FLOORS * 2];
+		sentCounts = new int[INITIAL_FLOORS * 2];
+		unsent = new boolean[INITIAL_FLOORS * 2];
+		unsentKeys = new int[INITIAL_FLOORS];
+		pending = new int[INITIAL_FLOORS];
+		dirty = new boolean[INITIAL_FLOORS * 2];
+		dirtyKeys = new int[INITIAL_FLOORS];
+		carried = new CallBuffer[16];
+	}
+
+	/**
+	 * Registers a press of a call button
+	 *
+	 * @param time, The time of the press in milliseconds
+	 * @param call, The packed request (see HallCall)
+	 * @return True if the press started a new pending call, false if it was merged into a call
+	 * already waiting at the floor in the direction. A new destination merged into an assigned call
+	 * is queued for its car, see drainUnsent
+	 */
+	public synchronized boolean press(long time, int call) {
+		int key = key(HallCall.startFloor(call), HallCall.directionOrdinal(call));
+		if (key >= states.length) {
+			grow(key);
+		}
+		totalPresses++;
+		presses[key]++;
+		if (states[key] == SERVED) {
+			states[key] = PENDING;
+			times[key] = time;
+			calls[key] = call;
+			presses[key] = 1;
+			destinationCounts[key] = 0;
+			sentCounts[key] = 0;
+			addDestination(key, HallCall.endFloor(call));
+			if (pendingSize == pending.length) {
+				pending = Arrays.copyOf(pending, pendingSize * 2);
+			}
+			pending[pendingSize++] = key;
+			totalCalls++;
+			return true;
+		}
+		// An Assigned Call Keeps The Time And Floors It Was Sent With, So It Can Be Cancelled At Its Car
+		if (states[key] == PENDING) {
+			times[key] = Math.min(times[key], time);
+			if (farther(call, calls[key])) {
+				calls[key] = call;
+			}
+		}
+		if (addDestination(key, HallCall.endFloor(call)) && states[key] == ASSIGNED && !unsent[key]) {
+			unsent[key] = true;
+			if (unsentSize == unsentKeys.length) {
+				unsentKeys = Arrays.copyOf(unsentKeys, unsentSize * 2);
+			}
+			unsentKeys[unsentSize++] = key;
+		}
+		return false;
+	}
+
+	/**
+	 * Copies the pending calls, oldest first, for a dispatch cycle
+	 *
+	 * @param out, The buffer the time of the first press and the packed call of every pending call
+	 * are appended to
+	 * @return count, The number of pending calls
+	 */
+	public synchronized int pending(CallBuffer out) {
+		for (int i = 0; i < pendingSize; i++) {
+			out.add(times[pending[i]], calls[pending[i]]);
+		}
+		return pendingSize;
+	}
+
+	/**
+	 * Marks a pending call as assigned to a car
+	 *
+	 * @param call, The packed call, as returned by pending
+	 * @param elevatorNumber, The car sent to the floor
+	 * @return True if the call was pending
+	 */
+	public synchronized boolean assign(int call, int elevatorNumber) {
+		int key = key(HallCall.startFloor(call), HallCall.directionOrdinal(call));
+		if (key >= states.length || states[key] != PENDING) {
+			return false;
+		}
+		states[key] = ASSIGNED;
+		cars[key] = elevatorNumber;
+		sentCounts[key] = destinationCounts[key];
+		for (int i = 0; i < pendingSize; i++) {
+			if (pending[i] == key) {
+				System.arraycopy(pending, i + 1, pending, i, pendingSize - i - 1);
+				pendingSize--;
+				break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the commands a call is sent to its car with, one per distinct destination pressed, in
+	 * the order they were first pressed
+	 *
+	 * @param call, The packed call, as returned by pending or drainDirty
+	 * @param out, The buffer the time of the call and the call to every destination are appended to
+	 * @return count, The number of destinations, 0 if the call is served
+	 */
+	public synchronized int destinations(int call, CallBuffer out) {
+		int floor = HallCall.startFloor(call);
+		int direction = HallCall.directionOrdinal(call);
+		int key = key(floor, direction);
+		if (key >= states.length || states[key] == SERVED) {
+			return 0;
+		}
+		for (int i = 0; i < destinationCounts[key]; i++) {
+			out.add(times[key], HallCall.pack(floor, destinations[key][i], direction));
+		}
+		return destinationCounts[key];
+	}
+
+	/**
+	 * Takes the destinations pressed on assigned calls since their car was sent, clearing them
+	 *
+	 * @param out, The buffer the time of the call and the call to every new destination are
+	 * appended to, the car is the assigned car of the call
+	 * @return count, The number of commands appended
+	 */
+	public synchronized int drainUnsent(CallBuffer out) {
+		int count = 0;
+		for (int i = 0; i < unsentSize; i++) {
+			int key = unsentKeys[i];
+			unsent[key] = false;
+			if (states[key] != ASSIGNED) {
+				continue;
+			}
+			for (int d = sentCounts[key]; d < destinationCounts[key]; d++) {
+				out.add(times[key], HallCall.pack(key >> 1, destinations[key][d], key & 1));
+				count++;
+			}
+			sentCounts[key] = destinationCounts[key];
+		}
+		unsentSize = 0;
+		return count;
+	}
+
+	/**
+	 * Marks the calls a car was assigned at a floor as served, called when the car opens or
+	 * closes its doors there. The passengers the car carries to the floor get off, then the
+	 * passengers of the served calls board with their destinations
+	 *
+	 * @param floor, The floor the car is at
+	 * @param elevatorNumber, The number of the car
+	 * @return count, The number of calls served
+	 */
+	public synchronized int served(int floor, int elevatorNumber) {
+		CallBuffer onboard = carried(elevatorNumber);
+		int kept = 0;
+		for (int i = 0; i < onboard.size(); i++) {
+			if (HallCall.endFloor(onboard.getCall(i)) != floor) {
+				onboard.set(kept++, onboard.getTime(i), onboard.getCall(i));
+			}
+		}
+		onboard.truncate(kept);
+		int served = 0;
+		for (int direction = 0; direction < 2; direction++) {
+			int key = key(floor, direction);
+			if (key < states.length && states[key] == ASSIGNED && cars[key] == elevatorNumber) {
+				states[key] = SERVED;
+				served++;
+				for (int d = 0; d < destinationCounts[key]; d++) {
+					if (onboard.size() == MAX_CARRIED) {
+						onboard.remove(onboard.getTime(0), onboard.getCall(0));
+					}
+					onboard.add(times[key], HallCall.pack(floor, destinations[key][d], direction));
+				}
+			}
+		}
+		return served;
+	}
+
+	/**
+	 * Marks the assigned calls near a floor as dirty, called when a car moved or stopped there
+	 *
+	 * @param floor, The floor of the car
+	 * @param radius, The floors above and below it whose calls are marked
+	 * @return count, The number of dirty calls
+	 */
+	public synchronized int markNear(int floor, int radius) {
+		int first = key(Math.max(0, floor - radius), 0);
+		int last = Math.min(states.length - 1, key(floor + radius, 1));
+		for (int key = first; key <= last; key++) {
+			if (states[key] == ASSIGNED && !dirty[key]) {
+				dirty[key] = true;
+				if (dirtySize == dirtyKeys.length) {
+					dirtyKeys = Arrays.copyOf(dirtyKeys, dirtySize * 2);
+				}
+				dirtyKeys[dirtySize++] = key;
+			}
+		}
+		return dirtySize;
+	}
+
+	/**
+	 * Takes the dirty calls that are still assigned, clearing the dirty set
+	 *
+	 * @param out, The buffer the time and packed call of every dirty call are appended to, as the
+	 * call was sent to its car
+	 * @return count, The number of calls appended
+	 */
+	public synchronized int drainDirty(CallBuffer out) {
+		int count = 0;
+		for (int i = 0; i < dirtySize; i++) {
+			int key = dirtyKeys[i];
+			dirty[key] = false;
+			if (states[key] == ASSIGNED) {
+				out.add(times[key], calls[key]);
+				count++;
+			}
+		}
+		dirtySize = 0;
+		return count;
+	}
+
+	/**
+	 * Hands an assigned call over to another car
+	 *
+	 * @param call, The packed call
+	 * @param from, The car the call is assigned to
+	 * @param to, The car taking the call
+	 * @return True if the call was assigned to the first car
+	 */
+	public synchronized boolean reassign(int call, int from, int to) {
+		int key = key(HallCall.startFloor(call), HallCall.directionOrdinal(call));
+		if (key >= states.length || states[key] != ASSIGNED || cars[key] != from) {
+			return false;
+		}
+		cars[key] = to;
+		totalReassignments++;
+		return true;
+	}
+
+	/**
+	 * Hands every assigned call and its car to a consumer, in floor order, holding the registry lock.
+	 * A call is handed over once per destination, as the commands of its car
+	 *
+	 * @param consumer, The consumer of the calls
+	 */
+	public synchronized void forEachAssigned(AssignedCallConsumer consumer) {
+		for (int key = 0; key < states.length; key++) {
+			if (states[key] == ASSIGNED) {
+				for (int d = 0; d < destinationCounts[key]; d++) {
+					consumer.accept(cars[key], times[key], HallCall.pack(key >> 1, destinations[key][d], key & 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Hands the passengers every car picked up and has not dropped off yet to a consumer, holding the
+	 * registry lock. The call of a passenger goes from the floor it boarded at to its destination
+	 *
+	 * @param consumer, The consumer of the calls
+	 */
+	public synchronized void forEachCarried(AssignedCallConsumer consumer) {
+		for (int car = 0; car < carried.length; car++) {
+			CallBuffer onboard = carried[car];
+			for (int i = 0; onboard != null && i < onboard.size(); i++) {
+				consumer.accept(car, onboard.getTime(i), onboard.getCall(i));
+			}
+		}
+	}
+
+	/**
+	 * @param elevatorNumber, The number of the car
+	 * @return busy, True if the car is assigned a call or carries passengers to a destination
+	 */
+	public synchronized boolean busy(int elevatorNumber) {
+		CallBuffer onboard = elevatorNumber < carried.length ? carried[elevatorNumber] : null;
+		if (onboard != null && onboard.size() > 0) {
+			return true;
+		}
+		for (int key = 0; key < states.length; key++) {
+			if (states[key] == ASSIGNED && cars[key] == elevatorNumber) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param floor, The floor of the call
+	 * @param direction, The ordinal of the direction of the call
+	 * @return state, The state of the call
+	 */
+	public synchronized HallCallState state(int floor, int direction) {
+		int key = key(floor, direction);
+		return key < states.length ? STATES[states[key]] : HallCallState.SERVED;
+	}
+
+	/**
+	 * @param floor, The floor of the call
+	 * @param direction, The ordinal of the direction of the call
+	 * @return time, The time of the first press of the last call in milliseconds
+	 */
+	public synchronized long time(int floor, int direction) {
+		int key = key(floor, direction);
+		return key < states.length ? times[key] : 0;
+	}
+
+	/**
+	 * @param floor, The floor of the call
+	 * @param direction, The ordinal of the direction of the call
+	 * @return call, The packed last call, 0 if the button was never pressed
+	 */
+	public synchronized int call(int floor, int direction) {
+		int key = key(floor, direction);
+		return key < states.length ? calls[key] : 0;
+	}
+
+	/**
+	 * @param floor, The floor of the call
+	 * @param direction, The ordinal of the direction of the call
+	 * @return presses, The presses merged into the last call
+	 */
+	public synchronized int presses(int floor, int direction) {
+		int key = key(floor, direction);
+		return key < states.length ? presses[key] : 0;
+	}
+
+	/**
+	 * @param floor, The floor of the call
+	 * @param direction, The ordinal of the direction of the call
+	 * @return elevatorNumber, The car assigned to the last call, -1 if it was never assigned
+	 */
+	public synchronized int assignedCar(int floor, int direction) {
+		int key = key(floor, direction);
+		return key < states.length && states[key] != PENDING && presses[key] > 0 ? cars[key] : -1;
+	}
+
+	/**
+	 * @return count, The number of calls waiting for a car
+	 */
+	public synchronized int pendingCount() {
+		return pendingSize;
+	}
+
+	/**
+	 * @return count, The number of dirty calls waiting to be re-evaluated
+	 */
+	public synchronized int dirtyCount() {
+		return dirtySize;
+	}
+
+	/**
+	 * @return reassignments, The number of calls handed over to another car
+	 */
+	public synchronized long totalReassignments() {
+		return totalReassignments;
+	}
+
+	/**
+	 * @return presses, The number of button presses registered
+	 */
+	public synchronized long totalPresses() {
+		return totalPresses;
+	}
+
+	/**
+	 * @return calls, The number of distinct calls the presses were merged into
+	 */
+	public synchronized long totalCalls() {
+		return totalCalls;
+	}
+
+	/**
+	 * Adds a destination to a call unless it already has it
+	 *
+	 * @return True if the destination is new
+	 */
+	private boolean addDestination(int key, int floor) {
+		int count = destinationCounts[key];
+		int[] floors = destinations[key];
+		for (int i = 0; i < count; i++) {
+			if (floors[i] == floor) {
+				return false;
+			}
+		}
+		if (floors == null) {
+			floors = destinations[key] = new int[2];
+		} else if (count == floors.length) {
+			floors = destinations[key] = Arrays.copyOf(floors, count * 2);
+		}
+		floors[count] = floor;
+		destinationCounts[key] = count + 1;
+		return true;
+	}
+
+	/**
+	 * True if a call reaches farther in its direction than another call from the same floor
+	 */
+	private static boolean farther(int call, int than) {
+		if (HallCall.directionOrdinal(call) == Direction.UP.ordinal()) {
+			return HallCall.endFloor(call) > HallCall.endFloor(than);
+		}
+		return HallCall.endFloor(call) < HallCall.endFloor(than);
+	}
+
+	private void grow(int key) {
+		int length = states.length;
+		while (length <= key) {
+			length *= 2;
+		}
+		states = Arrays.copyOf(states, length);
+		times = Arrays.copyOf(times, length);
+		calls = Arrays.copyOf(calls, length);
+		cars = Arrays.copyOf(cars, length);
+		presses = Arrays.copyOf(presses, length);
+		destinations = Arrays.copyOf(destinations, length);
+		destinationCounts = Arrays.copyOf(destinationCounts, length);
+		sentCounts = Arrays.copyOf(sentCounts, length);
+		unsent = Arrays.copyOf(unsent, length);
+		dirty = Arrays.copyOf(dirty, length);
+	}
+
+	/**
+	 * The passengers a car carries, created on its first stop
+	 */
+	private CallBuffer carried(int elevatorNumber) {
+		if (elevatorNumber >= carried.length) {
+			carried = Arrays.copyOf(carried, Math.max(elevatorNumber + 1, carried.length * 2));
+		}
+		if (carried[elevatorNumber] == null) {
+			carried[elevatorNumber] = new CallBuffer();
+		}
+		return carried[elevatorNumber];
+	}
+
+	private static int key(int floor, int direction) {
+		return floor << 1 | direction & 1;
+	}
+}
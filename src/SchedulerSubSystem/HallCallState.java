@@ -0,0 +1,14 @@
+package SchedulerSubSystem;
+
+/**
+ * The states of a hall call in the HallCallRegistry
+ *
+ * SERVED: No call is waiting at the floor in the direction, the last one (if any) was served
+ * PENDING: The call button was pressed and no car has been assigned yet
+ * ASSIGNED: A car was sent to the floor and has not reached it yet
+ */
+public enum HallCallState {
+	SERVED,
+	PENDING,
+	ASSIGNED
+}
@@ -0,0 +1,313 @@
+package SchedulerSubSystem;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import ElevatorSubSystem.Elevator;
+import ElevatorSubSystem.ElevatorMotor;
+import Util.HallCall;
+
+/**
+ * The look-ahead dispatch policy: for a new call every candidate car of the dispatch engine is
+ * simulated forward over its remaining route, the passengers it carries and the calls assigned to
+ * it and not served yet, once without and once with the new call, and the call goes to the car
+ * whose predicted total wait and journey time grows the least. The simulations of the candidates
+ * run in parallel on a fork/join pool using every core.
+ *
+ * A car is simulated as the cars of a building run: it keeps its direction while it has stops
+ * ahead, stops at the nearest one, picks up and drops off every passenger of that floor and
+ * reverses when no stop is left ahead. Travel takes Elevator.ELEVATOR_MOVING_TIME per floor and a
+ * stop three door delays (doors opening, boarding, doors closing). The time of a call is the time
+ * its passengers reach their destination, so it counts both the wait and the journey.
+ *
+ * When the simulations do not finish within the latency budget the call is assigned with the
+ * ETA heuristic of the dispatch engine instead. The policy is chosen with the
+ * scheduler.dispatch.policy system property (lookahead) and the budget set with
+ * scheduler.lookahead.budget in milliseconds (default 10).
+ */
+public class LookAheadDispatcher {
+
+	/** The latency budget of one assignment */
+	public static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("scheduler.lookahead.budget", 10));
+
+	/** The most calls of a car simulated, the carried passengers first */
+	public static final int HORIZON = 32;
+
+	/** Seconds a stop takes, the doors opening, boarding and the doors closing */
+	public static final int STOP_TIME = 3 * Elevator.DOOR_OPENING_CLOSING_DELAY;
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The simulation of one candidate car, its result is the extra time the new call costs
+	 */
+	private static class Simulation extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		private final long status;
+		private final int[] route;
+		private final int carried;
+		private final int length;
+		private final int call;
+
+		private Simulation(long status, int[] route, int carried, int length, int call) {
+			this.status = status;
+			this.route = route;
+			this.carried = carried;
+			this.length = length;
+			this.call = call;
+		}
+
+		@Override
+		protected Long compute() {
+			int floor = FleetTable.floor(status);
+			int motor = FleetTable.motor(status);
+			int[] withCall = Arrays.copyOf(route, length + 1);
+			withCall[length] = call;
+			return routeTime(floor, motor, withCall, carried, length + 1) - routeTime(floor, motor, route, carried, length);
+		}
+	}
+
+	/**
+	 * Forks the simulations of every candidate and picks the cheapest
+	 */
+	private static class LookAhead extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+
+		private final Simulation[] simulations;
+
+		private LookAhead(Simulation[] simulations) {
+			this.simulations = simulations;
+		}
+
+		@Override
+		protected Integer compute() {
+			invokeAll(simulations);
+			int best = -1;
+			long bestCost = Long.MAX_VALUE;
+			for (int i = 0; i < simulations.length; i++) {
+				long cost = simulations[i].join();
+				if (cost < bestCost) {
+					bestCost = cost;
+					best = i;
+				}
+			}
+			return best;
+		}
+	}
+
+	private final FleetTable fleet;
+	private final DispatchEngine engine;
+	private final HallCallRegistry hallCalls;
+	private final long budgetNanos;
+	private int[] candidates = new int[6 * DispatchEngine.CANDIDATES];
+	private long fallbacks;
+
+	/**
+	 * The constructor of the policy with the default budget
+	 *
+	 * @param fleet, The fleet table the statuses of the cars are read from
+	 * @param engine, The engine the candidate cars and the fallback are taken from
+	 * @param hallCalls, The registry the routes of the cars are taken from
+	 */
+	public LookAheadDispatcher(FleetTable fleet, DispatchEngine engine, HallCallRegistry hallCalls) {
+		this(fleet, engine, hallCalls, BUDGET_NANOS);
+	}
+
+	/**
+	 * The constructor of the policy
+	 *
+	 * @param fleet, The fleet table the statuses of the cars are read from
+	 * @param engine, The engine the candidate cars and the fallback are taken from
+	 * @param hallCalls, The registry the routes of the cars are taken from
+	 * @param budgetNanos, The latency budget of one assignment in nanoseconds
+	 */
+	public LookAheadDispatcher(FleetTable fleet, DispatchEngine engine, HallCallRegistry hallCalls, long budgetNanos) {
+		this.fleet = fleet;
+		this.engine = engine;
+		this.hallCalls = hallCalls;
+		this.budgetNanos = budgetNanos;
+	}
+
+	/**
+	 * Picks the car a call adds the least predicted wait and journey time to, only used by one
+	 * thread at a time
+	 *
+	 * @param call, The packed call (see HallCall)
+	 * @return elevatorNumber, The car, -1 if no car reported
+	 */
+	public int select(int call) {
+		long deadline = System.nanoTime() + budgetNanos;
+		int floor = HallCall.startFloor(call);
+		int direction = HallCall.directionOrdinal(call);
+		int count = distinctCandidates(floor);
+		if (count <= 1) {
+			return count == 0 ? -1 : candidates[0];
+		}
+
+		// The Remaining Route Of Every Candidate, The Passengers On Board First, Then The Assigned Calls
+		int[] cars = Arrays.copyOf(candidates, count);
+		int[][] routes = new int[count][HORIZON];
+		int[] lengths = new int[count];
+		HallCallRegistry.AssignedCallConsumer addToRoute = (elevatorNumber, time, assigned) -> {
+			int car = Arrays.binarySearch(cars, elevatorNumber);
+			if (car >= 0 && lengths[car] < HORIZON) {
+				routes[car][lengths[car]++] = assigned;
+			}
+		};
+		hallCalls.forEachCarried(addToRoute);
+		int[] carried = Arrays.copyOf(lengths, count);
+		hallCalls.forEachAssigned(addToRoute);
+		Simulation[] simulations = new Simulation[count];
+		for (int car = 0; car < count; car++) {
+			simulations[car] = new Simulation(fleet.get(cars[car]), routes[car], carried[car], lengths[car], call);
+		}
+
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0) {
+			fallbacks++;
+			return engine.select(floor, direction);
+		}
+		ForkJoinTask<Integer> lookAhead = POOL.submit(new LookAhead(simulations));
+		try {
+			int best = lookAhead.get(remaining, TimeUnit.NANOSECONDS);
+			return best < 0 ? engine.select(floor, direction) : cars[best];
+		} catch (TimeoutException e) {
+			lookAhead.cancel(true);
+		} catch (InterruptedException | ExecutionException e) {
+			e.printStackTrace();
+		}
+		fallbacks++;
+		return engine.select(floor, direction);
+	}
+
+	/**
+	 * @return fallbacks, The number of calls assigned with the ETA heuristic because the budget ran out
+	 */
+	public long fallbacks() {
+		return fallbacks;
+	}
+
+	/**
+	 * Collects the distinct candidate cars of a call that reported a status, in number order
+	 */
+	private int distinctCandidates(int floor) {
+		int count = engine.candidates(floor, candidates, 0);
+		Arrays.sort(candidates, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if ((distinct == 0 || candidates[distinct - 1] != candidates[i])
+					&& FleetTable.isPresent(fleet.get(candidates[i]))) {
+				candidates[distinct++] = candidates[i];
+			}
+		}
+		return distinct;
+	}
+
+	/**
+	 * Simulates a car over a route and returns the total time its passengers reach their destinations
+	 *
+	 * @param floor, The floor the car is at
+	 * @param motor, The ordinal of the ElevatorMotor of the car
+	 * @param route, The packed calls of the route, every call a pickup at its start floor and a drop
+	 * off at its end floor
+	 * @param length, The number of calls of the route
+	 * @return time, The sum over the calls of the seconds until their passengers are dropped off
+	 */
+	public static long routeTime(int floor, int motor, int[] route, int length) {
+		return routeTime(floor, motor, route, 0, length);
+	}
+
+	/**
+	 * Simulates a car over a route whose first calls are already on board
+	 *
+	 * @param floor, The floor the car is at
+	 * @param motor, The ordinal of the ElevatorMotor of the car
+	 * @param route, The packed calls of the route, the carried calls first
+	 * @param carried, The number of calls at the start of the route already picked up, only dropped off
+	 * @param length, The number of calls of the route
+	 * @return time, The sum over the calls of the seconds until their passengers are dropped off
+	 */
+	public static long routeTime(int floor, int motor, int[] route, int carried, int length) {
+		boolean[] picked = new boolean[length];
+		Arrays.fill(picked, 0, carried, true);
+		boolean[] done = new boolean[length];
+		int remaining = length;
+		int heading = motor == ElevatorMotor.UPWARD.ordinal() ? 1 : motor == ElevatorMotor.DOWNWARD.ordinal() ? -1 : 0;
+		long clock = 0;
+		long total = 0;
+		while (remaining > 0) {
+			int target = nextStop(floor, heading, route, length, picked, done);
+			if (target < 0) {
+				heading = -heading; // No Stop Left Ahead, The Car Reverses
+				target = nextStop(floor, heading, route, length, picked, done);
+			}
+			if (target < 0 || heading == 0) {
+				target = nearestStop(floor, route, length, picked, done);
+				heading = Integer.signum(target - floor);
+			}
+			clock += (long) Math.abs(target - floor) * Elevator.ELEVATOR_MOVING_TIME + STOP_TIME;
+			floor = target;
+			for (int i = 0; i < length; i++) {
+				if (!picked[i] && HallCall.startFloor(route[i]) == floor) {
+					picked[i] = true;
+				}
+			}
+			for (int i = 0; i < length; i++) {
+				if (picked[i] && !done[i] && HallCall.endFloor(route[i]) == floor) {
+					done[i] = true;
+					remaining--;
+					total += clock;
+				}
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * The nearest floor with a stop at or ahead of the car in its heading, -1 if there is none
+	 */
+	private static int nextStop(int floor, int heading, int[] route, int length, boolean[] picked, boolean[] done) {
+		if (heading == 0) {
+			return -1;
+		}
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < length; i++) {
+			if (done[i]) {
+				continue;
+			}
+			int stop = picked[i] ? HallCall.endFloor(route[i]) : HallCall.startFloor(route[i]);
+			int distance = (stop - floor) * heading;
+			if (distance >= 0 && distance < bestDistance) {
+				bestDistance = distance;
+				best = stop;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The nearest floor with a stop in either direction
+	 */
+	private static int nearestStop(int floor, int[] route, int length, boolean[] picked, boolean[] done) {
+		int best = floor;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i = 0; i < length; i++) {
+			if (done[i]) {
+				continue;
+			}
+			int stop = picked[i] ? HallCall.endFloor(route[i]) : HallCall.startFloor(route[i]);
+			if (Math.abs(stop - floor) < bestDistance) {
+				bestDistance = Math.abs(stop - floor);
+				best = stop;
+			}
+		}
+		return best;
+	}
+}
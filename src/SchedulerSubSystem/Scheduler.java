@@ -1,9 +1,15 @@
 package SchedulerSubSystem;
 
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
+import java.io.IOException;
+import java.net.SocketAddress;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The main class for the scheduler. This class is used as an middle man to 
@@ -13,44 +19,137 @@ import java.util.*;
  * @author Boyan Siromahov
  */
 
+import ElevatorSubSystem.ElevatorDoor;
 import ElevatorSubSystem.ElevatorMotor;
 import ElevatorSubSystem.ElevatorState;
+import Util.CallBuffer;
 import Util.CallEvent;
+import Util.HallCall;
+import Util.MessageCodec;
+import Util.Transport;
 
 public class Scheduler {
 	
-	
+	/** The dispatch cycle in milliseconds, 0 assigns every request as it arrives */
+	public static final long DISPATCH_WINDOW = Long.getLong("scheduler.dispatch.window", 0);
+
+	/**
+	 * The policy calls are assigned with: eta (see DispatchEngine), lookahead (see LookAheadDispatcher)
+	 * or destination (see DestinationDispatcher)
+	 */
+	public static final String DISPATCH_POLICY = System.getProperty("scheduler.dispatch.policy", "eta");
+
+	/** True in the destination dispatch mode, where every call is assigned at once and acknowledged with its car */
+	public static final boolean DESTINATION_DISPATCH = "destination".equalsIgnoreCase(DISPATCH_POLICY);
+
+	/** The seconds a car has to beat the assigned car by to take over its call, negative never hands calls over */
+	public static final int REASSIGN_HYSTERESIS = Integer.getInteger("scheduler.reassign.hysteresis", 8);
+
+	/** The floors around a car that moved or stopped whose assigned calls are re-evaluated */
+	public static final int REASSIGN_RADIUS = Integer.getInteger("scheduler.reassign.radius", 4);
+
+	/** The milliseconds a hand over waits for the old car to confirm its CANCEL frames before sending them again */
+	public static final long CANCEL_TIMEOUT = Long.getLong("scheduler.cancel.timeout", 1000);
+
+	/**
+	 * A hall call being handed over, waiting for the old car to confirm it withdrew every command of the call
+	 */
+	private static class Handover {
+		private final int call;
+		private final int from;
+		private final int to;
+		private final CallBuffer commands;
+		private final boolean[] answered;
+		private final boolean[] withdrawn;
+		private final CallBuffer late;
+		private int answers;
+		private boolean refused;
+		private long sentAt;
+
+		private Handover(int call, int from, int to, CallBuffer commands) {
+			this.call = call;
+			this.from = from;
+			this.to = to;
+			this.commands = new CallBuffer();
+			for (int c = 0; c < commands.size(); c++) {
+				this.commands.add(commands.getTime(c), commands.getCall(c));
+			}
+			this.answered = new boolean[commands.size()];
+			this.withdrawn = new boolean[commands.size()];
+			this.late = new CallBuffer();
+		}
+	}
+
+	/**
+	 * The reply of a car to a CANCEL frame, queued by the status thread for the dispatch thread
+	 */
+	private static class CancelReply {
+		private final int elevatorNumber;
+		private final long time;
+		private final int call;
+		private final boolean withdrawn;
+
+		private CancelReply(int elevatorNumber, long time, int call, boolean withdrawn) {
+			this.elevatorNumber = elevatorNumber;
+			this.time = time;
+			this.call = call;
+			this.withdrawn = withdrawn;
+		}
+	}
+
 	private int arrivedFloor;
-	private List<CallEvent> eventQ;
-	private Map<Integer, int[]> elevators;
+	private HallCallRegistry hallCalls;
+	private CallBuffer cycle;
+	private int[] cycleCars;
+	private CallBuffer dirty;
+	private CallBuffer commands;
+	private BatchAssigner batch;
+	private LookAheadDispatcher lookAhead;
+	private DestinationDispatcher destinations;
+	private CallBuffer held;
+	private Transport.Endpoint[] heldEndpoints;
+	private SocketAddress[] heldSources;
+	private volatile ScheduledExecutorService cycleTimer;
+	private AtomicBoolean reassignQueued;
+	private AtomicBoolean retryWaiting;
+	private Map<Integer, Handover> handovers;
+	private Queue<CancelReply> cancelReplies;
+	private FleetTable fleet;
+	private DispatchEngine dispatch;
 	private EventHandler eventHandler;
 	private SchedulerState ss;
 	
-	public Scheduler() {
-		arrivedFloor = 0;
-		eventQ = Collections.synchronizedList(new LinkedList<CallEvent>());
-		elevators = Collections.synchronizedMap(new HashMap<Integer, int[]>());
-		eventHandler = new EventHandler(this, eventQ);
-		ss = SchedulerState.IDLE;
+	public Scheduler() throws IOException {
+		this(Transport.create("Scheduler_Communication_Link"));
 	}
 
-	/***
-	 * This function is used to forward the elevator request to the elevator from
-	 * the floor
+	/**
+	 * Creates a scheduler serving its floor and elevator ports on the given transport
+	 *
+	 * @param transport - the transport shared by the scheduler ports
 	 */
-	public synchronized CallEvent getEvent() {
-		while (ss != SchedulerState.E_REQUESTED) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
-		notifyAll();
-		
-		ss = SchedulerState.E_MOVING;
-		//System.out.println("Scheduler sending event to elevator:\n" + eventQ.peek());
-		return (CallEvent) eventQ.remove(0);
+	public Scheduler(Transport transport) throws IOException {
+		arrivedFloor = 0;
+		hallCalls = new HallCallRegistry();
+		cycle = new CallBuffer();
+		fleet = new FleetTable();
+		dispatch = new DispatchEngine(fleet);
+		batch = new BatchAssigner(dispatch);
+		cycleCars = new int[16];
+		dirty = new CallBuffer();
+		commands = new CallBuffer();
+		lookAhead = "lookahead".equalsIgnoreCase(DISPATCH_POLICY)
+				? new LookAheadDispatcher(fleet, dispatch, hallCalls) : null;
+		destinations = DESTINATION_DISPATCH ? new DestinationDispatcher(fleet, dispatch) : null;
+		held = new CallBuffer();
+		heldEndpoints = new Transport.Endpoint[16];
+		heldSources = new SocketAddress[16];
+		reassignQueued = new AtomicBoolean();
+		retryWaiting = new AtomicBoolean();
+		handovers = new HashMap<Integer, Handover>(); // Guarded By The Scheduler Lock
+		cancelReplies = new ConcurrentLinkedQueue<CancelReply>();
+		eventHandler = new EventHandler(this, transport);
+		ss = SchedulerState.IDLE;
 	}
 
 	/***
@@ -83,91 +182,524 @@ public class Scheduler {
 	}
 
 	/***
-	 * This function is used to notify the scheduler to flip the boarded flag to
-	 * true which will then allow the elevator to move
+	 * This function is used to dispatch the floor requests received by the event handler
+	 * to the best suited elevator
+	 *
+	 * @param requests - the decoded floor requests, in the order they were sent
 	 */
-	public synchronized void elevatorRequest() throws UnknownHostException {
-	    // Associated Values
-        // [0] -> Elevator Port Number
-        // [1] -> The Current State of the Elevator
-        // [2] -> The Current Floor Level of the Elevator
-        // [3] -> The Current Direction of the Elevator Motor
-		CallEvent c = eventHandler.receiveFloorRequest();
-		eventQ.add(c);
-        int bestElevator = 1;
-
-        if(!elevators.isEmpty())
-        {
-            for (Map.Entry<Integer, int[]> pair : elevators.entrySet())
-            {
-                if(pair.getValue()[3] == ElevatorMotor.UPWARD.ordinal() && pair.getValue()[2] <=eventQ.get(0).getStartFloor())
-                {
-                    if(elevators.get(bestElevator)[2] - eventQ.get(0).getStartFloor() > pair.getValue()[2] - eventQ.get(0).getStartFloor())
-                    {
-                        bestElevator = pair.getKey();
-                    }
-                }
-                else if(pair.getValue()[3] == ElevatorMotor.DOWNWARD.ordinal() && pair.getValue()[2] >=eventQ.get(0).getStartFloor())
-                {
-                    if(elevators.get(bestElevator)[3] - eventQ.get(0).getStartFloor() >= pair.getValue()[2] - eventQ.get(0).getStartFloor())
-                    {
-                        bestElevator = pair.getKey();
-                    }
-                }
-                else //IDLE
-                {
-                    if(elevators.get(bestElevator)[2] - eventQ.get(0).getStartFloor() > pair.getValue()[2] - eventQ.get(0).getStartFloor())
-                    {
-                        bestElevator = pair.getKey();
-                    }
-                }
-            }
+	public void elevatorRequest(List<CallEvent> requests) {
+		CallBuffer calls = new CallBuffer(requests.size());
+		for (CallEvent c : requests) {
+			calls.add(c);
+		}
+		elevatorRequest(calls);
+	}
 
-            eventHandler.sendElevatorRequest(eventQ.get(0), elevators.get(bestElevator)[0]);
-            eventQ.clear(); //Clear The Request After The Command Has Been Executed
+	/***
+	 * This function is used to dispatch the floor requests received by the event handler
+	 * to the best suited elevator, in their primitive form. The requests are registered as
+	 * hall calls first, presses on a floor and direction that already has a call are merged
+	 * into it (see HallCallRegistry), then every pending call goes to the car picked by the
+	 * dispatch policy, the car with the lowest ETA by default (see DispatchEngine). Calls no
+	 * car can take yet, because no elevator has reported its status or the elevator is not
+	 * registered, stay pending until the next request or until a car registers or goes idle.
+	 * With a dispatch window (the scheduler.dispatch.window system property) the calls only
+	 * wait for the next dispatch cycle, see dispatchCycle
+	 *
+	 * @param requests - the decoded floor requests, in the order they were sent
+	 */
+	public synchronized void elevatorRequest(CallBuffer requests) {
+		elevatorRequest(requests, null, null);
+	}
 
+	/***
+	 * This function is used to dispatch the floor requests received by the event handler,
+	 * see elevatorRequest(CallBuffer). In the destination dispatch mode every request is
+	 * assigned at once, grouped with the requests going to the same or nearby floors (see
+	 * DestinationDispatcher), and the floor is told its car with an ASSIGN frame; requests no
+	 * car can take yet are acknowledged with no car, held, and assigned, oldest first, with the
+	 * next request or once a car registers or goes idle, when the floor that sent them gets a
+	 * second ASSIGN frame naming their car
+	 *
+	 * @param requests - the decoded floor requests, in the order they were sent
+	 * @param endpoint - the port the requests arrived on, the ASSIGN frames are sent from it, may be null
+	 * @param source - the address of the floor that sent the requests
+	 */
+	public synchronized void elevatorRequest(CallBuffer requests, Transport.Endpoint endpoint, SocketAddress source) {
+        if (destinations != null) {
+            dispatchDestinations(requests, endpoint, source);
+            ss = SchedulerState.E_REQUESTED;
+            return;
+        }
+        boolean fresh = false;
+        for (int r = 0; r < requests.size(); r++) {
+            fresh |= hallCalls.press(requests.getTime(r), requests.getCall(r));
+        }
+        sendUnsent();
+        if (hallCalls.dirtyCount() > 0) {
+            reassignDirty();
+        }
+        if (DISPATCH_WINDOW <= 0 && (fresh || hallCalls.pendingCount() > 0)) {
+            dispatchPending(false);
         }
-//		if(!elevators.isEmpty()){
-//
-//            for (Map.Entry<Integer, int[]> pair : elevators.entrySet()) {
-//
-//                if(pair.getValue()[1] == ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST.ordinal() &&
-//                        pair.getValue()[3] == ElevatorMotor.STOP.ordinal()){
-//                    System.out.println("Sending To Port: " + pair.getValue()[0]);
-//                    eventHandler.sendElevatorRequest(eventQ.get(0), pair.getValue()[0]);
-//                }
-//            }
-//        }
 
+		ss = SchedulerState.E_REQUESTED;
+	}
 
+    /**
+     * Assigns the held destination calls, then the new ones, and tells the floors their cars. Destination
+     * calls are never handed over to another car, their passengers were told which car to take
+     *
+     * @param requests - the new calls
+     * @param endpoint - the port the new calls arrived on, may be null
+     * @param source - the address of the floor that sent the new calls
+     */
+	private void dispatchDestinations(CallBuffer requests, Transport.Endpoint endpoint, SocketAddress source) {
+		dispatchHeld();
+		for (int r = 0; r < requests.size(); r++) {
+			long time = requests.getTime(r);
+			int call = requests.getCall(r);
+			int elevatorNumber = sendDestination(time, call);
+			if (elevatorNumber < 0) {
+				hold(time, call, endpoint, source);
+			}
+			eventHandler.sendAssign(endpoint, source, time, call, elevatorNumber);
+		}
+	}
 
-		ss = SchedulerState.E_REQUESTED;
+    /**
+     * Assigns the held destination calls, oldest first, and tells the floors that sent them their cars
+     */
+	private void dispatchHeld() {
+		int kept = 0;
+		for (int h = 0; h < held.size(); h++) {
+			long time = held.getTime(h);
+			int call = held.getCall(h);
+			int elevatorNumber = sendDestination(time, call);
+			if (elevatorNumber >= 0) {
+				eventHandler.sendAssign(heldEndpoints[h], heldSources[h], time, call, elevatorNumber);
+				continue;
+			}
+			held.set(kept, time, call);
+			heldEndpoints[kept] = heldEndpoints[h];
+			heldSources[kept++] = heldSources[h];
+		}
+		Arrays.fill(heldEndpoints, kept, held.size(), null);
+		Arrays.fill(heldSources, kept, held.size(), null);
+		held.truncate(kept);
+	}
+
+    /**
+     * Holds a destination call no car can take yet, with the floor it is acknowledged to once assigned
+     *
+     * @param time - the time of the call in milliseconds
+     * @param call - the packed call (see HallCall)
+     * @param endpoint - the port the call arrived on, may be null
+     * @param source - the address of the floor that sent the call
+     */
+	private void hold(long time, int call, Transport.Endpoint endpoint, SocketAddress source) {
+		int h = held.size();
+		if (h == heldEndpoints.length) {
+			heldEndpoints = Arrays.copyOf(heldEndpoints, h * 2);
+			heldSources = Arrays.copyOf(heldSources, h * 2);
+		}
+		held.add(time, call);
+		heldEndpoints[h] = endpoint;
+		heldSources[h] = source;
+	}
+
+    /**
+     * Sends a destination call to the car of its trip
+     *
+     * @param time - the time of the call in milliseconds
+     * @param call - the packed call (see HallCall)
+     * @return the car the call was sent to, -1 if no car could take it
+     */
+	private int sendDestination(long time, int call) {
+		int elevatorNumber = destinations.select(call);
+		if (elevatorNumber < 0 || !eventHandler.sendElevatorRequest(time, call, elevatorNumber)) {
+			return -1;
+		}
+		notifyAssignment(call, elevatorNumber);
+		destinations.assign(call, elevatorNumber);
+		dispatch.commit(elevatorNumber, 1);
+		return elevatorNumber;
+	}
+
+	/***
+	 * This function is used to run a dispatch cycle: every hall call that came in since the
+	 * last cycle, and every call still pending, is assigned jointly (see BatchAssigner). Runs
+	 * every DISPATCH_WINDOW milliseconds when the window is set
+	 */
+	public synchronized void dispatchCycle() {
+		if (hallCalls.dirtyCount() > 0) {
+			reassignDirty();
+		}
+		if (hallCalls.pendingCount() > 0) {
+			dispatchPending(true);
+		}
+	}
+
+    /**
+     * Sends every pending hall call, oldest first, to the car picked by the dispatch policy. The cars are
+     * found in the per direction floor indexes of the dispatch engine, not by scanning the fleet. Joint
+     * assignment falls back to assigning the calls one at a time when the solver runs out of budget
+     *
+     * @param joint - true to assign the calls jointly
+     */
+	private void dispatchPending(boolean joint) {
+		cycle.clear();
+		hallCalls.pending(cycle);
+		if (joint && cycle.size() > 1) {
+			if (cycleCars.length < cycle.size()) {
+				cycleCars = new int[Math.max(cycle.size(), cycleCars.length * 2)];
+			}
+			if (batch.assign(cycle, cycleCars)) {
+				for (int w = 0; w < cycle.size(); w++) {
+					send(cycle.getTime(w), cycle.getCall(w), cycleCars[w]);
+				}
+				return;
+			}
+		}
+		for (int w = 0; w < cycle.size(); w++) {
+			int call = cycle.getCall(w);
+			send(cycle.getTime(w), call, selectCar(call));
+		}
+	}
+
+    /**
+     * Picks the car of a single call with the configured dispatch policy
+     *
+     * @param call - the packed call (see HallCall)
+     * @return the car, -1 if no car reported
+     */
+	private int selectCar(int call) {
+		if (lookAhead != null) {
+			return lookAhead.select(call);
+		}
+		return dispatch.select(HallCall.startFloor(call), HallCall.directionOrdinal(call));
+	}
+
+    /**
+     * Sends a hall call to its car, one command per destination pressed, and marks it assigned. The car
+     * commits to a stop per command, it opens its doors once at every destination
+     *
+     * @param time - the time of the call in milliseconds
+     * @param call - the packed call (see HallCall)
+     * @param elevatorNumber - the car, -1 leaves the call pending
+     */
+	private void send(long time, int call, int elevatorNumber) {
+		if (elevatorNumber < 0) {
+			return;
+		}
+		commands.clear();
+		if (hallCalls.destinations(call, commands) > 0 && sendCommands(commands, elevatorNumber)) {
+			hallCalls.assign(call, elevatorNumber);
+			notifyAssignment(call, elevatorNumber);
+			dispatch.commit(elevatorNumber, commands.size());
+		}
+	}
+
+    /**
+     * Sends the commands of a call to a car
+     *
+     * @param commands - the commands, one per destination
+     * @param elevatorNumber - the car
+     * @return false if the car is not registered and nothing was sent
+     */
+	private boolean sendCommands(CallBuffer commands, int elevatorNumber) {
+		for (int c = 0; c < commands.size(); c++) {
+			if (!eventHandler.sendElevatorRequest(commands.getTime(c), commands.getCall(c), elevatorNumber)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+    /**
+     * Sends the destinations pressed on assigned hall calls to the cars on their way to them. The
+     * destinations of a call being handed over wait for the hand over to complete or fail
+     */
+	private void sendUnsent() {
+		commands.clear();
+		hallCalls.drainUnsent(commands);
+		for (int c = 0; c < commands.size(); c++) {
+			int call = commands.getCall(c);
+			Handover handover = handovers.get(handoverKey(call));
+			if (handover != null) {
+				handover.late.add(commands.getTime(c), call);
+				continue;
+			}
+			int elevatorNumber = hallCalls.assignedCar(HallCall.startFloor(call), HallCall.directionOrdinal(call));
+			if (eventHandler.sendElevatorRequest(commands.getTime(c), call, elevatorNumber)) {
+				dispatch.commit(elevatorNumber, 1);
+			}
+		}
+	}
+
+    /**
+     * Associated with the event loop, called for every CANCELLED frame: queues the reply of the old car
+     * of a hand over for the dispatch thread, so the status thread never waits for the scheduler lock
+     *
+     * @param elevatorNumber - the car that replied
+     * @param time - the time of the cancelled command in milliseconds
+     * @param call - the packed cancelled command (see HallCall)
+     * @param withdrawn - true if the car withdrew the command, false if it is serving it
+     */
+	public void cancelConfirmed(int elevatorNumber, long time, int call, boolean withdrawn) {
+		cancelReplies.add(new CancelReply(elevatorNumber, time, call, withdrawn));
+		scheduleReassign();
 	}
 
     /**
-     * Associated with the receiving thread that os dedicated to receiving the elevator statuses
+     * Hands the dirty hall calls marked by the status thread to the dispatch cycle thread, which
+     * re-evaluates them under the scheduler lock. The status thread never waits for the lock, so status
+     * ingest does not contend with dispatch; before start the calls are re-evaluated by the next dispatch
      */
-	public void elevatorStatus(){
+	private void scheduleReassign() {
+		ScheduledExecutorService timer = cycleTimer;
+		if (timer != null && reassignQueued.compareAndSet(false, true)) {
+			try {
+				timer.execute(this::reassignDirty);
+			} catch (RejectedExecutionException e) {
+				reassignQueued.set(false); // Shutting Down
+			}
+		}
+	}
+
+    /**
+     * Re-evaluates the dirty hall calls and starts handing a call over to the car with the lowest ETA
+     * when that car beats the assigned car by more than REASSIGN_HYSTERESIS seconds. The old car is sent
+     * a CANCEL frame per command of the call first; the new car only gets the call once the old car
+     * confirmed it withdrew every command, see confirmHandovers. Runs on the dispatch threads only
+     */
+	private synchronized void reassignDirty() {
+		reassignQueued.set(false);
+		confirmHandovers();
+		if (retryWaiting.getAndSet(false)) {
+			retryWaiting();
+		}
+		dirty.clear();
+		hallCalls.drainDirty(dirty);
+		for (int d = 0; d < dirty.size(); d++) {
+			long time = dirty.getTime(d);
+			int call = dirty.getCall(d);
+			int floor = HallCall.startFloor(call);
+			int direction = HallCall.directionOrdinal(call);
+			int oldElevator = hallCalls.assignedCar(floor, direction);
+			int newElevator = dispatch.select(floor, direction);
+			if (oldElevator < 0 || newElevator < 0 || newElevator == oldElevator
+					|| handovers.containsKey(handoverKey(call))) {
+				continue;
+			}
+			// The Stops Committed To The Old Car Include Those Of This Call
+			commands.clear();
+			int stops = hallCalls.destinations(call, commands);
+			int oldEta = dispatch.eta(oldElevator, floor, direction) - stops * DispatchEngine.DOOR_CYCLE_TIME;
+			int newEta = dispatch.eta(newElevator, floor, direction);
+			if (newEta + REASSIGN_HYSTERESIS >= oldEta) {
+				continue;
+			}
+			Handover handover = new Handover(call, oldElevator, newElevator, commands);
+			if (sendCancels(handover)) {
+				handovers.put(handoverKey(call), handover);
+			}
+		}
+	}
+
+    /**
+     * Sends the hall calls still pending, or the held destination calls, to the cars, called on the dispatch
+     * thread once a car registered or went idle so the calls do not wait for the next floor request
+     */
+	private void retryWaiting() {
+		if (destinations != null) {
+			dispatchHeld();
+		} else if (hallCalls.pendingCount() > 0) {
+			dispatchPending(DISPATCH_WINDOW > 0);
+		}
+	}
+
+    /**
+     * Applies the replies of the old cars to the CANCEL frames of the hand overs. A hand over completes
+     * once every command is answered: if the old car withdrew them all and still holds the call, the call
+     * goes to the new car; otherwise the old car serves the call and gets back the commands it withdrew.
+     * The CANCEL frames not answered within CANCEL_TIMEOUT are sent again
+     */
+	private void confirmHandovers() {
+		for (CancelReply reply = cancelReplies.poll(); reply != null; reply = cancelReplies.poll()) {
+			Handover handover = handovers.get(handoverKey(reply.call));
+			if (handover == null || handover.from != reply.elevatorNumber) {
+				continue;
+			}
+			int c = handover.commands.indexOf(reply.time, reply.call);
+			if (c < 0 || handover.answered[c]) {
+				continue;
+			}
+			handover.answered[c] = true;
+			handover.withdrawn[c] = reply.withdrawn;
+			handover.refused |= !reply.withdrawn;
+			if (++handover.answers == handover.commands.size()) {
+				handovers.remove(handoverKey(reply.call));
+				completeHandover(handover);
+			}
+		}
+		long now = System.currentTimeMillis();
+		for (Handover handover : handovers.values()) {
+			if (now - handover.sentAt >= CANCEL_TIMEOUT) {
+				sendCancels(handover);
+			}
+		}
+	}
+
+    /**
+     * Sends the old car of a hand over a CANCEL frame for every command it has not answered yet
+     *
+     * @param handover - the hand over
+     * @return false if the old car is not registered and nothing was sent
+     */
+	private boolean sendCancels(Handover handover) {
+		handover.sentAt = System.currentTimeMillis();
+		for (int c = 0; c < handover.commands.size(); c++) {
+			if (!handover.answered[c] && !eventHandler.sendElevatorCancel(handover.commands.getTime(c),
+					handover.commands.getCall(c), handover.from)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+    /**
+     * Completes a hand over whose commands were all answered by the old car
+     *
+     * @param handover - the hand over
+     */
+	private void completeHandover(Handover handover) {
+		int call = handover.call;
+		int floor = HallCall.startFloor(call);
+		int stops = handover.commands.size();
+		// The Call Moves Only If The Old Car Still Holds It, The Status Thread May Have Just Served It
+		if (!handover.refused && hallCalls.reassign(call, handover.from, handover.to)) {
+			if (!sendCommands(handover.commands, handover.to)) {
+				hallCalls.reassign(call, handover.to, handover.from);
+				keep(handover);
+				return;
+			}
+			dispatch.released(handover.from, stops);
+			System.out.println("Hall call at floor " + floor + " handed over from elevator " + handover.from
+					+ " to elevator " + handover.to);
+			notifyAssignment(call, handover.to);
+			dispatch.commit(handover.to, stops);
+			sendCommands(handover.late, handover.to);
+			dispatch.commit(handover.to, handover.late.size());
+			return;
+		}
+		keep(handover);
+	}
+
+    /**
+     * Leaves the call of a hand over with its old car, which gets back the commands it withdrew
+     *
+     * @param handover - the hand over
+     */
+	private void keep(Handover handover) {
+		// The Old Car Keeps The Call, Its Passengers Still Need The Commands It Withdrew
+		for (int c = 0; c < handover.commands.size(); c++) {
+			if (handover.withdrawn[c]) {
+				eventHandler.sendElevatorRequest(handover.commands.getTime(c), handover.commands.getCall(c),
+						handover.from);
+			}
+		}
+		sendCommands(handover.late, handover.from);
+		dispatch.commit(handover.from, handover.late.size());
+		if (handover.refused) {
+			System.out.println("Hall call at floor " + HallCall.startFloor(handover.call) + " kept by elevator "
+					+ handover.from + ", it was already serving the call");
+		}
+	}
+
+    /**
+     * @param call - the packed call (see HallCall)
+     * @return the key of the hand over of the call, one per floor and direction
+     */
+	private static int handoverKey(int call) {
+		return HallCall.startFloor(call) << 1 | HallCall.directionOrdinal(call);
+	}
+
+    /**
+     * Pushes the assigned car of a request and its ETA to the subscribers of the request floor
+     *
+     * @param call - the packed request (see HallCall)
+     * @param elevatorNumber - the elevator the request was assigned to
+     */
+	private void notifyAssignment(int call, int elevatorNumber) {
+		FloorNotifier notifier = eventHandler.getNotifier();
+		int startFloor = HallCall.startFloor(call);
+		notifier.publish(MessageCodec.NOTIFY_ASSIGNED, startFloor, elevatorNumber, HallCall.directionOrdinal(call));
+		int eta = dispatch.eta(elevatorNumber, startFloor, HallCall.directionOrdinal(call));
+		if (eta >= 0) {
+			notifier.publish(MessageCodec.NOTIFY_ETA, startFloor, elevatorNumber, eta);
+		}
+	}
+
+    /**
+     * Associated with the event loop, called for every elevator status received
+     *
+     * @param elevatorStatus - the decoded status, only valid for the duration of the call
+     */
+	public void elevatorStatus(int[] elevatorStatus){
 
         // [0] -> Elevator Number
         // [1] -> Elevator Port Number
 	    // [2] -> The Current State of the Elevator
         // [3] -> The Current Floor Level of the Elevator
         // [4] -> The Current Direction of the Elevator Motor
-
-        byte[] elevatorStatus = eventHandler.receiveElevatorStatus();
-        
-
-        // Map with Elevator Number as a key and the array as value associated
-        elevators.put((int) elevatorStatus[0], new int[]{elevatorStatus[1],
-                elevatorStatus[2], elevatorStatus[3], elevatorStatus[4]});
+        // [5] -> The Current Position of the Elevator Doors
+
+        // Fleet Table Indexed By Elevator Number, Each Status Replaced In One Atomic Write
+        long status = FleetTable.pack(elevatorStatus[1], elevatorStatus[2], elevatorStatus[3], elevatorStatus[4],
+                elevatorStatus[5]);
+        long previous = fleet.update(elevatorStatus[0], status);
+        dispatch.carUpdated(elevatorStatus[0], previous, status);
+        // A Car That Moved Or Stopped May Now Reach The Assigned Calls Around It First
+        boolean moved = !FleetTable.isPresent(previous) || FleetTable.floor(previous) != elevatorStatus[3]
+                || FleetTable.motor(previous) != elevatorStatus[4];
+        if (moved && REASSIGN_HYSTERESIS >= 0 && hallCalls.markNear(elevatorStatus[3], REASSIGN_RADIUS) > 0) {
+            scheduleReassign();
+        }
+        // A Car That Registers Or Goes Idle May Take The Calls No Car Could Take So Far
+        int idle = ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST.ordinal();
+        if (!FleetTable.isPresent(previous) || FleetTable.state(previous) != idle && elevatorStatus[2] == idle) {
+            retryWaiting.set(true);
+            scheduleReassign();
+        }
+        // The Doors Opening Mark The Arrival Of The Elevator At Its Floor
+        boolean arrived = FleetTable.isPresent(previous) && FleetTable.door(previous) != ElevatorDoor.OPEN.ordinal()
+                && elevatorStatus[5] == ElevatorDoor.OPEN.ordinal();
+        // The Hall Calls Of The Car At Its Floor Are Served Once It Opens Or Closes Its Doors There
+        if (elevatorStatus[5] == ElevatorDoor.OPEN.ordinal()
+                || elevatorStatus[2] == ElevatorState.DOORS_CLOSING.ordinal()) {
+            hallCalls.served(elevatorStatus[3], elevatorStatus[0]);
+            if (destinations != null) {
+                destinations.served(elevatorStatus[3], elevatorStatus[0]);
+            }
+        }
+        if (arrived) {
+            dispatch.carArrived(elevatorStatus[0]);
+            eventHandler.getNotifier().publish(MessageCodec.NOTIFY_ARRIVAL, elevatorStatus[3], elevatorStatus[0], 0);
+        }
+        // An Idle Car With No Call Left Has No Stop Left Either
+        if (elevatorStatus[2] == ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST.ordinal()
+                && !hallCalls.busy(elevatorStatus[0])
+                && (destinations == null || !destinations.busy(elevatorStatus[0]))) {
+            dispatch.carIdle(elevatorStatus[0]);
+        }
 
         //Send Wait Response After The Receiving The State Of The Elevator
-        if (eventQ.isEmpty() && elevatorStatus[2] == ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST.ordinal() &&
+        if (hallCalls.pendingCount() == 0 && elevatorStatus[2] == ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST.ordinal() &&
                 elevatorStatus[4] == ElevatorMotor.STOP.ordinal()){
             //Reply With Response Of 0 Indicating Wait For Instructions
 
-            //eventHandler.replyToElevatorStatus(new byte[]{0}, elevatorStatus[1]);
+            //eventHandler.replyToElevatorStatus(new byte[]{0}, elevatorStatus[0]);
 
         }
 
@@ -206,35 +738,39 @@ public class Scheduler {
 	}
 
 	
-	public static void main(String[] args) throws UnknownHostException {
+    /**
+     * Starts serving the floor and elevator ports
+     */
+	public void start() {
+		// The Dispatch Cycle Thread Also Re-evaluates The Calls Marked By The Status Thread
+		cycleTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "Scheduler_Dispatch_Cycle");
+			t.setDaemon(true);
+			return t;
+		});
+		if (DISPATCH_WINDOW > 0) {
+			cycleTimer.scheduleWithFixedDelay(this::dispatchCycle, DISPATCH_WINDOW, DISPATCH_WINDOW, TimeUnit.MILLISECONDS);
+		}
+		eventHandler.start();
+	}
+
+    /**
+     * Stops the communication links and releases the scheduler ports
+     */
+	public void shutdown() {
+		if (cycleTimer != null) {
+			cycleTimer.shutdownNow();
+		}
+		eventHandler.shutdown();
+	}
+
+	public static void main(String[] args) throws IOException {
 
         Scheduler schedulerControl = new Scheduler();
 
-        //Thread 1 - Communication Link B/w Scheduler & Floor
-        Thread floor_To_Scheduler = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                while (true) {
-                    try {
-                        schedulerControl.elevatorRequest();
-                    } catch (UnknownHostException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-        }, "Floor_Scheduler_Communication_Link");
-        floor_To_Scheduler.start();
-
-        //Thread 2 - Communication Link B/w Scheduler & Elevator
-        Thread scheduler_To_Elevator = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                while (true) {
-                    schedulerControl.elevatorStatus();
-                }
-            }
-        }, "Scheduler_Elevator_Communication_Link");
-        scheduler_To_Elevator.start();
+        //Single Event Loop Serving Every Floor & Elevator Communication Link
+        Runtime.getRuntime().addShutdownHook(new Thread(schedulerControl::shutdown, "Scheduler_Shutdown"));
+        schedulerControl.start();
 
 	}
 
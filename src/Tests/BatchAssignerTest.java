@@ -0,0 +1,112 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import ElevatorSubSystem.ElevatorMotor;
+import SchedulerSubSystem.BatchAssigner;
+import SchedulerSubSystem.DispatchEngine;
+import SchedulerSubSystem.FleetTable;
+import Util.CallBuffer;
+import Util.HallCall;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Joint Dispatch Cycle Assignment JUnit Test Case
+ */
+public class BatchAssignerTest {
+
+	private static final int UP = Direction.UP.ordinal();
+
+	/** A budget no assignment runs out of, so the tests do not depend on the speed of the machine */
+	private static final long NO_DEADLINE = Long.MAX_VALUE / 4;
+
+	private static void report(FleetTable fleet, DispatchEngine engine, int car, int floor) {
+		long status = FleetTable.pack(22, 0, floor, ElevatorMotor.STOP.ordinal(), 0);
+		engine.carUpdated(car, fleet.update(car, status), status);
+	}
+
+	@Test
+	public void spreadsCallsThatGreedyAssignmentPilesOnOneCar() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 1, 2);
+		report(fleet, engine, 2, 7);
+		CallBuffer calls = new CallBuffer();
+		calls.add(0, HallCall.pack(4, 9, UP));
+		calls.add(0, HallCall.pack(1, 9, UP));
+
+		// One At A Time Car 1 Is Best For Both Calls: 8s + (4s + 6s For The First Call)
+		assertEquals(1, engine.select(4, UP));
+		int[] cars = new int[2];
+		assertTrue(new BatchAssigner(engine, NO_DEADLINE).assign(calls, cars));
+		// Jointly Car 2 Takes Floor 4 (12s) And Car 1 Floor 1 (4s)
+		assertEquals(2, cars[0]);
+		assertEquals(1, cars[1]);
+	}
+
+	@Test
+	public void givesACarSeveralCallsWhenThereAreFewCars() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 3, 1);
+		CallBuffer calls = new CallBuffer();
+		for (int floor = 2; floor <= 4; floor++) {
+			calls.add(0, HallCall.pack(floor, 9, UP));
+		}
+		int[] cars = new int[3];
+		assertTrue(new BatchAssigner(engine, NO_DEADLINE).assign(calls, cars));
+		assertArrayEquals(new int[] { 3, 3, 3 }, cars);
+
+		// More Calls Than The Slots Of The Only Car Are Assigned Greedily
+		for (int floor = 5; floor <= 9; floor++) {
+			calls.add(0, HallCall.pack(floor, 9, UP));
+		}
+		assertFalse(new BatchAssigner(engine, NO_DEADLINE).assign(calls, new int[calls.size()]));
+	}
+
+	@Test
+	public void jointAssignmentIsNeverWorseThanGreedy() {
+		SplittableRandom random = new SplittableRandom(7);
+		FleetTable fleet = new FleetTable(64);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		for (int car = 1; car <= 12; car++) {
+			report(fleet, engine, car, 1 + random.nextInt(40));
+		}
+		CallBuffer calls = new CallBuffer();
+		for (int i = 0; i < 30; i++) {
+			calls.add(0, HallCall.pack(1 + random.nextInt(40), 41, UP));
+		}
+		int[] cars = new int[calls.size()];
+		assertTrue(new BatchAssigner(engine, NO_DEADLINE).assign(calls, cars));
+
+		int[] taken = new int[64];
+		long joint = 0;
+		for (int i = 0; i < calls.size(); i++) {
+			int floor = HallCall.startFloor(calls.getCall(i));
+			joint += engine.eta(cars[i], floor, UP) + taken[cars[i]]++ * DispatchEngine.DOOR_CYCLE_TIME;
+		}
+		long greedy = 0;
+		for (int i = 0; i < calls.size(); i++) {
+			int floor = HallCall.startFloor(calls.getCall(i));
+			int car = engine.select(floor, UP);
+			greedy += engine.eta(car, floor, UP);
+			engine.commit(car, 1);
+		}
+		assertTrue("joint " + joint + " greedy " + greedy, joint <= greedy);
+	}
+
+	@Test
+	public void givesUpWhenTheBudgetRunsOut() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 1, 1);
+		report(fleet, engine, 2, 5);
+		CallBuffer calls = new CallBuffer();
+		calls.add(0, HallCall.pack(2, 9, UP));
+		calls.add(0, HallCall.pack(3, 9, UP));
+		assertFalse(new BatchAssigner(engine, -1).assign(calls, new int[2]));
+	}
+}
@@ -0,0 +1,80 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import FloorSubSystem.CallReplayer;
+import Util.CallEvent;
+import Util.TimeParser;
+import Util.TrafficGenerator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time-Scaled Call Replay JUnit Test Case
+ */
+public class CallReplayerTest {
+
+	private static CallEvent call(long millis, int startFloor) {
+		return new CallEvent(TimeParser.toDate(millis), startFloor, 1, Direction.DOWN);
+	}
+
+	@Test
+	public void sendsEveryCallOnceInTimeOrder() {
+		List<CallEvent> events = Arrays.asList(call(300, 3), call(100, 1), call(200, 2), call(100, 4));
+		List<Integer> sent = new ArrayList<Integer>();
+		CallReplayer replayer = new CallReplayer(events, CallReplayer.MAX_SPEED, e -> sent.add(e.getStartFloor()));
+		assertTrue(replayer.replay());
+		assertEquals(Arrays.asList(1, 4, 2, 3), sent);
+		assertEquals(3, events.get(0).getStartFloor());
+	}
+
+	@Test
+	public void streamsATimeOrderedTraceAsItIsRead() {
+		List<CallEvent> ordered = Arrays.asList(call(100, 1), call(100, 4), call(200, 2));
+		assertSame(ordered, CallReplayer.inTimeOrder(ordered));
+
+		// The Generated Traffic Is Replayed Straight From The Generator
+		List<CallEvent> expected = new TrafficGenerator(TrafficGenerator.Profile.INTER_FLOOR, 5, 2, 0, 60000, 3).toList();
+		List<CallEvent> sent = new ArrayList<CallEvent>();
+		CallReplayer replayer = new CallReplayer(new TrafficGenerator(TrafficGenerator.Profile.INTER_FLOOR, 5, 2, 0,
+				60000, 3), CallReplayer.MAX_SPEED, sent::add);
+		assertEquals(0, replayer.size());
+		assertTrue(replayer.replay());
+		assertEquals(expected.size(), replayer.size());
+		assertEquals(expected.toString(), sent.toString());
+	}
+
+	@Test
+	public void speedFactorScalesTheReplay() {
+		// An hour of traffic replayed 3600 times faster takes about a second
+		List<CallEvent> events = new TrafficGenerator(TrafficGenerator.Profile.INTER_FLOOR, 5, 2, 0, 3600000, 3).toList();
+		long last = TimeParser.toMillis(events.get(events.size() - 1).getStartTime());
+		List<Long> lateness = new ArrayList<Long>();
+		long start = System.nanoTime();
+		new CallReplayer(events, 3600, e -> lateness.add((System.nanoTime() - start) / 1000000
+				- TimeParser.toMillis(e.getStartTime()) / 3600)).replay();
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		assertEquals(events.size(), lateness.size());
+		assertTrue("Replay took " + elapsed + " ms", elapsed >= last / 3600 && elapsed < last / 3600 + 500);
+		for (long late : lateness) {
+			assertTrue("Call sent " + late + " ms early", late >= 0);
+		}
+	}
+
+	@Test
+	public void parsesSpeedFactors() {
+		assertEquals(CallReplayer.MAX_SPEED, CallReplayer.parseSpeed("max"), 0);
+		assertEquals(10, CallReplayer.parseSpeed("10"), 0);
+		try {
+			CallReplayer.parseSpeed("0");
+			fail("Zero speed accepted");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+}
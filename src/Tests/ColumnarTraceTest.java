@@ -0,0 +1,73 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import Util.CallEvent;
+import Util.ColumnarTrace;
+import Util.TraceReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Columnar Trace JUnit Test Case
+ */
+public class ColumnarTraceTest {
+
+	@Test
+	public void roundTripsTheDefaultTrace() throws Exception {
+		File out = File.createTempFile("trace", ".bin");
+		out.deleteOnExit();
+		Path csv = Paths.get(TraceReader.DEFAULT_TRACE);
+		List<CallEvent> expected = TraceReader.readAll(csv);
+
+		assertEquals(expected.size(), ColumnarTrace.convert(csv, out.toPath()));
+		assertTrue(ColumnarTrace.isColumnarTrace(out.toPath()));
+		assertFalse(ColumnarTrace.isColumnarTrace(csv));
+
+		ColumnarTrace trace = ColumnarTrace.open(out.toPath());
+		assertEquals(expected.size(), trace.size());
+		List<CallEvent> loaded = TraceReader.readAll(out.toPath());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), trace.event(i).toString());
+			assertEquals(expected.get(i).getStartTime(), loaded.get(i).getStartTime());
+		}
+	}
+
+	@Test
+	public void timeIndexFindsTheFirstRowAtATime() throws Exception {
+		File csv = File.createTempFile("trace", ".csv");
+		File out = File.createTempFile("trace", ".bin");
+		csv.deleteOnExit();
+		out.deleteOnExit();
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 5000; i++) {
+			// Two requests per second
+			lines.add(String.format("00:%02d:%02d.%03d,%d,%d,%s", i / 120, i / 2 % 60, i % 2 * 500, i % 9 + 2,
+					1, "DOWN"));
+		}
+		Files.write(csv.toPath(), lines, StandardCharsets.US_ASCII);
+		ColumnarTrace.convert(csv.toPath(), out.toPath());
+
+		ColumnarTrace trace = ColumnarTrace.open(out.toPath());
+		assertTrue(trace.isIndexed());
+		assertEquals(1500, trace.getTimeMillis(3));
+		assertEquals(5, trace.getStartFloor(3));
+		assertEquals(1, trace.getEndFloor(3));
+		assertEquals(Direction.DOWN, trace.getDirection(3));
+		assertEquals(0, trace.firstRowAt(-1));
+		assertEquals(0, trace.firstRowAt(0));
+		assertEquals(3, trace.firstRowAt(1250));
+		assertEquals(2048, trace.firstRowAt(1024000));
+		assertEquals(4999, trace.firstRowAt(2499500));
+		assertEquals(5000, trace.firstRowAt(2499501));
+	}
+
+}
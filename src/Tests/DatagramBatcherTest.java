@@ -0,0 +1,108 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import Util.CallEvent;
+import Util.DatagramBatcher;
+import Util.MessageCodec;
+import Util.Parser;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Datagram Batching JUnit Test Case
+ */
+public class DatagramBatcherTest {
+
+	private static byte[] call(int startFloor) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeCall(buf, new CallEvent(new Date(1000), startFloor, 1, Direction.DOWN));
+		byte[] frame = new byte[buf.position()];
+		System.arraycopy(buf.array(), 0, frame, 0, frame.length);
+		return frame;
+	}
+
+	@Test
+	public void flushesWhenBatchIsFull() {
+		List<byte[]> sent = new ArrayList<byte[]>();
+		DatagramBatcher batcher = new DatagramBatcher(3, 60000, (datagram, frames) -> sent.add(datagram));
+		batcher.add(call(2));
+		batcher.add(call(3));
+		assertTrue(sent.isEmpty());
+		batcher.add(call(4));
+
+		assertEquals(1, sent.size());
+		List<CallEvent> events = new Parser().parseByteEvents(sent.get(0));
+		assertEquals(3, events.size());
+		assertEquals(2, events.get(0).getStartFloor());
+		assertEquals(4, events.get(2).getStartFloor());
+	}
+
+	@Test
+	public void noLingerBatchWaitsForItsOwnerToFlush() throws InterruptedException {
+		List<byte[]> sent = Collections.synchronizedList(new ArrayList<byte[]>());
+		DatagramBatcher batcher = new DatagramBatcher(8, DatagramBatcher.NO_LINGER, (datagram, frames) -> sent.add(datagram));
+		batcher.add(call(2));
+		batcher.add(call(3));
+		Thread.sleep(50);
+		assertTrue(sent.isEmpty());
+		assertEquals(2, batcher.pending());
+		batcher.flush();
+		assertEquals(1, sent.size());
+		assertEquals(2, new Parser().parseByteEvents(sent.get(0)).size());
+	}
+
+	@Test(timeout = 10000)
+	public void blockedFlusherStallsNeitherItsAddersNorOtherBatchers() throws InterruptedException {
+		CountDownLatch windowOpen = new CountDownLatch(1);
+		BlockingQueue<byte[]> blockedSent = new LinkedBlockingQueue<byte[]>();
+		BlockingQueue<byte[]> otherSent = new LinkedBlockingQueue<byte[]>();
+		DatagramBatcher blocked = new DatagramBatcher(8, 1, (datagram, frames) -> {
+			try {
+				windowOpen.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			blockedSent.add(datagram);
+		});
+		DatagramBatcher other = new DatagramBatcher(8, 1, (datagram, frames) -> otherSent.add(datagram));
+
+		// The Linger Flush Of The First Batch Blocks, Adding And Lingering Carry On
+		blocked.add(call(2));
+		Thread.sleep(50);
+		blocked.add(call(3));
+		blocked.add(call(4));
+		other.add(call(5));
+		assertNotNull(otherSent.poll(5, TimeUnit.SECONDS));
+		assertTrue(blockedSent.isEmpty());
+
+		windowOpen.countDown();
+		assertEquals(2, new Parser().parseByteEvents(blockedSent.poll(5, TimeUnit.SECONDS)).get(0).getStartFloor());
+		List<CallEvent> second = new Parser().parseByteEvents(blockedSent.poll(5, TimeUnit.SECONDS));
+		assertEquals(2, second.size());
+		assertEquals(3, second.get(0).getStartFloor());
+	}
+
+	@Test
+	public void singleFrameIsSentWithoutBatchHeader() {
+		List<byte[]> sent = new ArrayList<byte[]>();
+		DatagramBatcher batcher = new DatagramBatcher(8, 60000, (datagram, frames) -> sent.add(datagram));
+		batcher.add(call(7));
+		batcher.flush();
+
+		assertEquals(1, sent.size());
+		assertEquals(MessageCodec.CALL, MessageCodec.readHeader(ByteBuffer.wrap(sent.get(0))));
+		assertEquals(0, batcher.pending());
+	}
+
+}
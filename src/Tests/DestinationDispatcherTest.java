@@ -0,0 +1,98 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import ElevatorSubSystem.ElevatorMotor;
+import SchedulerSubSystem.DestinationDispatcher;
+import SchedulerSubSystem.DispatchEngine;
+import SchedulerSubSystem.FleetTable;
+import Util.HallCall;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Destination Dispatch Mode JUnit Test Case
+ */
+public class DestinationDispatcherTest {
+
+	private static final int UP = Direction.UP.ordinal();
+
+	private static void report(FleetTable fleet, DispatchEngine engine, int car, int floor) {
+		long status = FleetTable.pack(22, 0, floor, ElevatorMotor.STOP.ordinal(), 0);
+		engine.carUpdated(car, fleet.update(car, status), status);
+	}
+
+	/**
+	 * Assigns a call the way the scheduler does, committing its stops to the car
+	 */
+	private static int send(DestinationDispatcher destinations, DispatchEngine engine, int call) {
+		int car = destinations.select(call);
+		if (car >= 0) {
+			destinations.assign(call, car);
+			engine.commit(car, 1);
+		}
+		return car;
+	}
+
+	@Test
+	public void groupsCallsGoingToTheSameFloor() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 1, 1);
+		report(fleet, engine, 2, 1);
+		DestinationDispatcher destinations = new DestinationDispatcher(fleet, engine);
+
+		assertEquals(1, send(destinations, engine, HallCall.pack(1, 9, UP)));
+		// The Other Car Is Idle At The Floor, But Car 1 Already Stops At Floor 9
+		assertEquals(1, send(destinations, engine, HallCall.pack(1, 9, UP)));
+		assertEquals(2, destinations.passengers(1, 1, UP));
+		assertEquals(1, destinations.stops(1, 1, UP));
+		assertEquals(2, engine.committedStops(1));
+
+		// A Destination Far From The Trip Opens A Trip On The Idle Car
+		assertEquals(2, send(destinations, engine, HallCall.pack(1, 3, UP)));
+	}
+
+	@Test
+	public void prefersATripGoingNearTheDestination() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 1, 1);
+		report(fleet, engine, 2, 5);
+		DestinationDispatcher destinations = new DestinationDispatcher(fleet, engine);
+		assertEquals(1, send(destinations, engine, HallCall.pack(1, 9, UP)));
+
+		// One Floor Past The Trip Costs Less Than Fetching Car 2 From Floor 5
+		long join = destinations.cost(1, 1, 10, UP);
+		long open = destinations.cost(2, 1, 10, UP);
+		assertTrue("join " + join + " open " + open, join <= open);
+		assertEquals(1, send(destinations, engine, HallCall.pack(1, 10, UP)));
+		assertEquals(2, destinations.stops(1, 1, UP));
+	}
+
+	@Test
+	public void skipsFullTripsAndClosesServedOnes() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 1, 1);
+		DestinationDispatcher destinations = new DestinationDispatcher(fleet, engine);
+		for (int i = 0; i < DestinationDispatcher.CAPACITY; i++) {
+			assertEquals(1, send(destinations, engine, HallCall.pack(1, 9, UP)));
+		}
+		assertEquals(Long.MAX_VALUE, destinations.cost(1, 1, 9, UP));
+		assertEquals(-1, destinations.select(HallCall.pack(1, 9, UP)));
+
+		report(fleet, engine, 2, 5);
+		assertEquals(2, destinations.select(HallCall.pack(1, 9, UP)));
+
+		// Once Car 1 Opens Its Doors At The Floor Its Trip Is Closed
+		assertEquals(1, destinations.served(1, 1));
+		assertEquals(0, destinations.passengers(1, 1, UP));
+		assertTrue(destinations.cost(1, 1, 9, UP) < Long.MAX_VALUE);
+		// Once It Delivered Its Passengers And Is Idle At The Floor It Takes The Next Call Again
+		engine.carIdle(1);
+		assertEquals(1, destinations.select(HallCall.pack(1, 9, UP)));
+		assertEquals(-1, new DestinationDispatcher(new FleetTable(4), new DispatchEngine(new FleetTable(4)))
+				.select(HallCall.pack(1, 9, UP)));
+	}
+}
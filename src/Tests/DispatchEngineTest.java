@@ -0,0 +1,105 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import ElevatorSubSystem.ElevatorMotor;
+import SchedulerSubSystem.DispatchEngine;
+import SchedulerSubSystem.FleetTable;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Indexed ETA Dispatch Engine JUnit Test Case
+ */
+public class DispatchEngineTest {
+
+	private static final int UP = Direction.UP.ordinal();
+	private static final int DOWN = Direction.DOWN.ordinal();
+
+	private static void report(FleetTable fleet, DispatchEngine engine, int car, int floor, ElevatorMotor motor) {
+		long status = FleetTable.pack(22, 0, floor, motor.ordinal(), 0);
+		engine.carUpdated(car, fleet.update(car, status), status);
+	}
+
+	@Test
+	public void noCarReportedSelectsNone() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		assertEquals(-1, engine.select(3, UP));
+		assertEquals(-1, engine.eta(1, 3, UP));
+	}
+
+	@Test
+	public void picksTheCarArrivingFirst() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 1, 10, ElevatorMotor.STOP);
+		report(fleet, engine, 2, 3, ElevatorMotor.UPWARD);
+		report(fleet, engine, 3, 4, ElevatorMotor.DOWNWARD);
+		// Car 2 Is Two Floors Below And Moving Up, Car 3 Is Closer But Moving Away
+		assertEquals(2, engine.select(5, UP));
+		assertEquals(2 * DispatchEngine.MOVING_TIME, engine.eta(2, 5, UP));
+		// A Down Call Above Car 2 Makes It Pass The Floor, The Idle Car Wins
+		assertEquals(1, engine.select(8, DOWN));
+		// Car 3 Is Moving Down Towards A Down Call Below It
+		assertEquals(3, engine.select(1, DOWN));
+	}
+
+	@Test
+	public void committedStopsAddDoorCycles() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 1, 5, ElevatorMotor.STOP);
+		report(fleet, engine, 2, 7, ElevatorMotor.STOP);
+		assertEquals(1, engine.select(5, UP));
+		engine.commit(1, 2);
+		assertEquals(2, engine.committedStops(1));
+		assertEquals(2 * DispatchEngine.DOOR_CYCLE_TIME, engine.eta(1, 5, UP));
+		assertEquals(2, engine.select(5, UP));
+		engine.commit(1, 1);
+		engine.released(1, 1);
+		assertEquals(2, engine.committedStops(1));
+		engine.carArrived(1);
+		engine.carArrived(1);
+		engine.carArrived(1);
+		assertEquals(0, engine.committedStops(1));
+		assertEquals(1, engine.select(5, UP));
+		// An Idle Car Forgets The Stops It Made Without Reporting Its Doors Open
+		engine.commit(1, 3);
+		engine.carIdle(1);
+		assertEquals(0, engine.committedStops(1));
+	}
+
+	@Test
+	public void followsCarsBetweenIndexes() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 4, 1, ElevatorMotor.STOP);
+		report(fleet, engine, 9, 20, ElevatorMotor.STOP);
+		assertEquals(9, engine.select(18, DOWN));
+		report(fleet, engine, 9, 30, ElevatorMotor.UPWARD);
+		report(fleet, engine, 4, 17, ElevatorMotor.UPWARD);
+		report(fleet, engine, 4, 18, ElevatorMotor.STOP);
+		assertEquals(4, engine.select(18, DOWN));
+		assertEquals(0, engine.eta(4, 18, DOWN));
+	}
+
+	@Test
+	public void largeFleetPicksTheLowestEta() {
+		FleetTable fleet = new FleetTable(2048);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		for (int car = 1; car < 2048; car++) {
+			report(fleet, engine, car, (car * 7) % 1000 + 1, car % 2 == 0 ? ElevatorMotor.UPWARD : ElevatorMotor.DOWNWARD);
+		}
+		report(fleet, engine, 1500, 500, ElevatorMotor.STOP);
+		for (int floor = 1; floor <= 1000; floor += 37) {
+			int selected = engine.select(floor, UP);
+			int best = Integer.MAX_VALUE;
+			for (int car = 1; car < 2048; car++) {
+				best = Math.min(best, engine.eta(car, floor, UP));
+			}
+			assertEquals(best, engine.eta(selected, floor, UP));
+		}
+		assertEquals(0, engine.eta(engine.select(500, DOWN), 500, DOWN));
+	}
+}
@@ -0,0 +1,38 @@
+package Tests;
+
+import Util.EndpointRegistry;
+import Util.MessageCodec;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.Assert.*;
+
+/**
+ * Endpoint Registry JUnit Test Case
+ */
+public class EndpointRegistryTest {
+
+	@Test
+	public void registrationIsRefreshedOnlyOnChange() {
+		EndpointRegistry registry = new EndpointRegistry();
+		InetSocketAddress bank = new InetSocketAddress("localhost", 22);
+
+		assertTrue(registry.register(MessageCodec.ROLE_ELEVATOR, 1, bank));
+		assertFalse(registry.register(MessageCodec.ROLE_ELEVATOR, 1, new InetSocketAddress("localhost", 22)));
+		assertTrue(registry.register(MessageCodec.ROLE_ELEVATOR, 1, new InetSocketAddress("localhost", 24)));
+		assertEquals(24, ((InetSocketAddress) registry.lookup(MessageCodec.ROLE_ELEVATOR, 1)).getPort());
+	}
+
+	@Test
+	public void rolesAreSeparate() {
+		EndpointRegistry registry = new EndpointRegistry();
+		registry.register(MessageCodec.ROLE_FLOOR, 1, new InetSocketAddress("localhost", 33));
+
+		assertNull(registry.lookup(MessageCodec.ROLE_ELEVATOR, 1));
+		assertEquals(1, registry.getEndpoints(MessageCodec.ROLE_FLOOR).size());
+		assertTrue(registry.unregister(MessageCodec.ROLE_FLOOR, 1));
+		assertNull(registry.lookup(MessageCodec.ROLE_FLOOR, 1));
+	}
+
+}
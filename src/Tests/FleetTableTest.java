@@ -0,0 +1,73 @@
+package Tests;
+
+import SchedulerSubSystem.FleetTable;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lock-Free Fleet State Table JUnit Test Case
+ */
+public class FleetTableTest {
+
+	@Test
+	public void packsEveryField() {
+		long status = FleetTable.pack(65535, 4, 300, 2, 1);
+		assertTrue(FleetTable.isPresent(status));
+		assertEquals(65535, FleetTable.port(status));
+		assertEquals(4, FleetTable.state(status));
+		assertEquals(300, FleetTable.floor(status));
+		assertEquals(2, FleetTable.motor(status));
+		assertEquals(1, FleetTable.door(status));
+		assertFalse(FleetTable.isPresent(0));
+	}
+
+	@Test
+	public void tracksCarsAndPreviousStatus() {
+		FleetTable fleet = new FleetTable(500);
+		assertTrue(fleet.isEmpty());
+		assertEquals(0, fleet.update(450, FleetTable.pack(22, 0, 1, 0, 0)));
+		long previous = fleet.update(450, FleetTable.pack(22, 1, 2, 1, 1));
+		assertEquals(1, FleetTable.floor(previous));
+		assertEquals(2, FleetTable.floor(fleet.get(450)));
+		assertEquals(1, fleet.size());
+		assertEquals(450, fleet.highestCar());
+		assertEquals(0, fleet.get(7));
+		assertEquals(0, fleet.get(5000));
+		try {
+			fleet.update(500, FleetTable.pack(22, 0, 1, 0, 0));
+			fail("Car outside the table accepted");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void readersNeverSeeATornStatus() throws Exception {
+		FleetTable fleet = new FleetTable(300);
+		AtomicBoolean running = new AtomicBoolean(true);
+		// Every status written has its floor equal to its port, a torn read would break that
+		Thread writer = new Thread(() -> {
+			for (int i = 0; running.get() || i < 299; i++) {
+				int value = i & 0xFFFF;
+				fleet.update(1 + i % 299, FleetTable.pack(value, i & 0xFF, value, 0, 0));
+			}
+		});
+		writer.start();
+		try {
+			for (int round = 0; round < 200000; round++) {
+				long status = fleet.get(1 + round % 299);
+				if (FleetTable.isPresent(status)) {
+					assertEquals(FleetTable.port(status), FleetTable.floor(status));
+				}
+			}
+		} finally {
+			running.set(false);
+			writer.join();
+		}
+		assertEquals(299, fleet.size());
+	}
+
+}
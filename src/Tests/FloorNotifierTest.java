@@ -0,0 +1,62 @@
+package Tests;
+
+import SchedulerSubSystem.FloorNotifier;
+import Util.InMemoryTransport;
+import Util.MessageCodec;
+import Util.Transport;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Floor Notification Publish/Subscribe JUnit Test Case
+ */
+public class FloorNotifierTest {
+
+	private static int[] next(BlockingQueue<int[]> received) throws InterruptedException {
+		int[] notification = received.poll(5, TimeUnit.SECONDS);
+		assertNotNull(notification);
+		return notification;
+	}
+
+	@Test
+	public void lateSubscriberReceivesSnapshotThenUpdates() throws Exception {
+		BlockingQueue<int[]> received = new ArrayBlockingQueue<int[]>(16);
+		Transport transport = new InMemoryTransport("Test_Notifier");
+		try {
+			Transport.Endpoint scheduler = transport.open(40020, (endpoint, datagram, source) -> { });
+			transport.open(40021, (endpoint, datagram, source) -> {
+				assertEquals(MessageCodec.NOTIFY, MessageCodec.readHeader(datagram));
+				int[] notification = new int[MessageCodec.NOTIFY_FIELDS];
+				MessageCodec.decodeNotify(datagram, notification);
+				received.add(notification);
+			});
+			transport.start();
+
+			FloorNotifier notifier = new FloorNotifier();
+			notifier.publish(MessageCodec.NOTIFY_ASSIGNED, 3, 2, 0);
+			notifier.publish(MessageCodec.NOTIFY_ETA, 4, 1, 8);
+
+			notifier.subscribe(3, scheduler, new InetSocketAddress("localhost", 40021));
+			int[] snapshot = next(received);
+			assertEquals(MessageCodec.NOTIFY_ASSIGNED, snapshot[MessageCodec.NOTIFY_KIND]);
+			assertEquals(2, snapshot[MessageCodec.NOTIFY_ELEVATOR]);
+
+			notifier.publish(MessageCodec.NOTIFY_ARRIVAL, 3, 2, 0);
+			int[] arrival = next(received);
+			assertEquals(MessageCodec.NOTIFY_ARRIVAL, arrival[MessageCodec.NOTIFY_KIND]);
+			assertEquals(3, arrival[MessageCodec.NOTIFY_FLOOR]);
+			assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+			assertEquals(1, notifier.subscriberCount(3));
+		} finally {
+			transport.close();
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import SchedulerSubSystem.HallCallRegistry;
+import SchedulerSubSystem.HallCallState;
+import Util.CallBuffer;
+import Util.HallCall;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hall Call Registry JUnit Test Case
+ */
+public class HallCallRegistryTest {
+
+	private static final int UP = Direction.UP.ordinal();
+	private static final int DOWN = Direction.DOWN.ordinal();
+
+	@Test
+	public void mergesPressesOnTheSameFloorAndDirection() {
+		HallCallRegistry registry = new HallCallRegistry();
+		assertTrue(registry.press(5000, HallCall.pack(3, 5, UP)));
+		assertFalse(registry.press(4000, HallCall.pack(3, 7, UP)));
+		assertFalse(registry.press(6000, HallCall.pack(3, 4, UP)));
+		assertTrue(registry.press(5500, HallCall.pack(3, 1, DOWN)));
+		assertEquals(HallCallState.PENDING, registry.state(3, UP));
+		assertEquals(4000, registry.time(3, UP));
+		assertEquals(7, HallCall.endFloor(registry.call(3, UP)));
+		assertEquals(3, registry.presses(3, UP));
+		assertEquals(4, registry.totalPresses());
+		assertEquals(2, registry.totalCalls());
+
+		CallBuffer pending = new CallBuffer();
+		assertEquals(2, registry.pending(pending));
+		assertEquals(4000, pending.getTime(0));
+		assertEquals(UP, HallCall.directionOrdinal(pending.getCall(0)));
+		assertEquals(DOWN, HallCall.directionOrdinal(pending.getCall(1)));
+	}
+
+	@Test
+	public void keepsEveryDestinationOfTheMergedPresses() {
+		HallCallRegistry registry = new HallCallRegistry();
+		registry.press(5000, HallCall.pack(3, 5, UP));
+		registry.press(4000, HallCall.pack(3, 7, UP));
+		registry.press(6000, HallCall.pack(3, 4, UP));
+		registry.press(6500, HallCall.pack(3, 5, UP));
+		CallBuffer commands = new CallBuffer();
+		assertEquals(3, registry.destinations(registry.call(3, UP), commands));
+		assertEquals(HallCall.pack(3, 5, UP), commands.getCall(0));
+		assertEquals(HallCall.pack(3, 7, UP), commands.getCall(1));
+		assertEquals(HallCall.pack(3, 4, UP), commands.getCall(2));
+		for (int i = 0; i < commands.size(); i++) {
+			assertEquals(4000, commands.getTime(i));
+		}
+
+		// Only The Destinations Pressed After The Car Was Sent Are Queued For It
+		registry.assign(registry.call(3, UP), 2);
+		registry.press(7000, HallCall.pack(3, 7, UP));
+		registry.press(7000, HallCall.pack(3, 9, UP));
+		registry.press(7000, HallCall.pack(3, 8, UP));
+		commands.clear();
+		assertEquals(2, registry.drainUnsent(commands));
+		assertEquals(9, HallCall.endFloor(commands.getCall(0)));
+		assertEquals(8, HallCall.endFloor(commands.getCall(1)));
+		assertEquals(0, registry.drainUnsent(commands));
+
+		// A Served Call Starts Over With The Destination Of Its Next Press
+		registry.served(3, 2);
+		registry.press(8000, HallCall.pack(3, 6, UP));
+		commands.clear();
+		assertEquals(1, registry.destinations(HallCall.pack(3, 6, UP), commands));
+		assertEquals(0, registry.destinations(HallCall.pack(3, 1, Direction.DOWN.ordinal()), commands));
+	}
+
+	@Test
+	public void callsMoveFromPendingToAssignedToServed() {
+		HallCallRegistry registry = new HallCallRegistry();
+		int call = HallCall.pack(2, 5, UP);
+		registry.press(1000, call);
+		assertEquals(-1, registry.assignedCar(2, UP));
+		assertTrue(registry.assign(call, 4));
+		assertFalse(registry.assign(call, 5));
+		assertEquals(HallCallState.ASSIGNED, registry.state(2, UP));
+		assertEquals(4, registry.assignedCar(2, UP));
+		assertEquals(0, registry.pendingCount());
+
+		// A Press While The Car Is On Its Way Rides With The Assigned Call, Its Destination Is Sent To The Car
+		assertFalse(registry.press(2000, HallCall.pack(2, 3, UP)));
+		assertEquals(0, registry.pendingCount());
+		CallBuffer unsent = new CallBuffer();
+		assertEquals(1, registry.drainUnsent(unsent));
+		assertEquals(1000, unsent.getTime(0));
+		assertEquals(HallCall.pack(2, 3, UP), unsent.getCall(0));
+		assertFalse(registry.press(2500, HallCall.pack(2, 3, UP)));
+		assertEquals(0, registry.drainUnsent(unsent));
+
+		assertEquals(0, registry.served(2, 9));
+		assertEquals(0, registry.served(3, 4));
+		assertEquals(1, registry.served(2, 4));
+		assertEquals(HallCallState.SERVED, registry.state(2, UP));
+
+		// The Next Press After The Car Left Is A New Call
+		assertTrue(registry.press(3000, call));
+		assertEquals(3000, registry.time(2, UP));
+		assertEquals(1, registry.pendingCount());
+	}
+
+	@Test
+	public void reevaluatesOnlyTheAssignedCallsNearACar() {
+		HallCallRegistry registry = new HallCallRegistry();
+		int near = HallCall.pack(10, 1, DOWN);
+		int far = HallCall.pack(40, 1, DOWN);
+		registry.press(1000, near);
+		registry.press(1000, far);
+		registry.press(1000, HallCall.pack(11, 20, UP));
+		registry.assign(near, 2);
+		registry.assign(far, 2);
+
+		// The Pending Call At Floor 11 Is Not Dirty, The Call At Floor 40 Is Too Far
+		assertEquals(1, registry.markNear(8, 4));
+		assertEquals(1, registry.markNear(12, 4));
+		// A Merged Press Does Not Change The Call The Car Was Sent
+		registry.press(500, HallCall.pack(10, 0, DOWN));
+		CallBuffer dirty = new CallBuffer();
+		assertEquals(1, registry.drainDirty(dirty));
+		assertEquals(1000, dirty.getTime(0));
+		assertEquals(near, dirty.getCall(0));
+		assertEquals(0, registry.dirtyCount());
+
+		assertFalse(registry.reassign(near, 3, 5));
+		assertTrue(registry.reassign(near, 2, 5));
+		assertEquals(5, registry.assignedCar(10, DOWN));
+		assertEquals(1, registry.totalReassignments());
+		assertEquals(0, registry.served(10, 2));
+		assertEquals(1, registry.served(10, 5));
+
+		// A Call Served Before It Is Re-evaluated Is Dropped From The Dirty Set
+		registry.markNear(40, 0);
+		registry.served(40, 2);
+		assertEquals(0, registry.drainDirty(dirty));
+	}
+
+	@Test
+	public void keepsUnassignedCallsInPressOrder() {
+		HallCallRegistry registry = new HallCallRegistry();
+		for (int floor = 1; floor <= 500; floor++) {
+			registry.press(floor, HallCall.pack(floor, 1, DOWN));
+			registry.press(floor, HallCall.pack(floor, 1, DOWN));
+		}
+		assertEquals(500, registry.pendingCount());
+		assertEquals(1000, registry.totalPresses());
+		for (int floor = 2; floor <= 500; floor += 2) {
+			registry.assign(HallCall.pack(floor, 1, DOWN), 1);
+		}
+		CallBuffer pending = new CallBuffer();
+		assertEquals(250, registry.pending(pending));
+		for (int i = 0; i < pending.size(); i++) {
+			assertEquals(2 * i + 1, HallCall.startFloor(pending.getCall(i)));
+		}
+		assertEquals(HallCallState.SERVED, registry.state(4000, UP));
+	}
+}
@@ -0,0 +1,72 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import Util.CallBuffer;
+import Util.CallEvent;
+import Util.DatagramBatcher;
+import Util.HallCall;
+import Util.MessageCodec;
+import Util.Parser;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Packed Hall Call And Call Buffer JUnit Test Case
+ */
+public class HallCallTest {
+
+	@Test
+	public void packsFloorsAndDirection() {
+		int call = HallCall.pack(HallCall.MAX_FLOOR, 7, Direction.DOWN.ordinal());
+		assertEquals(HallCall.MAX_FLOOR, HallCall.startFloor(call));
+		assertEquals(7, HallCall.endFloor(call));
+		assertEquals(Direction.DOWN, HallCall.direction(call));
+
+		CallEvent event = HallCall.toCallEvent(39000, HallCall.pack(new CallEvent(new Date(39000), 2, 1, Direction.DOWN)));
+		assertEquals(39000, event.getStartTime().getTime());
+		assertEquals(2, event.getStartFloor());
+		assertEquals(1, event.getEndFloor());
+		assertEquals(Direction.DOWN, event.getDirection());
+
+		try {
+			HallCall.pack(HallCall.MAX_FLOOR + 1, 1, 0);
+			fail("Floor out of range accepted");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void batchDecodesIntoAReusedBuffer() {
+		List<byte[]> sent = new ArrayList<byte[]>();
+		DatagramBatcher batcher = new DatagramBatcher(8, 1000, (datagram, frames) -> sent.add(datagram));
+		ByteBuffer frame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		for (int i = 0; i < 3; i++) {
+			frame.clear();
+			MessageCodec.encodeCall(frame, 1000L * i, HallCall.pack(i + 1, 5, Direction.UP.ordinal()));
+			frame.flip();
+			batcher.add(frame);
+		}
+		batcher.flush();
+		assertEquals(1, sent.size());
+
+		CallBuffer calls = new CallBuffer(1);
+		for (int round = 0; round < 2; round++) {
+			calls.clear();
+			new Parser().parseByteEvents(ByteBuffer.wrap(sent.get(0)), calls);
+			assertEquals(3, calls.size());
+			for (int i = 0; i < 3; i++) {
+				assertEquals(1000L * i, calls.getTime(i));
+				assertEquals(i + 1, HallCall.startFloor(calls.getCall(i)));
+				assertEquals(Direction.UP, calls.toCallEvent(i).getDirection());
+			}
+		}
+	}
+
+}
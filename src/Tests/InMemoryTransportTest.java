@@ -0,0 +1,56 @@
+package Tests;
+
+import Util.InMemoryTransport;
+import Util.Transport;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * In-Memory Transport JUnit Test Case
+ */
+public class InMemoryTransportTest {
+
+	@Test
+	public void datagramsAreDeliveredBetweenTransports() throws Exception {
+		BlockingQueue<Integer> received = new ArrayBlockingQueue<Integer>(4);
+		BlockingQueue<SocketAddress> sources = new ArrayBlockingQueue<SocketAddress>(4);
+		Transport a = new InMemoryTransport("Test_A");
+		Transport b = new InMemoryTransport("Test_B");
+		try {
+			Transport.Endpoint sender = a.open(40001, (endpoint, datagram, source) -> { });
+			b.open(40002, (endpoint, datagram, source) -> {
+				received.add((int) datagram.get());
+				sources.add(source);
+			});
+			a.start();
+			b.start();
+
+			assertTrue(sender.send(ByteBuffer.wrap(new byte[]{42}), new InetSocketAddress("localhost", 40002)));
+			assertEquals(Integer.valueOf(42), received.poll(5, TimeUnit.SECONDS));
+			assertEquals(40001, ((InetSocketAddress) sources.poll(5, TimeUnit.SECONDS)).getPort());
+			assertFalse(sender.send(ByteBuffer.wrap(new byte[]{1}), new InetSocketAddress("localhost", 40003)));
+		} finally {
+			a.close();
+			b.close();
+		}
+	}
+
+	@Test
+	public void portIsReleasedOnClose() throws Exception {
+		Transport a = new InMemoryTransport("Test_A");
+		a.open(40004, (endpoint, datagram, source) -> { });
+		a.close();
+		Transport b = new InMemoryTransport("Test_B");
+		b.open(40004, (endpoint, datagram, source) -> { });
+		b.close();
+	}
+
+}
@@ -0,0 +1,102 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import ElevatorSubSystem.Elevator;
+import ElevatorSubSystem.ElevatorMotor;
+import SchedulerSubSystem.DispatchEngine;
+import SchedulerSubSystem.FleetTable;
+import SchedulerSubSystem.HallCallRegistry;
+import SchedulerSubSystem.LookAheadDispatcher;
+import Util.HallCall;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Look-Ahead Dispatch Policy JUnit Test Case
+ */
+public class LookAheadDispatcherTest {
+
+	private static final int UP = Direction.UP.ordinal();
+	private static final int DOWN = Direction.DOWN.ordinal();
+	private static final int STOPPED = ElevatorMotor.STOP.ordinal();
+
+	private static void report(FleetTable fleet, DispatchEngine engine, int car, int floor, ElevatorMotor motor) {
+		long status = FleetTable.pack(22, 0, floor, motor.ordinal(), 0);
+		engine.carUpdated(car, fleet.update(car, status), status);
+	}
+
+	@Test
+	public void simulatesTheRouteWithTheElevatorTiming() {
+		int move = Elevator.ELEVATOR_MOVING_TIME;
+		int stop = LookAheadDispatcher.STOP_TIME;
+		assertEquals(0, LookAheadDispatcher.routeTime(1, STOPPED, new int[0], 0));
+		// Pick Up At 3, Drop Off At 5
+		int[] route = { HallCall.pack(3, 5, UP) };
+		assertEquals(4 * move + 2 * stop, LookAheadDispatcher.routeTime(1, STOPPED, route, 1));
+		// A Car Moving Up Serves The Call Above It Before Reversing For The Call Below It
+		route = new int[] { HallCall.pack(2, 1, DOWN), HallCall.pack(6, 8, UP) };
+		long up = 5 * move + 2 * stop;
+		long down = up + 6 * move + stop + 1 * move + stop;
+		assertEquals(up + down, LookAheadDispatcher.routeTime(3, ElevatorMotor.UPWARD.ordinal(), route, 2));
+		// A Passenger Already On Board Is Only Dropped Off
+		route = new int[] { HallCall.pack(1, 4, UP) };
+		assertEquals(3 * move + stop, LookAheadDispatcher.routeTime(1, STOPPED, route, 1, 1));
+	}
+
+	@Test
+	public void picksTheCarTheCallAddsTheLeastTimeTo() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		HallCallRegistry hallCalls = new HallCallRegistry();
+		report(fleet, engine, 1, 5, ElevatorMotor.STOP);
+		report(fleet, engine, 2, 1, ElevatorMotor.STOP);
+		LookAheadDispatcher lookAhead = new LookAheadDispatcher(fleet, engine, hallCalls, Long.MAX_VALUE / 4);
+		assertEquals(1, lookAhead.select(HallCall.pack(6, 9, UP)));
+
+		// Car 1 Already Carries A Long Trip Down, Car 2 Only Has To Climb To Floor 6
+		int busy = HallCall.pack(5, 1, DOWN);
+		hallCalls.press(0, busy);
+		hallCalls.assign(busy, 1);
+		engine.commit(1, 1);
+		assertEquals(2, lookAhead.select(HallCall.pack(6, 9, UP)));
+		assertEquals(0, lookAhead.fallbacks());
+	}
+
+	@Test
+	public void countsThePassengersACarAlreadyPickedUp() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		HallCallRegistry hallCalls = new HallCallRegistry();
+		report(fleet, engine, 1, 5, ElevatorMotor.STOP);
+		report(fleet, engine, 2, 1, ElevatorMotor.STOP);
+		LookAheadDispatcher lookAhead = new LookAheadDispatcher(fleet, engine, hallCalls, Long.MAX_VALUE / 4);
+
+		// Car 1 Picked Up A Passenger At Floor 5 Going Down To Floor 1, The Call Is Served But The Trip Is Not
+		int trip = HallCall.pack(5, 1, DOWN);
+		hallCalls.press(0, trip);
+		hallCalls.assign(trip, 1);
+		hallCalls.served(5, 1);
+		assertEquals(2, lookAhead.select(HallCall.pack(6, 9, UP)));
+
+		// Dropping The Passenger Off Frees The Car
+		hallCalls.served(1, 1);
+		final int[] onboard = new int[1];
+		hallCalls.forEachCarried((elevatorNumber, time, call) -> onboard[0]++);
+		assertEquals(0, onboard[0]);
+		assertEquals(0, lookAhead.fallbacks());
+	}
+
+	@Test
+	public void fallsBackToTheEtaHeuristicWhenTheBudgetRunsOut() {
+		FleetTable fleet = new FleetTable(16);
+		DispatchEngine engine = new DispatchEngine(fleet);
+		report(fleet, engine, 1, 5, ElevatorMotor.STOP);
+		report(fleet, engine, 2, 1, ElevatorMotor.STOP);
+		LookAheadDispatcher lookAhead = new LookAheadDispatcher(fleet, engine, new HallCallRegistry(), 0);
+		assertEquals(engine.select(2, UP), lookAhead.select(HallCall.pack(2, 4, UP)));
+		assertEquals(1, lookAhead.fallbacks());
+		assertEquals(-1, new LookAheadDispatcher(new FleetTable(4), new DispatchEngine(new FleetTable(4)),
+				new HallCallRegistry()).select(HallCall.pack(2, 4, UP)));
+	}
+}
@@ -0,0 +1,119 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import Util.CallEvent;
+import Util.HallCall;
+import Util.MessageCodec;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Binary Wire Protocol JUnit Test Case
+ */
+public class MessageCodecTest {
+
+	@Test
+	public void callRoundTrip() {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeCall(buf, new CallEvent(new Date(39000), 250, 1, Direction.DOWN));
+		buf.flip();
+
+		assertEquals(MessageCodec.CALL, MessageCodec.readHeader(buf));
+		CallEvent event = MessageCodec.decodeCall(buf);
+		assertEquals(39000, event.getStartTime().getTime());
+		assertEquals(250, event.getStartFloor());
+		assertEquals(1, event.getEndFloor());
+		assertEquals(Direction.DOWN, event.getDirection());
+		assertFalse(buf.hasRemaining());
+	}
+
+	@Test
+	public void commandCarriesElevatorNumber() {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeCommand(buf, 120, new CallEvent(new Date(5000), 2, 4, Direction.UP));
+		buf.flip();
+
+		assertEquals(MessageCodec.COMMAND, MessageCodec.readHeader(buf));
+		assertEquals(120, MessageCodec.getVarInt(buf));
+		CallEvent event = MessageCodec.decodeCall(buf);
+		assertEquals(2, event.getStartFloor());
+		assertEquals(4, event.getEndFloor());
+		assertFalse(buf.hasRemaining());
+	}
+
+	@Test
+	public void cancelCarriesTheRequestAsItWasSent() {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeCancel(buf, 7, 61000, HallCall.pack(12, 3, Direction.DOWN.ordinal()));
+		buf.flip();
+
+		assertEquals(MessageCodec.CANCEL, MessageCodec.readHeader(buf));
+		assertEquals(7, MessageCodec.getVarInt(buf));
+		assertEquals(61000, MessageCodec.decodeCallTime(buf));
+		int call = MessageCodec.decodeCallFloors(buf);
+		assertEquals(12, HallCall.startFloor(call));
+		assertEquals(3, HallCall.endFloor(call));
+		assertFalse(buf.hasRemaining());
+	}
+
+	@Test
+	public void assignNamesTheCarOrNone() {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeAssign(buf, 61000, HallCall.pack(1, 9, Direction.UP.ordinal()), 4);
+		MessageCodec.encodeAssign(buf, 62000, HallCall.pack(9, 1, Direction.DOWN.ordinal()), -1);
+		buf.flip();
+
+		assertEquals(MessageCodec.ASSIGN, MessageCodec.readHeader(buf));
+		assertEquals(61000, MessageCodec.decodeCallTime(buf));
+		assertEquals(9, HallCall.endFloor(MessageCodec.decodeCallFloors(buf)));
+		assertEquals(4, MessageCodec.decodeAssignedCar(buf));
+		assertEquals(MessageCodec.ASSIGN, MessageCodec.readHeader(buf));
+		assertEquals(62000, MessageCodec.decodeCallTime(buf));
+		assertEquals(9, HallCall.startFloor(MessageCodec.decodeCallFloors(buf)));
+		assertEquals(-1, MessageCodec.decodeAssignedCar(buf));
+		assertFalse(buf.hasRemaining());
+	}
+
+	@Test
+	public void statusSupportsLargeFloorsAndPorts() {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeStatus(buf, 3, 40000, 4, 300, 2);
+		buf.flip();
+
+		int[] status = new int[MessageCodec.STATUS_FIELDS];
+		assertEquals(MessageCodec.STATUS, MessageCodec.readHeader(buf));
+		MessageCodec.decodeStatus(buf, status);
+		assertArrayEquals(new int[]{3, 40000, 4, 300, 2, 0}, status);
+	}
+
+	@Test
+	public void deltaOnlyUpdatesMaskedFields() {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeStatusDelta(buf, new int[]{2, 22, 1, 4, 1, 0}, MessageCodec.DELTA_FLOOR | MessageCodec.DELTA_MOTOR);
+		buf.flip();
+
+		int[] known = {2, 22, 3, 3, 2, 1};
+		assertEquals(MessageCodec.DELTA, MessageCodec.readHeader(buf));
+		assertSame(known, MessageCodec.decodeStatusDelta(buf, number -> known));
+		assertArrayEquals(new int[]{2, 22, 3, 4, 1, 1}, known);
+		assertFalse(buf.hasRemaining());
+	}
+
+	@Test
+	public void negativeTimeRoundTrip() {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.putVarLong(buf, -18000000L);
+		buf.flip();
+		assertEquals(-18000000L, MessageCodec.getVarLong(buf));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownVersion() {
+		MessageCodec.readHeader(ByteBuffer.wrap(new byte[]{9, MessageCodec.ACK, 1}));
+	}
+
+}
@@ -0,0 +1,77 @@
+package Tests;
+
+import Util.MessageCodec;
+import Util.ReliableReceiver;
+import Util.ReliableSender;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reliable Delivery (Sequence Numbers, Selective Acks, Retransmission) JUnit Test Case
+ */
+public class ReliableDeliveryTest {
+
+	private static final SocketAddress FLOOR = new InetSocketAddress("localhost", 33);
+
+	@Test
+	public void lostDatagramIsRetransmittedAndDuplicatesSuppressed() throws Exception {
+		ReliableReceiver receiver = new ReliableReceiver();
+		List<Integer> delivered = Collections.synchronizedList(new ArrayList<Integer>());
+		AtomicInteger transmissions = new AtomicInteger();
+		ReliableSender[] sender = new ReliableSender[1];
+
+		sender[0] = new ReliableSender(8, datagram -> {
+			ByteBuffer data = ByteBuffer.wrap(datagram);
+			assertEquals(MessageCodec.DATA, MessageCodec.readHeader(data));
+			// Drop the first transmission of the second payload
+			if (transmissions.incrementAndGet() == 2) {
+				return;
+			}
+			ByteBuffer ack = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+			if (receiver.receive(FLOOR, data, ack)) {
+				delivered.add((int) data.get());
+			}
+			ack.flip();
+			MessageCodec.readHeader(ack);
+			sender[0].acknowledged(ack);
+		});
+
+		for (int i = 0; i < 4; i++) {
+			assertTrue(sender[0].send(new byte[]{(byte) i}));
+		}
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (sender[0].inFlight() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		sender[0].close();
+
+		assertEquals(0, sender[0].inFlight());
+		Collections.sort(delivered);
+		assertEquals(java.util.Arrays.asList(0, 1, 2, 3), delivered);
+	}
+
+	@Test
+	public void receiverSuppressesDuplicates() {
+		ReliableReceiver receiver = new ReliableReceiver();
+		ByteBuffer datagram = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeDataHeader(datagram, 7, 0);
+		datagram.flip();
+		MessageCodec.readHeader(datagram);
+		datagram.mark();
+
+		assertTrue(receiver.receive(FLOOR, datagram, ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE)));
+		datagram.reset();
+		assertFalse(receiver.receive(FLOOR, datagram, ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE)));
+	}
+
+}
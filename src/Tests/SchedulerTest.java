@@ -0,0 +1,303 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import ElevatorSubSystem.ElevatorDoor;
+import ElevatorSubSystem.ElevatorMotor;
+import ElevatorSubSystem.ElevatorState;
+import SchedulerSubSystem.Scheduler;
+import Util.CallBuffer;
+import Util.HallCall;
+import Util.InMemoryTransport;
+import Util.MessageCodec;
+import Util.Transport;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Scheduler Dispatch JUnit Test Case, the scheduler and its cars connected by the in-memory transport
+ */
+public class SchedulerTest {
+
+	private static final int UP = Direction.UP.ordinal();
+
+	/**
+	 * A car that reports its status to the scheduler and records the commands it receives. It answers
+	 * every CANCEL frame, withdrawing the command unless it was told it is already serving it, once its
+	 * reply gate if any is opened
+	 */
+	private static class TestCar {
+		private final int elevatorNumber;
+		private final Transport.Endpoint endpoint;
+		private final BlockingQueue<Integer> commands = new LinkedBlockingQueue<Integer>();
+		private final BlockingQueue<Integer> cancels = new LinkedBlockingQueue<Integer>();
+		private volatile boolean withdraws = true;
+		private volatile CountDownLatch replyGate;
+
+		private TestCar(Transport transport, int elevatorNumber, int port) throws IOException {
+			this.elevatorNumber = elevatorNumber;
+			this.endpoint = transport.open(port, (endpoint, datagram, source) -> {
+				int frames = MessageCodec.openDatagram(datagram);
+				for (int i = 0; i < frames; i++) {
+					byte type = MessageCodec.readHeader(datagram);
+					MessageCodec.getVarInt(datagram);
+					long time = MessageCodec.decodeCallTime(datagram);
+					int call = MessageCodec.decodeCallFloors(datagram);
+					if (type == MessageCodec.COMMAND) {
+						commands.add(call);
+						continue;
+					}
+					cancels.add(call);
+					CountDownLatch gate = replyGate;
+					if (gate != null) {
+						try {
+							gate.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					ByteBuffer reply = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+					MessageCodec.encodeCancelled(reply, elevatorNumber, withdraws, time, call);
+					reply.flip();
+					endpoint.send(reply, source);
+				}
+			});
+		}
+
+		/**
+		 * Reports the car idle at a floor with its doors open
+		 */
+		private int[] status(int floor) {
+			int[] status = new int[MessageCodec.STATUS_FIELDS];
+			status[MessageCodec.STATUS_ELEVATOR_NUMBER] = elevatorNumber;
+			status[MessageCodec.STATUS_PORT] = endpoint.getPort();
+			status[MessageCodec.STATUS_STATE] = ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST.ordinal();
+			status[MessageCodec.STATUS_FLOOR] = floor;
+			status[MessageCodec.STATUS_MOTOR] = ElevatorMotor.STOP.ordinal();
+			status[MessageCodec.STATUS_DOOR] = ElevatorDoor.OPEN.ordinal();
+			return status;
+		}
+
+		private void report(int floor) {
+			ByteBuffer frame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+			MessageCodec.encodeStatusDelta(frame, status(floor), MessageCodec.DELTA_ALL);
+			frame.flip();
+			endpoint.send(frame, new InetSocketAddress("localhost", 30));
+		}
+
+		private void hello() {
+			ByteBuffer frame = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+			MessageCodec.encodeHello(frame, MessageCodec.ROLE_ELEVATOR, elevatorNumber);
+			frame.flip();
+			endpoint.send(frame, new InetSocketAddress("localhost", 30));
+		}
+
+		/**
+		 * Waits for the next command, dispatching the pending calls again until the car status has
+		 * reached the scheduler
+		 */
+		private int nextCommand(Scheduler scheduler) throws InterruptedException {
+			for (int attempt = 0; attempt < 50; attempt++) {
+				Integer call = commands.poll(100, TimeUnit.MILLISECONDS);
+				if (call != null) {
+					return call;
+				}
+				scheduler.elevatorRequest(new CallBuffer());
+			}
+			fail("No command reached elevator " + elevatorNumber);
+			return -1;
+		}
+	}
+
+	@Test
+	public void everyDestinationOfAMergedCallReachesTheCar() throws Exception {
+		Scheduler scheduler = new Scheduler(new InMemoryTransport("Test_Scheduler"));
+		Transport carTransport = new InMemoryTransport("Test_Car");
+		try {
+			TestCar car = new TestCar(carTransport, 1, 40030);
+			scheduler.start();
+			carTransport.start();
+			car.report(1);
+
+			CallBuffer presses = new CallBuffer();
+			presses.add(1000, HallCall.pack(3, 5, UP));
+			presses.add(1000, HallCall.pack(3, 7, UP));
+			presses.add(1000, HallCall.pack(3, 4, UP));
+			scheduler.elevatorRequest(presses);
+			Set<Integer> destinations = new HashSet<Integer>();
+			for (int i = 0; i < 3; i++) {
+				int call = car.nextCommand(scheduler);
+				assertEquals(3, HallCall.startFloor(call));
+				destinations.add(HallCall.endFloor(call));
+			}
+
+			// A Press While The Car Is On Its Way Sends Only Its New Destination
+			presses.clear();
+			presses.add(2000, HallCall.pack(3, 7, UP));
+			presses.add(2000, HallCall.pack(3, 9, UP));
+			scheduler.elevatorRequest(presses);
+			destinations.add(HallCall.endFloor(car.nextCommand(scheduler)));
+			assertEquals(new HashSet<Integer>(Arrays.asList(4, 5, 7, 9)), destinations);
+			assertNull(car.commands.poll(100, TimeUnit.MILLISECONDS));
+		} finally {
+			scheduler.shutdown();
+			carTransport.close();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void pendingCallGoesToTheFirstCarThatReports() throws Exception {
+		Scheduler scheduler = new Scheduler(new InMemoryTransport("Test_Scheduler"));
+		Transport carTransport = new InMemoryTransport("Test_Car");
+		try {
+			TestCar car = new TestCar(carTransport, 1, 40030);
+			scheduler.start();
+			carTransport.start();
+			CallBuffer presses = new CallBuffer();
+			presses.add(1000, HallCall.pack(3, 5, UP));
+			scheduler.elevatorRequest(presses);
+
+			// No Other Request Comes In, The Status Of The Car Alone Dispatches The Call
+			car.report(1);
+			assertEquals(HallCall.pack(3, 5, UP), car.commands.poll(5, TimeUnit.SECONDS).intValue());
+		} finally {
+			scheduler.shutdown();
+			carTransport.close();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void statusIngestNeverWaitsForTheDispatchLock() throws Exception {
+		Scheduler scheduler = new Scheduler(new InMemoryTransport("Test_Scheduler"));
+		Transport carTransport = new InMemoryTransport("Test_Car");
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread dispatch = new Thread(() -> {
+			synchronized (scheduler) {
+				locked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					// Released By The Test
+				}
+			}
+		});
+		try {
+			TestCar far = new TestCar(carTransport, 1, 40030);
+			TestCar near = new TestCar(carTransport, 2, 40031);
+			scheduler.start();
+			carTransport.start();
+			far.report(1);
+			near.hello();
+			CallBuffer presses = new CallBuffer();
+			presses.add(1000, HallCall.pack(9, 10, UP));
+			scheduler.elevatorRequest(presses);
+			assertEquals(HallCall.pack(9, 10, UP), far.nextCommand(scheduler));
+
+			// A Car Stopping Next To The Assigned Call Is Ingested While Dispatch Holds The Lock
+			dispatch.start();
+			locked.await();
+			scheduler.elevatorStatus(near.status(8));
+			release.countDown();
+
+			// The Call Is Re-evaluated On The Dispatch Thread Once The Lock Is Free
+			assertEquals(HallCall.pack(9, 10, UP), far.cancels.poll(5, TimeUnit.SECONDS).intValue());
+			// The Near Car Only Gets The Call Once The Far Car Confirmed It Withdrew It
+			assertEquals(HallCall.pack(9, 10, UP), near.commands.poll(5, TimeUnit.SECONDS).intValue());
+		} finally {
+			release.countDown();
+			scheduler.shutdown();
+			carTransport.close();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void callStaysWithACarAlreadyServingIt() throws Exception {
+		Scheduler scheduler = new Scheduler(new InMemoryTransport("Test_Scheduler"));
+		Transport carTransport = new InMemoryTransport("Test_Car");
+		try {
+			TestCar far = new TestCar(carTransport, 1, 40030);
+			TestCar near = new TestCar(carTransport, 2, 40031);
+			scheduler.start();
+			carTransport.start();
+			far.report(1);
+			near.hello();
+			CallBuffer presses = new CallBuffer();
+			presses.add(1000, HallCall.pack(9, 10, UP));
+			scheduler.elevatorRequest(presses);
+			assertEquals(HallCall.pack(9, 10, UP), far.nextCommand(scheduler));
+
+			// The Far Car Already Took The Command, So It Refuses The Cancel
+			far.withdraws = false;
+			scheduler.elevatorStatus(near.status(8));
+			assertEquals(HallCall.pack(9, 10, UP), far.cancels.poll(5, TimeUnit.SECONDS).intValue());
+			assertNull(near.commands.poll(500, TimeUnit.MILLISECONDS));
+			assertNull(far.commands.poll(100, TimeUnit.MILLISECONDS));
+		} finally {
+			scheduler.shutdown();
+			carTransport.close();
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void callServedBeforeTheHandOverStaysWithItsCar() throws Exception {
+		Scheduler scheduler = new Scheduler(new InMemoryTransport("Test_Scheduler"));
+		Transport carTransport = new InMemoryTransport("Test_Car");
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread dispatch = new Thread(() -> {
+			synchronized (scheduler) {
+				locked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					// Released By The Test
+				}
+			}
+		});
+		try {
+			TestCar far = new TestCar(carTransport, 1, 40030);
+			TestCar near = new TestCar(carTransport, 2, 40031);
+			scheduler.start();
+			carTransport.start();
+			far.report(1);
+			near.hello();
+			CallBuffer presses = new CallBuffer();
+			presses.add(1000, HallCall.pack(9, 10, UP));
+			scheduler.elevatorRequest(presses);
+			assertEquals(HallCall.pack(9, 10, UP), far.nextCommand(scheduler));
+
+			// The Far Car Withdraws The Command, Its Reply Waits Until The Dispatch Lock Is Taken
+			far.replyGate = new CountDownLatch(1);
+			scheduler.elevatorStatus(near.status(8));
+			assertEquals(HallCall.pack(9, 10, UP), far.cancels.poll(5, TimeUnit.SECONDS).intValue());
+			dispatch.start();
+			locked.await();
+			far.replyGate.countDown();
+			Thread.sleep(200); // The Confirmation Reaches The Scheduler And Waits For The Lock
+
+			// The Far Car Opens Its Doors At The Call Floor Before The Hand Over Runs
+			scheduler.elevatorStatus(far.status(9));
+			release.countDown();
+
+			// The Call Stays Served By The Far Car, Which Gets Back The Command It Withdrew
+			assertEquals(HallCall.pack(9, 10, UP), far.commands.poll(5, TimeUnit.SECONDS).intValue());
+			assertNull(near.commands.poll(500, TimeUnit.MILLISECONDS));
+		} finally {
+			release.countDown();
+			scheduler.shutdown();
+			carTransport.close();
+		}
+	}
+}
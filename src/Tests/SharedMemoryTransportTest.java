@@ -0,0 +1,74 @@
+package Tests;
+
+import Util.SharedMemoryTransport;
+import Util.Transport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Shared Memory Ring Buffer Transport JUnit Test Case
+ */
+public class SharedMemoryTransportTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("rings").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void datagramsWrapAroundTheRingInOrder() throws Exception {
+		BlockingQueue<Integer> received = new ArrayBlockingQueue<Integer>(1000);
+		Transport producer = new SharedMemoryTransport("Test_Producer", directory, 4096,
+				SharedMemoryTransport.WaitStrategy.YIELD);
+		Transport consumer = new SharedMemoryTransport("Test_Consumer", directory, 4096,
+				SharedMemoryTransport.WaitStrategy.YIELD);
+		try {
+			Transport.Endpoint sender = producer.open(41001, (endpoint, datagram, source) -> { });
+			consumer.open(41002, (endpoint, datagram, source) -> {
+				assertEquals(41001, ((InetSocketAddress) source).getPort());
+				received.add(datagram.getInt());
+			});
+			consumer.start();
+
+			InetSocketAddress destination = new InetSocketAddress("localhost", 41002);
+			for (int i = 0; i < 1000; i++) {
+				ByteBuffer datagram = ByteBuffer.allocate(37);
+				datagram.putInt(0, i);
+				while (!sender.send(datagram, destination)) {
+					Thread.yield();
+				}
+			}
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(Integer.valueOf(i), received.poll(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			producer.close();
+			consumer.close();
+		}
+	}
+
+}
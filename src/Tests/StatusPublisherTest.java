@@ -0,0 +1,65 @@
+package Tests;
+
+import ElevatorSubSystem.ElevatorDoor;
+import ElevatorSubSystem.ElevatorMotor;
+import ElevatorSubSystem.ElevatorState;
+import ElevatorSubSystem.StatusPublisher;
+import Util.InMemoryTransport;
+import Util.MessageCodec;
+import Util.Transport;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Elevator Status Publisher JUnit Test Case
+ */
+public class StatusPublisherTest {
+
+	@Test
+	public void unchangedStatusIsCoalescedAndChangesSendOnlyDeltas() throws Exception {
+		BlockingQueue<ByteBuffer> received = new ArrayBlockingQueue<ByteBuffer>(16);
+		Transport transport = new InMemoryTransport("Test_Status");
+		StatusPublisher publisher = null;
+		try {
+			Transport.Endpoint elevator = transport.open(40010, (endpoint, datagram, source) -> { });
+			transport.open(40011, (endpoint, datagram, source) -> {
+				ByteBuffer copy = ByteBuffer.allocate(datagram.remaining());
+				received.add((ByteBuffer) copy.put(datagram).flip());
+			});
+			transport.start();
+			publisher = new StatusPublisher(elevator, new InetSocketAddress("localhost", 40011), 20, 60000);
+
+			for (int i = 0; i < 10; i++) {
+				publisher.publish(1, 40010, ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST, 1, ElevatorMotor.STOP,
+						ElevatorDoor.OPEN);
+			}
+			int[] status = new int[MessageCodec.STATUS_FIELDS];
+			ByteBuffer full = received.poll(5, TimeUnit.SECONDS);
+			assertEquals(MessageCodec.DELTA, MessageCodec.readHeader(full));
+			MessageCodec.decodeStatusDelta(full, number -> status);
+			assertEquals(1, status[MessageCodec.STATUS_FLOOR]);
+
+			publisher.publish(1, 40010, ElevatorState.ELEVATOR_IDLE_WAITING_FOR_REQUEST, 2, ElevatorMotor.STOP,
+					ElevatorDoor.OPEN);
+			ByteBuffer delta = received.poll(5, TimeUnit.SECONDS);
+			assertEquals(MessageCodec.DELTA, MessageCodec.readHeader(delta));
+			assertEquals(1, MessageCodec.getVarInt(delta));
+			assertEquals(MessageCodec.DELTA_FLOOR, delta.get());
+			assertEquals(2, MessageCodec.getVarInt(delta));
+			assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+		} finally {
+			if (publisher != null) {
+				publisher.close();
+			}
+			transport.close();
+		}
+	}
+
+}
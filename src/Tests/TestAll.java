@@ -14,7 +14,15 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({ ArrivalSensorTest.class, DirectionTest.class, ElevatorMotorTest.class, ElevatorButtonTest.class,
-        ElevatorDoorTest.class, ParserTest.class, StateTest.class})
+        ElevatorDoorTest.class, ParserTest.class, StateTest.class, MessageCodecTest.class,
+        DatagramBatcherTest.class, ReliableDeliveryTest.class,
+        InMemoryTransportTest.class, SharedMemoryTransportTest.class, EndpointRegistryTest.class,
+        StatusPublisherTest.class, FloorNotifierTest.class, TraceReaderTest.class,
+        TimeParserTest.class, ColumnarTraceTest.class,
+        TrafficGeneratorTest.class, CallReplayerTest.class,
+        HallCallTest.class, FleetTableTest.class, DispatchEngineTest.class,
+        HallCallRegistryTest.class, BatchAssignerTest.class, LookAheadDispatcherTest.class,
+        DestinationDispatcherTest.class, SchedulerTest.class})
 
 public class TestAll {
 }
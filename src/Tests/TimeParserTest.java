@@ -0,0 +1,52 @@
+package Tests;
+
+import Util.TimeParser;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+
+import static org.junit.Assert.*;
+
+/**
+ * Trace Time Parser JUnit Test Case
+ */
+public class TimeParserTest {
+
+	private static long parse(String time) {
+		return TimeParser.parseMillis(time, 0, time.length());
+	}
+
+	@Test
+	public void parsesSecondsAndFractions() {
+		assertEquals(5000, parse("00:00:5"));
+		assertEquals(((13 * 60 + 4) * 60 + 59) * 1000L, parse("13:04:59"));
+		assertEquals(1500, parse("00:00:01.5"));
+		assertEquals(1005, parse("00:00:01.005"));
+	}
+
+	@Test
+	public void bytesAndCharactersAgree() {
+		ByteBuffer buf = ByteBuffer.wrap("x,07:30:00.250,".getBytes(StandardCharsets.US_ASCII));
+		assertEquals(parse("07:30:00.250"), TimeParser.parseMillis(buf, 2, 14));
+	}
+
+	@Test
+	public void dateMatchesSimpleDateFormat() throws Exception {
+		assertEquals(new SimpleDateFormat("HH:mm:ss").parse("00:00:39"), TimeParser.toDate(parse("00:00:39")));
+	}
+
+	@Test
+	public void rejectsMalformedTimes() {
+		for (String time : new String[]{"", "12:30", "12::30", "a2:30:00", "12:30:00.1234", "12:30:00:00"}) {
+			try {
+				parse(time);
+				fail("Accepted " + time);
+			} catch (IllegalArgumentException expected) {
+				// Expected
+			}
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import Util.CallEvent;
+import Util.ParallelTraceParser;
+import Util.Parser;
+import Util.TraceReader;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Streaming Trace Reader JUnit Test Case
+ */
+public class TraceReaderTest {
+
+	@Test
+	public void matchesTheListParser() throws Exception {
+		Path trace = Paths.get(TraceReader.DEFAULT_TRACE);
+		List<CallEvent> expected = new Parser().makeList(Parser.csvReader());
+		List<CallEvent> streamed;
+		try (Stream<CallEvent> events = TraceReader.stream(trace)) {
+			streamed = events.collect(Collectors.toList());
+		}
+		assertEquals(expected.size(), streamed.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).toString(), streamed.get(i).toString());
+		}
+	}
+
+	@Test
+	public void parallelParseKeepsFileOrder() throws Exception {
+		File file = File.createTempFile("trace", ".csv");
+		file.deleteOnExit();
+		List<String> lines = new ArrayList<String>();
+		lines.add("Time, Start Floor, End Floor, Button");
+		for (int i = 0; i < 200000; i++) {
+			lines.add(String.format("%02d:%02d:%02d,%d,%d,%s", i / 3600 % 24, i / 60 % 60, i % 60, i % 7 + 1,
+					i % 5 + 1, i % 2 == 0 ? "UP" : "DOWN"));
+		}
+		Files.write(file.toPath(), lines, StandardCharsets.US_ASCII);
+		assertTrue(file.length() > ParallelTraceParser.SPLIT_SIZE * 2);
+
+		List<CallEvent> parallel = ParallelTraceParser.parse(file.toPath());
+		assertEquals(200000, parallel.size());
+		try (TraceReader trace = new TraceReader(file.toPath())) {
+			for (CallEvent event : parallel) {
+				CallEvent expected = trace.next();
+				assertEquals(expected.getStartTime(), event.getStartTime());
+				assertEquals(expected.getStartFloor(), event.getStartFloor());
+				assertEquals(expected.getEndFloor(), event.getEndFloor());
+				assertEquals(expected.getDirection(), event.getDirection());
+			}
+			assertFalse(trace.hasNext());
+		}
+	}
+
+	@Test
+	public void skipsBlankLinesAndReportsMalformedLines() throws Exception {
+		File file = File.createTempFile("trace", ".csv");
+		file.deleteOnExit();
+		Files.write(file.toPath(), Arrays.asList("00:01:02,3,1,DOWN", "", "00:01:03,x,1,DOWN"),
+				StandardCharsets.US_ASCII);
+
+		try (TraceReader trace = new TraceReader(file.toPath())) {
+			CallEvent first = trace.next();
+			assertEquals(3, first.getStartFloor());
+			assertEquals(Direction.DOWN, first.getDirection());
+			try {
+				trace.next();
+				fail("Malformed line accepted");
+			} catch (IllegalArgumentException e) {
+				assertTrue(e.getMessage().contains("line 3"));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package Tests;
+
+import ElevatorSubSystem.Direction;
+import Util.CallEvent;
+import Util.TraceReader;
+import Util.TrafficGenerator;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Synthetic Traffic Generator JUnit Test Case
+ */
+public class TrafficGeneratorTest {
+
+	@Test
+	public void sameSeedGivesSameTraffic() {
+		List<CallEvent> first = new TrafficGenerator(TrafficGenerator.Profile.LUNCH, 10, 5, 0, 600000, 42).toList();
+		List<CallEvent> second = new TrafficGenerator(TrafficGenerator.Profile.LUNCH, 10, 5, 0, 600000, 42).toList();
+		List<CallEvent> other = new TrafficGenerator(TrafficGenerator.Profile.LUNCH, 10, 5, 0, 600000, 43).toList();
+		assertEquals(first.size(), second.size());
+		for (int i = 0; i < first.size(); i++) {
+			assertEquals(first.get(i).toString(), second.get(i).toString());
+		}
+		assertNotEquals(first.get(0).toString() + first.size(), other.get(0).toString() + other.size());
+	}
+
+	@Test
+	public void upPeakMeetsTheRateAndLeavesTheLobby() {
+		TrafficGenerator generator = new TrafficGenerator(TrafficGenerator.Profile.UP_PEAK, 20, 50, 3600000, 1000000, 7);
+		int calls = 0;
+		int fromLobby = 0;
+		long previous = 3600000;
+		while (generator.advance()) {
+			calls++;
+			assertTrue(generator.getTimeMillis() >= previous);
+			assertTrue(generator.getTimeMillis() < 3600000 + 1000000);
+			assertNotEquals(generator.getStartFloor(), generator.getEndFloor());
+			assertTrue(generator.getStartFloor() >= 1 && generator.getStartFloor() <= 20);
+			assertTrue(generator.getEndFloor() >= 1 && generator.getEndFloor() <= 20);
+			assertEquals(generator.getEndFloor() > generator.getStartFloor() ? Direction.UP : Direction.DOWN,
+					generator.getDirection());
+			if (generator.getStartFloor() == TrafficGenerator.LOBBY) {
+				fromLobby++;
+			}
+			previous = generator.getTimeMillis();
+		}
+		// 50 000 calls expected, the standard deviation of a Poisson count is about 224
+		assertEquals(50000, calls, 1500);
+		assertEquals(0.85, fromLobby / (double) calls, 0.02);
+	}
+
+	@Test
+	public void customMatrixOnlyUsesWeightedPairs() {
+		double[][] weights = new double[4][4];
+		weights[3][2] = 1;
+		TrafficGenerator generator = new TrafficGenerator(weights, 10, 0, 60000, 1);
+		while (generator.advance()) {
+			assertEquals(3, generator.getStartFloor());
+			assertEquals(2, generator.getEndFloor());
+		}
+	}
+
+	@Test
+	public void writtenTraceReadsBack() throws Exception {
+		File file = File.createTempFile("traffic", ".csv");
+		file.deleteOnExit();
+		long written = new TrafficGenerator(TrafficGenerator.Profile.DOWN_PEAK, 8, 3, 0, 120000, 5).write(file.toPath());
+		List<CallEvent> expected = new TrafficGenerator(TrafficGenerator.Profile.DOWN_PEAK, 8, 3, 0, 120000, 5).toList();
+		List<CallEvent> read = TraceReader.readAll(file.toPath());
+		assertEquals(written, read.size());
+		assertEquals(expected.size(), read.size());
+		for (int i = 0; i < read.size(); i++) {
+			assertEquals(expected.get(i).getStartTime(), read.get(i).getStartTime());
+			assertEquals(expected.get(i).toString(), read.get(i).toString());
+		}
+	}
+
+}
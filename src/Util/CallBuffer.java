@@ -0,0 +1,173 @@
+package Util;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of floor requests in their primitive form: the times in one long array and the
+ * packed floors and direction (see HallCall) in one int array. A buffer grows to the largest
+ * number of requests it has held and keeps its arrays when it is cleared, so the receive and
+ * dispatch paths reuse the same buffers instead of creating a CallEvent and a list per datagram.
+ *
+ * A buffer is not thread-safe; it is handed from thread to thread through a queue.
+ */
+public class CallBuffer {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] times;
+	private int[] calls;
+	private int size;
+
+	/**
+	 * The constructor of an empty buffer
+	 */
+	public CallBuffer() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * The constructor of an empty buffer
+	 *
+	 * @param capacity, The number of requests the buffer holds before it grows
+	 */
+	public CallBuffer(int capacity) {
+		times = new long[Math.max(1, capacity)];
+		calls = new int[Math.max(1, capacity)];
+	}
+
+	/**
+	 * Appends a request
+	 *
+	 * @param time, The time of the request in milliseconds
+	 * @param call, The packed request
+	 */
+	public void add(long time, int call) {
+		if (size == times.length) {
+			times = Arrays.copyOf(times, size * 2);
+			calls = Arrays.copyOf(calls, size * 2);
+		}
+		times[size] = time;
+		calls[size] = call;
+		size++;
+	}
+
+	/**
+	 * Replaces a request
+	 *
+	 * @param index, The index of the request
+	 * @param time, The time of the request in milliseconds
+	 * @param call, The packed request
+	 */
+	public void set(int index, long time, int call) {
+		checkIndex(index);
+		times[index] = time;
+		calls[index] = call;
+	}
+
+	/**
+	 * @param time, The time of the request in milliseconds
+	 * @param call, The packed request
+	 * @return index, The index of the first occurrence of the request, -1 if the buffer does not hold it
+	 */
+	public int indexOf(long time, int call) {
+		for (int i = 0; i < size; i++) {
+			if (times[i] == time && calls[i] == call) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes the first occurrence of a request, keeping the order of the others
+	 *
+	 * @param time, The time of the request in milliseconds
+	 * @param call, The packed request
+	 * @return True if the buffer held the request
+	 */
+	public boolean remove(long time, int call) {
+		for (int i = 0; i < size; i++) {
+			if (times[i] == time && calls[i] == call) {
+				System.arraycopy(times, i + 1, times, i, size - i - 1);
+				System.arraycopy(calls, i + 1, calls, i, size - i - 1);
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Appends the primitive form of a request
+	 *
+	 * @param event, The request
+	 */
+	public void add(CallEvent event) {
+		add(event.getStartTime().getTime(), HallCall.pack(event));
+	}
+
+	/**
+	 * @param index, The index of the request
+	 * @return time, The time of the request in milliseconds
+	 */
+	public long getTime(int index) {
+		checkIndex(index);
+		return times[index];
+	}
+
+	/**
+	 * @param index, The index of the request
+	 * @return call, The packed request
+	 */
+	public int getCall(int index) {
+		checkIndex(index);
+		return calls[index];
+	}
+
+	/**
+	 * @param index, The index of the request
+	 * @return event, A new CallEvent holding the request
+	 */
+	public CallEvent toCallEvent(int index) {
+		return HallCall.toCallEvent(getTime(index), getCall(index));
+	}
+
+	/**
+	 * @return size, The number of requests in the buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return True if the buffer holds no request
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes every request, keeping the arrays for reuse
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Keeps the first requests and removes the others, keeping the arrays for reuse
+	 *
+	 * @param newSize, The number of requests kept
+	 */
+	public void truncate(int newSize) {
+		if (newSize < 0 || newSize > size) {
+			throw new IndexOutOfBoundsException("Size " + newSize + " of " + size);
+		}
+		size = newSize;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+		}
+	}
+}
@@ -0,0 +1,351 @@
+package Util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+
+import ElevatorSubSystem.Direction;
+
+/**
+ * A call trace stored column by column in a binary file and read through a memory map. The file
+ * starts with a header (magic, version, flags, row count, index interval, index entries) and holds
+ * one column per field: the time of every request in milliseconds since midnight (int), the start
+ * and end floors (short) and the direction ordinal (byte), followed by an optional time index
+ * holding the time of every INDEX_INTERVAL-th row. The index is only written when the times are in
+ * order, and lets firstRowAt find a time without scanning the trace.
+ *
+ * Rows are read in place with the index based getters, so iterating a trace creates no objects;
+ * event() and events() build CallEvents on demand for the code that still needs them. A trace is
+ * converted from the csv.txt layout with convert, or from the command line with
+ * "java Util.ColumnarTrace csv.txt trace.bin".
+ */
+public class ColumnarTrace {
+
+	/** "NHT1", the first four bytes of every columnar trace */
+	public static final int MAGIC = 0x4E485431;
+
+	/** The version of the layout written by convert */
+	public static final int VERSION = 1;
+
+	/** Set in the flags when the file holds a time index */
+	public static final int FLAG_TIME_INDEX = 1;
+
+	/** The number of rows between two entries of the time index */
+	public static final int INDEX_INTERVAL = 1024;
+
+	/** The size of the header, the columns start right after it */
+	public static final int HEADER_SIZE = 32;
+
+	private static final int HEADER_MAGIC = 0;
+	private static final int HEADER_VERSION = 4;
+	private static final int HEADER_FLAGS = 8;
+	private static final int HEADER_ROWS = 12;
+	private static final int HEADER_INDEX_INTERVAL = 16;
+	private static final int HEADER_INDEX_ENTRIES = 20;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private final Path path;
+	private final ByteBuffer buf;
+	private final int rows;
+	private final int indexInterval;
+	private final int indexEntries;
+	private final int timeColumn;
+	private final int startColumn;
+	private final int endColumn;
+	private final int directionColumn;
+	private final int indexColumn;
+
+	private ColumnarTrace(Path path, ByteBuffer buf) {
+		this.path = path;
+		this.buf = buf;
+		if (buf.limit() < HEADER_SIZE || buf.getInt(HEADER_MAGIC) != MAGIC) {
+			throw new IllegalArgumentException(path + ": not a columnar trace");
+		}
+		if (buf.getInt(HEADER_VERSION) != VERSION) {
+			throw new IllegalArgumentException(path + ": unsupported columnar trace version " + buf.getInt(HEADER_VERSION));
+		}
+		boolean indexed = (buf.getInt(HEADER_FLAGS) & FLAG_TIME_INDEX) != 0;
+		this.rows = buf.getInt(HEADER_ROWS);
+		if (rows < 0 || rows > (Integer.MAX_VALUE - HEADER_SIZE) / 12) {
+			throw new IllegalArgumentException(path + ": invalid row count " + rows);
+		}
+		this.indexInterval = buf.getInt(HEADER_INDEX_INTERVAL);
+		this.indexEntries = indexed ? buf.getInt(HEADER_INDEX_ENTRIES) : 0;
+		this.timeColumn = HEADER_SIZE;
+		this.startColumn = timeColumn + 4 * rows;
+		this.endColumn = startColumn + 2 * rows;
+		this.directionColumn = endColumn + 2 * rows;
+		this.indexColumn = align(directionColumn + rows);
+		if ((indexed && (indexInterval <= 0 || indexEntries < 0)) || buf.limit() < indexColumn + 4L * indexEntries) {
+			throw new IllegalArgumentException(path + ": truncated columnar trace");
+		}
+	}
+
+	/**
+	 * Maps a columnar trace. The mapping stays valid after the file is closed and is released
+	 * when the trace is garbage collected
+	 *
+	 * @param path, The columnar trace file
+	 * @return trace, The mapped trace
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if the file is not a columnar trace
+	 */
+	public static ColumnarTrace open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new ColumnarTrace(path, map.order(ByteOrder.LITTLE_ENDIAN));
+		}
+	}
+
+	/**
+	 * @param path, A trace file
+	 * @return True if the file starts with the columnar trace magic
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isColumnarTrace(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			while (magic.hasRemaining() && channel.read(magic) > 0) {
+				// Read the first four bytes
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Converts a trace in the csv.txt layout into a columnar trace. The text trace is read twice
+	 * through a TraceReader, once to count the rows and once to fill the columns, so the
+	 * conversion needs no more memory than the mapped output
+	 *
+	 * @param csv, The text trace
+	 * @param out, The columnar trace to write, replaced if it exists
+	 * @return rows, The number of requests converted
+	 * @throws IOException if a file cannot be read or written
+	 * @throws IllegalArgumentException if a line is malformed or a value does not fit its column
+	 */
+	public static int convert(Path csv, Path out) throws IOException {
+		long count = 0;
+		boolean ordered = true;
+		long previous = Long.MIN_VALUE;
+		try (TraceReader trace = new TraceReader(csv)) {
+			while (trace.advance()) {
+				count++;
+				ordered &= trace.getTimeMillis() >= previous;
+				previous = trace.getTimeMillis();
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (count > (Integer.MAX_VALUE - HEADER_SIZE) / 12) {
+			throw new IllegalArgumentException(csv + ": too many requests for a columnar trace: " + count);
+		}
+		int rows = (int) count;
+		int indexEntries = ordered ? (rows + INDEX_INTERVAL - 1) / INDEX_INTERVAL : 0;
+		int startColumn = HEADER_SIZE + 4 * rows;
+		int endColumn = startColumn + 2 * rows;
+		int directionColumn = endColumn + 2 * rows;
+		int indexColumn = align(directionColumn + rows);
+		long size = indexColumn + 4L * indexEntries;
+
+		Files.deleteIfExists(out);
+		try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE); TraceReader trace = new TraceReader(csv)) {
+			MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			map.order(ByteOrder.LITTLE_ENDIAN);
+			map.putInt(HEADER_MAGIC, MAGIC);
+			map.putInt(HEADER_VERSION, VERSION);
+			map.putInt(HEADER_FLAGS, ordered ? FLAG_TIME_INDEX : 0);
+			map.putInt(HEADER_ROWS, rows);
+			map.putInt(HEADER_INDEX_INTERVAL, INDEX_INTERVAL);
+			map.putInt(HEADER_INDEX_ENTRIES, indexEntries);
+			for (int row = 0; row < rows && trace.advance(); row++) {
+				int time = toColumn(trace.getTimeMillis(), Integer.MIN_VALUE, Integer.MAX_VALUE, "time", csv);
+				map.putInt(HEADER_SIZE + 4 * row, time);
+				map.putShort(startColumn + 2 * row,
+						(short) toColumn(trace.getStartFloor(), 0, Short.MAX_VALUE, "start floor", csv));
+				map.putShort(endColumn + 2 * row,
+						(short) toColumn(trace.getEndFloor(), 0, Short.MAX_VALUE, "end floor", csv));
+				map.put(directionColumn + row, (byte) trace.getDirection().ordinal());
+				if (ordered && row % INDEX_INTERVAL == 0) {
+					map.putInt(indexColumn + 4 * (row / INDEX_INTERVAL), time);
+				}
+			}
+			map.force();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return rows;
+	}
+
+	/**
+	 * @return rows, The number of requests in the trace
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * @return True if the trace holds a time index, which is the case when its times are in order
+	 */
+	public boolean isIndexed() {
+		return indexEntries > 0;
+	}
+
+	/**
+	 * @param row, The index of the request
+	 * @return offset, The time of the request in milliseconds since midnight
+	 */
+	public int getTimeMillis(int row) {
+		return buf.getInt(timeColumn + 4 * checkRow(row));
+	}
+
+	/**
+	 * @param row, The index of the request
+	 * @return startFloor, The floor the request originates from
+	 */
+	public int getStartFloor(int row) {
+		return buf.getShort(startColumn + 2 * checkRow(row));
+	}
+
+	/**
+	 * @param row, The index of the request
+	 * @return endFloor, The destination of the request
+	 */
+	public int getEndFloor(int row) {
+		return buf.getShort(endColumn + 2 * checkRow(row));
+	}
+
+	/**
+	 * @param row, The index of the request
+	 * @return direction, The requested direction of the request
+	 */
+	public Direction getDirection(int row) {
+		int ordinal = buf.get(directionColumn + checkRow(row));
+		if (ordinal < 0 || ordinal >= DIRECTIONS.length) {
+			throw new IllegalArgumentException(path + " row " + row + ": invalid direction " + ordinal);
+		}
+		return DIRECTIONS[ordinal];
+	}
+
+	/**
+	 * The first request at or after a time. Uses the time index to narrow the search to one
+	 * interval when the trace has one, and scans the time column otherwise
+	 *
+	 * @param timeMillis, The time in milliseconds since midnight
+	 * @return row, The index of the first request not before the time, size() if there is none
+	 */
+	public int firstRowAt(long timeMillis) {
+		if (!isIndexed()) {
+			for (int row = 0; row < rows; row++) {
+				if (getTimeMillis(row) >= timeMillis) {
+					return row;
+				}
+			}
+			return rows;
+		}
+		// The last index entry before the time, the rows after it are searched in the column
+		int low = 0;
+		int high = indexEntries - 1;
+		int entry = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (buf.getInt(indexColumn + 4 * middle) < timeMillis) {
+				entry = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		if (entry < 0) {
+			return 0;
+		}
+		low = entry * indexInterval;
+		high = Math.min(rows, low + indexInterval);
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (getTimeMillis(middle) < timeMillis) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Builds the CallEvent of a request
+	 *
+	 * @param row, The index of the request
+	 * @return event, A new CallEvent holding the request
+	 */
+	public CallEvent event(int row) {
+		return new CallEvent(TimeParser.toDate(getTimeMillis(row)), getStartFloor(row), getEndFloor(row),
+				getDirection(row));
+	}
+
+	/**
+	 * A read-only list view of the trace building each CallEvent when it is read
+	 *
+	 * @return CallEvent List, The requests in file order
+	 */
+	public List<CallEvent> events() {
+		return new AbstractList<CallEvent>() {
+			@Override
+			public CallEvent get(int row) {
+				return event(row);
+			}
+
+			@Override
+			public int size() {
+				return rows;
+			}
+		};
+	}
+
+	private int checkRow(int row) {
+		if (row < 0 || row >= rows) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+		}
+		return row;
+	}
+
+	private static int align(int position) {
+		return (position + 3) & ~3;
+	}
+
+	private static int toColumn(long value, long min, long max, String field, Path csv) {
+		if (value < min || value > max) {
+			throw new IllegalArgumentException(csv + ": " + field + " does not fit a columnar trace: " + value);
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Converts a text trace into a columnar trace
+	 *
+	 * @param args, The text trace and the columnar trace to write
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.out.println("Usage: java Util.ColumnarTrace <csv trace> <columnar trace>");
+			return;
+		}
+		try {
+			long start = System.nanoTime();
+			int rows = convert(Paths.get(args[0]), Paths.get(args[1]));
+			System.out.println("Converted " + rows + " requests in " + (System.nanoTime() - start) / 1000000 + " ms");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
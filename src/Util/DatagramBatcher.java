@@ -0,0 +1,231 @@
+package Util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packs several encoded frames (calls, acks or status frames) into one BATCH datagram.
+ *
+ * A batch is flushed as soon as it holds maxBatchSize frames, when the next frame would not
+ * fit in a datagram, or when the oldest frame in the batch has waited lingerMillis. A linger
+ * of 0 flushes on every frame, which is the old one frame per packet behaviour, and NO_LINGER
+ * never sends on a timer: the batch only goes out when it is full or flushed by its owner.
+ *
+ * A completed batch is sealed under the batcher lock and handed to the flusher after the lock is
+ * released, one datagram at a time in the order they were sealed. A flusher that blocks, such as
+ * a reliable sender with a full window, therefore never blocks a thread adding to the batcher:
+ * the thread already sending takes the new datagram with it. The linger timer is shared by every
+ * batcher and never runs a flusher itself, it hands the send to a sender thread.
+ */
+public class DatagramBatcher {
+
+	/**
+	 * Receives each completed datagram, usually by sending it through a UDPHelper
+	 */
+	public interface Flusher {
+		void flush(byte[] datagram, int frameCount);
+	}
+
+	/** The linger of a batcher whose owner flushes it, no linger timer is ever scheduled */
+	public static final long NO_LINGER = -1;
+
+	private static final ScheduledThreadPoolExecutor LINGER_TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread t = new Thread(r, "Datagram_Batcher_Linger");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private static final ExecutorService SENDERS = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "Datagram_Batcher_Sender");
+		t.setDaemon(true);
+		return t;
+	});
+
+	static {
+		// A Batch Flushed Before Its Linger Ran Out Cancels The Timer Task, Which Must Not Stay Queued
+		LINGER_TIMER.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * A completed datagram waiting for the flusher
+	 */
+	private static class Sealed {
+		private final byte[] datagram;
+		private final int frameCount;
+
+		private Sealed(byte[] datagram, int frameCount) {
+			this.datagram = datagram;
+			this.frameCount = frameCount;
+		}
+	}
+
+	private final int maxBatchSize;
+	private final long lingerMillis;
+	private final Flusher flusher;
+	private final ByteBuffer batch;
+	private int frameCount;
+	private ScheduledFuture<?> lingerTask;
+	private final ArrayDeque<Sealed> sealed;
+	private boolean sending;
+
+	/**
+	 * The constructor of the batcher
+	 *
+	 * @param maxBatchSize, The maximum number of frames per datagram
+	 * @param lingerMillis, How long a frame may wait for others before the batch is sent, 0 to
+	 * send every frame at once, NO_LINGER to only send full or flushed batches
+	 * @param flusher, The callback that sends a completed datagram
+	 */
+	public DatagramBatcher(int maxBatchSize, long lingerMillis, Flusher flusher) {
+		if (maxBatchSize < 1 || maxBatchSize > MessageCodec.MAX_BATCH_FRAMES) {
+			throw new IllegalArgumentException("maxBatchSize must be between 1 and " + MessageCodec.MAX_BATCH_FRAMES);
+		}
+		this.maxBatchSize = maxBatchSize;
+		this.lingerMillis = lingerMillis;
+		this.flusher = flusher;
+		this.batch = ByteBuffer.allocate(MessageCodec.MAX_PAYLOAD_SIZE);
+		this.sealed = new ArrayDeque<Sealed>();
+		startBatch();
+	}
+
+	/**
+	 * Adds an encoded frame to the current batch, flushing as required
+	 *
+	 * @param frame, A complete frame produced by the MessageCodec
+	 */
+	public void add(byte[] frame) {
+		add(ByteBuffer.wrap(frame));
+	}
+
+	/**
+	 * Adds the encoded frame between the position and the limit of a buffer to the current batch,
+	 * flushing as required. The frame is copied, so the buffer can be reused for the next frame
+	 *
+	 * @param frame, A complete frame produced by the MessageCodec
+	 */
+	public void add(ByteBuffer frame) {
+		synchronized (this) {
+			if (batch.remaining() < frame.remaining()) {
+				seal();
+			}
+			batch.put(frame);
+			frameCount++;
+
+			if (frameCount >= maxBatchSize || lingerMillis == 0) {
+				seal();
+			} else if (lingerMillis > 0 && lingerTask == null) {
+				lingerTask = LINGER_TIMER.schedule(this::linger, lingerMillis, TimeUnit.MILLISECONDS);
+			}
+			if (sealed.isEmpty()) {
+				return;
+			}
+		}
+		send();
+	}
+
+	/**
+	 * Sends the current batch immediately if it holds any frames, or queues it behind the datagram
+	 * another thread is sending
+	 */
+	public void flush() {
+		synchronized (this) {
+			seal();
+		}
+		send();
+	}
+
+	/**
+	 * Runs on the linger timer: seals the batch and hands the send to a sender thread, so a blocked
+	 * flusher never delays the batches of the other batchers
+	 */
+	private void linger() {
+		synchronized (this) {
+			lingerTask = null;
+			seal();
+			if (sending || sealed.isEmpty()) {
+				return;
+			}
+		}
+		SENDERS.execute(this::send);
+	}
+
+	/**
+	 * Completes the current batch and queues it for the flusher, called holding the batcher lock
+	 */
+	private void seal() {
+		if (lingerTask != null) {
+			lingerTask.cancel(false);
+			lingerTask = null;
+		}
+		if (frameCount == 0) {
+			return;
+		}
+
+		byte[] datagram;
+		if (frameCount == 1) {
+			// A single frame travels on its own, without the batch header
+			datagram = Arrays.copyOfRange(batch.array(), MessageCodec.BATCH_HEADER_SIZE, batch.position());
+		} else {
+			batch.put(MessageCodec.BATCH_COUNT_OFFSET, (byte) frameCount);
+			datagram = Arrays.copyOf(batch.array(), batch.position());
+		}
+		sealed.add(new Sealed(datagram, frameCount));
+		startBatch();
+	}
+
+	/**
+	 * Hands the sealed datagrams to the flusher without holding the batcher lock. Only one thread
+	 * sends at a time, which keeps the datagrams in order; any other thread leaves its datagram to it
+	 */
+	private void send() {
+		synchronized (this) {
+			if (sending) {
+				return;
+			}
+			sending = true;
+		}
+		boolean failed = true;
+		try {
+			for (Sealed next = nextToSend(); next != null; next = nextToSend()) {
+				flusher.flush(next.datagram, next.frameCount);
+			}
+			failed = false;
+		} finally {
+			if (failed) {
+				synchronized (this) {
+					sending = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The next sealed datagram, null once none is left, when the sending thread stops sending
+	 */
+	private synchronized Sealed nextToSend() {
+		Sealed next = sealed.poll();
+		if (next == null) {
+			sending = false;
+		}
+		return next;
+	}
+
+	/**
+	 * @return The number of frames waiting in the current batch
+	 */
+	public synchronized int pending() {
+		return frameCount;
+	}
+
+	private void startBatch() {
+		batch.clear();
+		MessageCodec.writeBatchHeader(batch);
+		frameCount = 0;
+	}
+}
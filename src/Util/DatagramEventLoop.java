@@ -0,0 +1,212 @@
+package Util;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The UDP transport: a single threaded, non-blocking event loop. Any number of ports are bound
+ * as DatagramChannels and multiplexed on one Selector; every datagram received is handed to the
+ * receiver registered for its port on the I/O thread.
+ *
+ * I/O errors are reported and the loop carries on, close() stops the thread and releases
+ * every channel.
+ */
+public class DatagramEventLoop implements Transport, Runnable {
+
+	/**
+	 * A port bound by the event loop, used to send datagrams from that port
+	 */
+	private class ChannelEndpoint implements Endpoint {
+		private final DatagramChannel channel;
+		private final Receiver handler;
+		private final int port;
+
+		private ChannelEndpoint(DatagramChannel channel, Receiver handler, int port) {
+			this.channel = channel;
+			this.handler = handler;
+			this.port = port;
+		}
+
+		@Override
+		public boolean send(ByteBuffer datagram, SocketAddress destination) {
+			try {
+				if (channel.send(datagram, destination) == 0) {
+					System.out.println("Port " + port + ": send buffer full, datagram dropped");
+					return false;
+				}
+				return true;
+			} catch (IOException e) {
+				System.out.println("Port " + port + ": error sending datagram to " + destination);
+				e.printStackTrace();
+				return false;
+			}
+		}
+
+		@Override
+		public int getPort() {
+			return port;
+		}
+	}
+
+	private final Selector selector;
+	private final Queue<ChannelEndpoint> pendingRegistrations;
+	private final ByteBuffer receiveBuffer;
+	private final String name;
+	private volatile boolean running;
+	private Thread ioThread;
+
+	/**
+	 * The constructor of the event loop
+	 *
+	 * @param name, The name given to the I/O thread
+	 * @throws IOException if the selector cannot be opened
+	 */
+	public DatagramEventLoop(String name) throws IOException {
+		this.name = name;
+		this.selector = Selector.open();
+		this.pendingRegistrations = new ConcurrentLinkedQueue<ChannelEndpoint>();
+		this.receiveBuffer = ByteBuffer.allocateDirect(MessageCodec.MAX_DATAGRAM_SIZE);
+	}
+
+	@Override
+	public Endpoint open(int port, Receiver handler) throws IOException {
+		DatagramChannel channel = DatagramChannel.open();
+		try {
+			channel.configureBlocking(false);
+			channel.bind(new InetSocketAddress(port));
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		ChannelEndpoint endpoint = new ChannelEndpoint(channel, handler, port);
+		pendingRegistrations.add(endpoint);
+		selector.wakeup();
+		return endpoint;
+	}
+
+	/**
+	 * Starts the I/O thread
+	 */
+	@Override
+	public synchronized void start() {
+		if (ioThread != null) {
+			return;
+		}
+		running = true;
+		ioThread = new Thread(this, name);
+		ioThread.start();
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				registerPending();
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (key.isValid() && key.isReadable()) {
+						drain((ChannelEndpoint) key.attachment());
+					}
+				}
+			} catch (IOException e) {
+				System.out.println(name + ": selector error");
+				e.printStackTrace();
+			}
+		}
+		closeChannels();
+	}
+
+	/**
+	 * Reads every datagram currently queued on the endpoint's channel
+	 */
+	private void drain(ChannelEndpoint endpoint) {
+		while (true) {
+			receiveBuffer.clear();
+			SocketAddress source;
+			try {
+				source = endpoint.channel.receive(receiveBuffer);
+			} catch (IOException e) {
+				System.out.println("Port " + endpoint.port + ": error receiving datagram");
+				e.printStackTrace();
+				return;
+			}
+			if (source == null) {
+				return;
+			}
+			receiveBuffer.flip();
+			try {
+				endpoint.handler.received(endpoint, receiveBuffer, source);
+			} catch (RuntimeException e) {
+				System.out.println("Port " + endpoint.port + ": handler failed for datagram from " + source);
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void registerPending() throws IOException {
+		ChannelEndpoint endpoint;
+		while ((endpoint = pendingRegistrations.poll()) != null) {
+			endpoint.channel.register(selector, SelectionKey.OP_READ, endpoint);
+		}
+	}
+
+	private void closeChannels() {
+		for (SelectionKey key : selector.keys()) {
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		ChannelEndpoint endpoint;
+		while ((endpoint = pendingRegistrations.poll()) != null) {
+			try {
+				endpoint.channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stops the I/O thread and closes every channel of the loop
+	 */
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			running = false;
+			thread = ioThread;
+		}
+		if (thread == null) {
+			if (selector.isOpen()) {
+				closeChannels();
+			}
+			return;
+		}
+		selector.wakeup();
+		if (thread != Thread.currentThread()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package Util;
+
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The addresses of the floors and elevators known to the scheduler, keyed by role and id.
+ * Entries are registered from HELLO frames (and refreshed from the source of elevator status
+ * frames), so addresses are resolved once by the network stack and the send path only does a
+ * map lookup. An entry is replaced when its floor or elevator announces itself from a new address.
+ */
+public class EndpointRegistry {
+
+	private final Map<Integer, SocketAddress> floors;
+	private final Map<Integer, SocketAddress> elevators;
+
+	/**
+	 * The constructor of an empty registry
+	 */
+	public EndpointRegistry() {
+		floors = new ConcurrentHashMap<Integer, SocketAddress>();
+		elevators = new ConcurrentHashMap<Integer, SocketAddress>();
+	}
+
+	private Map<Integer, SocketAddress> endpoints(int role) {
+		switch (role) {
+		case MessageCodec.ROLE_FLOOR:
+			return floors;
+		case MessageCodec.ROLE_ELEVATOR:
+			return elevators;
+		default:
+			throw new IllegalArgumentException("Unknown role: " + role);
+		}
+	}
+
+	/**
+	 * Registers the address of a floor or an elevator
+	 *
+	 * @param role, MessageCodec.ROLE_FLOOR or MessageCodec.ROLE_ELEVATOR
+	 * @param id, The floor identifier or elevator number
+	 * @param address, The address the floor or elevator is reached at
+	 * @return True if the entry is new or its address changed
+	 */
+	public boolean register(int role, int id, SocketAddress address) {
+		Map<Integer, SocketAddress> endpoints = endpoints(role);
+		if (address.equals(endpoints.get(id))) {
+			return false;
+		}
+		SocketAddress previous = endpoints.put(id, address);
+		if (address.equals(previous)) {
+			return false;
+		}
+		System.out.println((role == MessageCodec.ROLE_FLOOR ? "Floor " : "Elevator ") + id + " registered at "
+				+ address + (previous == null ? "" : " (was " + previous + ")"));
+		return true;
+	}
+
+	/**
+	 * @param role, MessageCodec.ROLE_FLOOR or MessageCodec.ROLE_ELEVATOR
+	 * @param id, The floor identifier or elevator number
+	 * @return address, The registered address, null if the floor or elevator never announced itself
+	 */
+	public SocketAddress lookup(int role, int id) {
+		return endpoints(role).get(id);
+	}
+
+	/**
+	 * @param role, MessageCodec.ROLE_FLOOR or MessageCodec.ROLE_ELEVATOR
+	 * @param id, The floor identifier or elevator number
+	 * @return True if an entry was removed
+	 */
+	public boolean unregister(int role, int id) {
+		return endpoints(role).remove(id) != null;
+	}
+
+	/**
+	 * @param role, MessageCodec.ROLE_FLOOR or MessageCodec.ROLE_ELEVATOR
+	 * @return endpoints, A live read-only view of the registered addresses of the role
+	 */
+	public Map<Integer, SocketAddress> getEndpoints(int role) {
+		return Collections.unmodifiableMap(endpoints(role));
+	}
+}
@@ -0,0 +1,99 @@
+package Util;
+
+import java.util.Date;
+
+import ElevatorSubSystem.Direction;
+
+/**
+ * The primitive form of a floor request used on the receive, dispatch and command path. The start
+ * floor, end floor and direction of a request are packed into one int and its time is kept as a
+ * separate long in milliseconds, the value CALL and COMMAND frames carry (the getTime() of the
+ * CallEvent). Requests are held in CallBuffers, so no object is created per request.
+ *
+ * Bits 0 to 14 hold the start floor, bits 15 to 29 the end floor and bits 30 and 31 the ordinal
+ * of the direction. CallEvent stays the object form of a request for the trace tools and tests.
+ */
+public final class HallCall {
+
+	/** The highest floor a packed request can hold */
+	public static final int MAX_FLOOR = (1 << 15) - 1;
+
+	private static final int FLOOR_BITS = 15;
+	private static final int DIRECTION_SHIFT = 2 * FLOOR_BITS;
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private HallCall() {
+	}
+
+	/**
+	 * Packs a request
+	 *
+	 * @param startFloor, The floor the request originates from
+	 * @param endFloor, The destination of the request
+	 * @param direction, The ordinal of the requested direction
+	 * @return call, The packed request
+	 * @throws IllegalArgumentException if a floor or the direction is out of range
+	 */
+	public static int pack(int startFloor, int endFloor, int direction) {
+		if (startFloor < 0 || startFloor > MAX_FLOOR || endFloor < 0 || endFloor > MAX_FLOOR) {
+			throw new IllegalArgumentException("Invalid floors: " + startFloor + ", " + endFloor);
+		}
+		if (direction < 0 || direction >= DIRECTIONS.length) {
+			throw new IllegalArgumentException("Invalid direction: " + direction);
+		}
+		return startFloor | endFloor << FLOOR_BITS | direction << DIRECTION_SHIFT;
+	}
+
+	/**
+	 * Packs the floors and direction of a CallEvent
+	 *
+	 * @param event, The request
+	 * @return call, The packed request
+	 */
+	public static int pack(CallEvent event) {
+		return pack(event.getStartFloor(), event.getEndFloor(), event.getDirection().ordinal());
+	}
+
+	/**
+	 * @param call, A packed request
+	 * @return startFloor, The floor the request originates from
+	 */
+	public static int startFloor(int call) {
+		return call & MAX_FLOOR;
+	}
+
+	/**
+	 * @param call, A packed request
+	 * @return endFloor, The destination of the request
+	 */
+	public static int endFloor(int call) {
+		return call >>> FLOOR_BITS & MAX_FLOOR;
+	}
+
+	/**
+	 * @param call, A packed request
+	 * @return direction, The ordinal of the requested direction
+	 */
+	public static int directionOrdinal(int call) {
+		return call >>> DIRECTION_SHIFT;
+	}
+
+	/**
+	 * @param call, A packed request
+	 * @return direction, The requested direction
+	 */
+	public static Direction direction(int call) {
+		return DIRECTIONS[directionOrdinal(call)];
+	}
+
+	/**
+	 * Builds the object form of a request
+	 *
+	 * @param time, The time of the request in milliseconds
+	 * @param call, The packed request
+	 * @return event, A new CallEvent holding the request
+	 */
+	public static CallEvent toCallEvent(long time, int call) {
+		return new CallEvent(new Date(time), startFloor(call), endFloor(call), direction(call));
+	}
+}
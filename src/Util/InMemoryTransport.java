@@ -0,0 +1,167 @@
+package Util;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An in-process transport for running the Floor, Scheduler and Elevator subsystems in a single
+ * JVM. Ports live in one JVM wide table; sending copies the datagram onto the lock-free queue
+ * of the destination endpoint and wakes the delivery thread of the transport that owns it, so
+ * no datagram ever crosses the kernel.
+ *
+ * Like UDP, a datagram sent to a port nobody has bound is dropped.
+ */
+public class InMemoryTransport implements Transport, Runnable {
+
+	private static final ConcurrentHashMap<Integer, MemoryEndpoint> PORTS = new ConcurrentHashMap<Integer, MemoryEndpoint>();
+	private static final InetAddress LOCAL = InetAddress.getLoopbackAddress();
+
+	/**
+	 * A datagram waiting on an endpoint queue
+	 */
+	private static class Message {
+		final ByteBuffer datagram;
+		final SocketAddress source;
+
+		Message(ByteBuffer datagram, SocketAddress source) {
+			this.datagram = datagram;
+			this.source = source;
+		}
+	}
+
+	/**
+	 * A port bound in the JVM wide table
+	 */
+	private class MemoryEndpoint implements Endpoint {
+		private final int port;
+		private final Receiver receiver;
+		private final SocketAddress address;
+		private final ConcurrentLinkedQueue<Message> queue;
+
+		private MemoryEndpoint(int port, Receiver receiver) {
+			this.port = port;
+			this.receiver = receiver;
+			this.address = new InetSocketAddress(LOCAL, port);
+			this.queue = new ConcurrentLinkedQueue<Message>();
+		}
+
+		@Override
+		public boolean send(ByteBuffer datagram, SocketAddress destination) {
+			MemoryEndpoint target = PORTS.get(((InetSocketAddress) destination).getPort());
+			if (target == null) {
+				return false;
+			}
+			ByteBuffer copy = ByteBuffer.allocate(datagram.remaining());
+			copy.put(datagram).flip();
+			target.queue.offer(new Message(copy, address));
+			target.owner().wakeUp();
+			return true;
+		}
+
+		@Override
+		public int getPort() {
+			return port;
+		}
+
+		private InMemoryTransport owner() {
+			return InMemoryTransport.this;
+		}
+	}
+
+	private final List<MemoryEndpoint> endpoints;
+	private final String name;
+	private volatile boolean running;
+	private volatile Thread deliveryThread;
+
+	/**
+	 * The constructor of the transport
+	 *
+	 * @param name, The name given to the delivery thread
+	 */
+	public InMemoryTransport(String name) {
+		this.name = name;
+		this.endpoints = new CopyOnWriteArrayList<MemoryEndpoint>();
+	}
+
+	@Override
+	public Endpoint open(int port, Receiver receiver) throws IOException {
+		MemoryEndpoint endpoint = new MemoryEndpoint(port, receiver);
+		if (PORTS.putIfAbsent(port, endpoint) != null) {
+			throw new BindException("Port " + port + " is already bound in this JVM");
+		}
+		endpoints.add(endpoint);
+		return endpoint;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (deliveryThread != null) {
+			return;
+		}
+		running = true;
+		deliveryThread = new Thread(this, name);
+		deliveryThread.start();
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			boolean delivered = false;
+			for (MemoryEndpoint endpoint : endpoints) {
+				Message message;
+				while ((message = endpoint.queue.poll()) != null) {
+					delivered = true;
+					try {
+						endpoint.receiver.received(endpoint, message.datagram, message.source);
+					} catch (RuntimeException e) {
+						System.out.println("Port " + endpoint.port + ": receiver failed for datagram from "
+								+ message.source);
+						e.printStackTrace();
+					}
+				}
+			}
+			if (!delivered) {
+				LockSupport.park(this);
+			}
+		}
+	}
+
+	private void wakeUp() {
+		Thread thread = deliveryThread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			running = false;
+			thread = deliveryThread;
+		}
+		for (MemoryEndpoint endpoint : endpoints) {
+			PORTS.remove(endpoint.port, endpoint);
+		}
+		endpoints.clear();
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			if (thread != Thread.currentThread()) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package Util;
+
+/**
+ * The floor ports of the scheduler ingest, shared by the floors that send to them and the
+ * scheduler readers that serve them. Reader 0 serves port 29 and reader i port
+ * FLOOR_INGEST_BASE_PORT + i; a floor is always pinned to the same reader so its requests are
+ * handled in order.
+ *
+ * The number of readers is set with the scheduler.ingest.readers system property (default 1),
+ * and must be the same for the floors and the scheduler.
+ */
+public final class IngestPorts {
+
+	public static final int FLOOR_SCHEDULER_PORT = 29;
+	public static final int FLOOR_INGEST_BASE_PORT = 40;
+	public static final int READERS = Integer.getInteger("scheduler.ingest.readers", 1);
+
+	private IngestPorts() {
+	}
+
+	/**
+	 * The floor port served by a reader
+	 *
+	 * @param reader, The index of the reader
+	 * @return port, The port floors assigned to that reader send to
+	 */
+	public static int ingestPort(int reader) {
+		return reader == 0 ? FLOOR_SCHEDULER_PORT : FLOOR_INGEST_BASE_PORT + reader;
+	}
+
+	/**
+	 * The port a floor sends its requests to
+	 *
+	 * @param floorId, The identifier of the floor process
+	 * @return port, The port of the reader the floor is pinned to
+	 */
+	public static int floorPort(int floorId) {
+		return ingestPort(Math.floorMod(floorId, Math.max(1, READERS)));
+	}
+}
@@ -0,0 +1,613 @@
+package Util;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * The binary wire protocol shared by the Floor, Scheduler and Elevator subsystems.
+ *
+ * Every frame starts with a two byte header (protocol version, frame type) followed by the
+ * frame body. Integer fields are written as unsigned varints and the call time as a zig-zag
+ * varint, so floors and ports of any size fit and small values take a single byte.
+ *
+ * CALL:   [time][start floor][end floor][direction]
+ * ACK:    [number of frames acknowledged]
+ * STATUS: [elevator number][elevator port][state][floor][motor]
+ * BATCH:  [frame count][frame]...[frame], several complete frames packed in one datagram
+ * DATA:   [session][sequence][payload], a sequenced datagram of the reliable delivery layer
+ * SACK:   [session][next expected sequence][64 bit map of sequences received beyond it]
+ * COMMAND: [elevator number][time][start floor][end floor][direction], a request addressed to
+ *          one car of an elevator bank sharing a single port
+ * DELTA:  [elevator number][field mask][port][state][floor][motor][door], an elevator status
+ *          carrying only the fields flagged in the mask (the DELTA_* bits)
+ * HELLO:  [role][id], announces a floor or an elevator to the scheduler, which registers the
+ *          source address of the datagram for that role and id
+ * SUBSCRIBE: [floor], subscribes the sender to the notifications of a floor
+ * NOTIFY: [kind][floor][elevator number][value], an arrival, assigned car or ETA notification
+ *          pushed by the scheduler to the subscribers of the floor (see the NOTIFY_* kinds)
+ * CANCEL: [elevator number][time][start floor][end floor][direction], withdraws a COMMAND from a
+ *          car before the scheduler hands the request over to another car
+ * CANCELLED: [elevator number][withdrawn][time][start floor][end floor][direction], the reply of a
+ *          car to a CANCEL, withdrawn is 1 if the command was still queued and was withdrawn
+ * ASSIGN: [time][start floor][end floor][direction][elevator number + 1], acknowledges a call of
+ *          the destination dispatch mode with the car assigned to it, 0 if none could be assigned yet
+ */
+public final class MessageCodec {
+
+	public static final byte VERSION = 1;
+
+	public static final byte CALL = 1;
+	public static final byte ACK = 2;
+	public static final byte STATUS = 3;
+	public static final byte BATCH = 4;
+	public static final byte DATA = 5;
+	public static final byte SACK = 6;
+	public static final byte COMMAND = 7;
+	public static final byte HELLO = 8;
+	public static final byte DELTA = 9;
+	public static final byte SUBSCRIBE = 10;
+	public static final byte NOTIFY = 11;
+	public static final byte CANCEL = 12;
+	public static final byte ASSIGN = 13;
+	public static final byte CANCELLED = 14;
+
+	// Kinds Of NOTIFY Frames, The Value Is Unused, The Requested Direction Or The ETA In Seconds
+	public static final int NOTIFY_ARRIVAL = 0;
+	public static final int NOTIFY_ASSIGNED = 1;
+	public static final int NOTIFY_ETA = 2;
+	public static final int NOTIFY_KINDS = 3;
+
+	// Notification Array Layout
+	public static final int NOTIFY_KIND = 0;
+	public static final int NOTIFY_FLOOR = 1;
+	public static final int NOTIFY_ELEVATOR = 2;
+	public static final int NOTIFY_VALUE = 3;
+	public static final int NOTIFY_FIELDS = 4;
+
+	// Roles Announced In HELLO Frames
+	public static final int ROLE_FLOOR = 0;
+	public static final int ROLE_ELEVATOR = 1;
+
+	/** Upper bound for the encoded size of any single frame */
+	public static final int MAX_FRAME_SIZE = 64;
+
+	/** Upper bound for the size of a datagram, batched or not */
+	public static final int MAX_DATAGRAM_SIZE = 1024;
+
+	/** Room left for a payload once the DATA header of the reliable layer is added */
+	public static final int MAX_PAYLOAD_SIZE = MAX_DATAGRAM_SIZE - 16;
+
+	/** The frame count of a batch is a single byte varint */
+	public static final int MAX_BATCH_FRAMES = 127;
+	public static final int BATCH_COUNT_OFFSET = 2;
+	public static final int BATCH_HEADER_SIZE = 3;
+
+	// Status Array Layout (As Used By The Scheduler)
+	public static final int STATUS_ELEVATOR_NUMBER = 0;
+	public static final int STATUS_PORT = 1;
+	public static final int STATUS_STATE = 2;
+	public static final int STATUS_FLOOR = 3;
+	public static final int STATUS_MOTOR = 4;
+	public static final int STATUS_DOOR = 5;
+	public static final int STATUS_FIELDS = 6;
+
+	// Field Mask Of DELTA Frames
+	public static final int DELTA_PORT = 1;
+	public static final int DELTA_STATE = 1 << 1;
+	public static final int DELTA_FLOOR = 1 << 2;
+	public static final int DELTA_MOTOR = 1 << 3;
+	public static final int DELTA_DOOR = 1 << 4;
+	public static final int DELTA_ALL = DELTA_PORT | DELTA_STATE | DELTA_FLOOR | DELTA_MOTOR | DELTA_DOOR;
+
+	private static final int DELTA_FIELDS = STATUS_FIELDS - STATUS_PORT;
+
+	private MessageCodec() {
+	}
+
+	/**
+	 * Writes the version/type header of a frame
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param type, The frame type
+	 */
+	public static void writeHeader(ByteBuffer buf, byte type) {
+		buf.put(VERSION);
+		buf.put(type);
+	}
+
+	/**
+	 * Reads and validates the header of the next frame in the buffer
+	 *
+	 * @param buf, The buffer positioned at the start of a frame
+	 * @return type, The type of the frame that follows
+	 * @throws IllegalArgumentException if the frame is truncated or of an unknown version
+	 */
+	public static byte readHeader(ByteBuffer buf) {
+		if (buf.remaining() < 2) {
+			throw new IllegalArgumentException("Truncated frame header");
+		}
+		byte version = buf.get();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported protocol version: " + version);
+		}
+		return buf.get();
+	}
+
+	/**
+	 * Writes the header of a BATCH datagram with a frame count of 0, the count is patched at
+	 * BATCH_COUNT_OFFSET once the batch is complete
+	 *
+	 * @param buf, The buffer the datagram is written to
+	 */
+	public static void writeBatchHeader(ByteBuffer buf) {
+		writeHeader(buf, BATCH);
+		buf.put((byte) 0);
+	}
+
+	/**
+	 * Opens a received datagram for reading. A BATCH datagram is positioned at its first frame,
+	 * any other datagram is left at its start and counts as a single frame.
+	 *
+	 * @param buf, The buffer holding the received datagram
+	 * @return count, The number of frames to read with readHeader and the decode methods
+	 */
+	public static int openDatagram(ByteBuffer buf) {
+		int start = buf.position();
+		if (readHeader(buf) == BATCH) {
+			return getVarInt(buf);
+		}
+		buf.position(start);
+		return 1;
+	}
+
+	/**
+	 * Writes the header of a DATA datagram, the payload datagram follows it
+	 *
+	 * @param buf, The buffer the datagram is written to
+	 * @param session, The session of the sender, changes whenever the sender restarts
+	 * @param sequence, The sequence number of the payload
+	 */
+	public static void encodeDataHeader(ByteBuffer buf, int session, int sequence) {
+		writeHeader(buf, DATA);
+		putVarInt(buf, session);
+		putVarInt(buf, sequence);
+	}
+
+	/**
+	 * Encodes a complete SACK frame
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param session, The session being acknowledged
+	 * @param cumulative, Every sequence below this one has been received
+	 * @param received, Bit i is set when sequence cumulative + i has been received
+	 */
+	public static void encodeSack(ByteBuffer buf, int session, int cumulative, long received) {
+		writeHeader(buf, SACK);
+		putVarInt(buf, session);
+		putVarInt(buf, cumulative);
+		buf.putLong(received);
+	}
+
+	/**
+	 * Encodes a complete CALL frame (header and body)
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param event, The floor request to encode
+	 */
+	public static void encodeCall(ByteBuffer buf, CallEvent event) {
+		encodeCall(buf, event.getStartTime().getTime(), HallCall.pack(event));
+	}
+
+	/**
+	 * Encodes a complete CALL frame from the primitive form of a request
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param time, The time of the request in milliseconds
+	 * @param call, The packed request (see HallCall)
+	 */
+	public static void encodeCall(ByteBuffer buf, long time, int call) {
+		writeHeader(buf, CALL);
+		putCall(buf, time, call);
+	}
+
+	private static void putCall(ByteBuffer buf, long time, int call) {
+		putVarLong(buf, time);
+		putVarInt(buf, HallCall.startFloor(call));
+		putVarInt(buf, HallCall.endFloor(call));
+		buf.put((byte) HallCall.directionOrdinal(call));
+	}
+
+	/**
+	 * Decodes the body of a CALL frame, the header must already have been read
+	 *
+	 * @param buf, The buffer positioned after the frame header
+	 * @return CallEvent, The decoded floor request
+	 */
+	public static CallEvent decodeCall(ByteBuffer buf) {
+		long time = decodeCallTime(buf);
+		return HallCall.toCallEvent(time, decodeCallFloors(buf));
+	}
+
+	/**
+	 * Decodes the body of a CALL frame into a buffer of requests, the header must already have
+	 * been read
+	 *
+	 * @param buf, The buffer positioned after the frame header
+	 * @param calls, The buffer the request is appended to
+	 */
+	public static void decodeCall(ByteBuffer buf, CallBuffer calls) {
+		long time = decodeCallTime(buf);
+		calls.add(time, decodeCallFloors(buf));
+	}
+
+	/**
+	 * Decodes the time at the start of a CALL body, read before decodeCallFloors
+	 *
+	 * @param buf, The buffer positioned after the frame header
+	 * @return time, The time of the request in milliseconds
+	 */
+	public static long decodeCallTime(ByteBuffer buf) {
+		return getVarLong(buf);
+	}
+
+	/**
+	 * Decodes the floors and direction following the time of a CALL body
+	 *
+	 * @param buf, The buffer positioned after the time of the request
+	 * @return call, The packed request (see HallCall)
+	 * @throws IllegalArgumentException if a floor or the direction is out of range
+	 */
+	public static int decodeCallFloors(ByteBuffer buf) {
+		int startFloor = getVarInt(buf);
+		int endFloor = getVarInt(buf);
+		return HallCall.pack(startFloor, endFloor, buf.get());
+	}
+
+	/**
+	 * Encodes a complete COMMAND frame, a CALL addressed to one elevator
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param elevatorNumber, The number of the elevator the request is for
+	 * @param event, The floor request to encode
+	 */
+	public static void encodeCommand(ByteBuffer buf, int elevatorNumber, CallEvent event) {
+		encodeCommand(buf, elevatorNumber, event.getStartTime().getTime(), HallCall.pack(event));
+	}
+
+	/**
+	 * Encodes a complete COMMAND frame from the primitive form of a request
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param elevatorNumber, The number of the elevator the request is for
+	 * @param time, The time of the request in milliseconds
+	 * @param call, The packed request (see HallCall)
+	 */
+	public static void encodeCommand(ByteBuffer buf, int elevatorNumber, long time, int call) {
+		writeHeader(buf, COMMAND);
+		putVarInt(buf, elevatorNumber);
+		putCall(buf, time, call);
+	}
+
+	/**
+	 * Encodes a complete CANCEL frame, withdrawing a request sent to one elevator
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param elevatorNumber, The number of the elevator the request was sent to
+	 * @param time, The time of the request in milliseconds
+	 * @param call, The packed request (see HallCall)
+	 */
+	public static void encodeCancel(ByteBuffer buf, int elevatorNumber, long time, int call) {
+		writeHeader(buf, CANCEL);
+		putVarInt(buf, elevatorNumber);
+		putCall(buf, time, call);
+	}
+
+	/**
+	 * Encodes a complete CANCELLED frame, the reply of an elevator to a CANCEL frame
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param elevatorNumber, The number of the elevator
+	 * @param withdrawn, True if the request was still queued and was withdrawn
+	 * @param time, The time of the request in milliseconds, as it was cancelled
+	 * @param call, The packed request, as it was cancelled (see HallCall)
+	 */
+	public static void encodeCancelled(ByteBuffer buf, int elevatorNumber, boolean withdrawn, long time, int call) {
+		writeHeader(buf, CANCELLED);
+		putVarInt(buf, elevatorNumber);
+		putVarInt(buf, withdrawn ? 1 : 0);
+		putCall(buf, time, call);
+	}
+
+	/**
+	 * Encodes a complete ASSIGN frame, the acknowledgement of a destination call
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param time, The time of the call in milliseconds
+	 * @param call, The packed call (see HallCall)
+	 * @param elevatorNumber, The car assigned to the call, -1 if none could be assigned yet
+	 */
+	public static void encodeAssign(ByteBuffer buf, long time, int call, int elevatorNumber) {
+		writeHeader(buf, ASSIGN);
+		putCall(buf, time, call);
+		putVarInt(buf, elevatorNumber + 1);
+	}
+
+	/**
+	 * Decodes the car of an ASSIGN frame, read after decodeCallTime and decodeCallFloors
+	 *
+	 * @param buf, The buffer positioned after the call of the frame
+	 * @return elevatorNumber, The car assigned to the call, -1 if none could be assigned yet
+	 */
+	public static int decodeAssignedCar(ByteBuffer buf) {
+		return getVarInt(buf) - 1;
+	}
+
+	/**
+	 * Encodes a complete ACK frame
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param count, The number of frames being acknowledged
+	 */
+	public static void encodeAck(ByteBuffer buf, int count) {
+		writeHeader(buf, ACK);
+		putVarInt(buf, count);
+	}
+
+	/**
+	 * Decodes the body of an ACK frame
+	 *
+	 * @param buf, The buffer positioned after the frame header
+	 * @return count, The number of frames acknowledged
+	 */
+	public static int decodeAck(ByteBuffer buf) {
+		return getVarInt(buf);
+	}
+
+	/**
+	 * Encodes a complete STATUS frame
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param elevatorNumber, The unique elevator number
+	 * @param port, The port the elevator receives commands on
+	 * @param state, The ordinal of the current ElevatorState
+	 * @param floor, The current floor of the elevator
+	 * @param motor, The ordinal of the current ElevatorMotor
+	 */
+	public static void encodeStatus(ByteBuffer buf, int elevatorNumber, int port, int state, int floor, int motor) {
+		writeHeader(buf, STATUS);
+		putVarInt(buf, elevatorNumber);
+		putVarInt(buf, port);
+		putVarInt(buf, state);
+		putVarInt(buf, floor);
+		putVarInt(buf, motor);
+	}
+
+	/**
+	 * Decodes the body of a STATUS frame into the supplied array (see the STATUS_* indexes)
+	 *
+	 * @param buf, The buffer positioned after the frame header
+	 * @param status, The array of at least STATUS_FIELDS entries that receives the values
+	 */
+	public static void decodeStatus(ByteBuffer buf, int[] status) {
+		status[STATUS_ELEVATOR_NUMBER] = getVarInt(buf);
+		status[STATUS_PORT] = getVarInt(buf);
+		status[STATUS_STATE] = getVarInt(buf);
+		status[STATUS_FLOOR] = getVarInt(buf);
+		status[STATUS_MOTOR] = getVarInt(buf);
+	}
+
+	/**
+	 * Encodes a complete DELTA frame holding the masked fields of a status
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param status, The status in the STATUS_* layout
+	 * @param mask, The DELTA_* bits of the fields to send
+	 */
+	public static void encodeStatusDelta(ByteBuffer buf, int[] status, int mask) {
+		writeHeader(buf, DELTA);
+		putVarInt(buf, status[STATUS_ELEVATOR_NUMBER]);
+		buf.put((byte) mask);
+		for (int field = 0; field < DELTA_FIELDS; field++) {
+			if ((mask & (1 << field)) != 0) {
+				putVarInt(buf, status[STATUS_PORT + field]);
+			}
+		}
+	}
+
+	/**
+	 * Decodes the body of a DELTA frame onto the last known status of the elevator
+	 *
+	 * @param buf, The buffer positioned after the frame header
+	 * @param statusByElevator, Returns the status array (STATUS_* layout) of an elevator number
+	 * @return status, The updated status of the elevator
+	 */
+	public static int[] decodeStatusDelta(ByteBuffer buf, IntFunction<int[]> statusByElevator) {
+		int elevatorNumber = getVarInt(buf);
+		int mask = buf.get();
+		if ((mask & ~DELTA_ALL) != 0) {
+			throw new IllegalArgumentException("Invalid field mask: " + mask);
+		}
+		int[] status = statusByElevator.apply(elevatorNumber);
+		status[STATUS_ELEVATOR_NUMBER] = elevatorNumber;
+		for (int field = 0; field < DELTA_FIELDS; field++) {
+			if ((mask & (1 << field)) != 0) {
+				status[STATUS_PORT + field] = getVarInt(buf);
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * Encodes a complete HELLO frame
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param role, ROLE_FLOOR or ROLE_ELEVATOR
+	 * @param id, The floor identifier or elevator number
+	 */
+	public static void encodeHello(ByteBuffer buf, int role, int id) {
+		writeHeader(buf, HELLO);
+		putVarInt(buf, role);
+		putVarInt(buf, id);
+	}
+
+	/**
+	 * Encodes a complete SUBSCRIBE frame
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param floor, The floor whose notifications are wanted
+	 */
+	public static void encodeSubscribe(ByteBuffer buf, int floor) {
+		writeHeader(buf, SUBSCRIBE);
+		putVarInt(buf, floor);
+	}
+
+	/**
+	 * Encodes a complete NOTIFY frame
+	 *
+	 * @param buf, The buffer the frame is written to
+	 * @param kind, NOTIFY_ARRIVAL, NOTIFY_ASSIGNED or NOTIFY_ETA
+	 * @param floor, The floor the notification is about
+	 * @param elevatorNumber, The elevator the notification is about
+	 * @param value, The direction of an assignment or the ETA in seconds
+	 */
+	public static void encodeNotify(ByteBuffer buf, int kind, int floor, int elevatorNumber, int value) {
+		writeHeader(buf, NOTIFY);
+		putVarInt(buf, kind);
+		putVarInt(buf, floor);
+		putVarInt(buf, elevatorNumber);
+		putVarInt(buf, value);
+	}
+
+	/**
+	 * Decodes the body of a NOTIFY frame into the supplied array (see the NOTIFY_* indexes)
+	 *
+	 * @param buf, The buffer positioned after the frame header
+	 * @param notification, The array of at least NOTIFY_FIELDS entries that receives the values
+	 */
+	public static void decodeNotify(ByteBuffer buf, int[] notification) {
+		notification[NOTIFY_KIND] = getVarInt(buf);
+		notification[NOTIFY_FLOOR] = getVarInt(buf);
+		notification[NOTIFY_ELEVATOR] = getVarInt(buf);
+		notification[NOTIFY_VALUE] = getVarInt(buf);
+		if (notification[NOTIFY_KIND] >= NOTIFY_KINDS) {
+			throw new IllegalArgumentException("Unknown notification kind: " + notification[NOTIFY_KIND]);
+		}
+	}
+
+	/**
+	 * Writes a non-negative int as an unsigned varint (7 bits per byte)
+	 */
+	public static void putVarInt(ByteBuffer buf, int value) {
+		while ((value & ~0x7F) != 0) {
+			buf.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buf.put((byte) value);
+	}
+
+	/**
+	 * Reads an unsigned varint
+	 */
+	public static int getVarInt(ByteBuffer buf) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = buf.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	/**
+	 * Writes a signed long as a zig-zag varint
+	 */
+	public static void putVarLong(ByteBuffer buf, long value) {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			buf.put((byte) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		buf.put((byte) zigzag);
+	}
+
+	/**
+	 * Reads a signed zig-zag varint long
+	 */
+	public static long getVarLong(ByteBuffer buf) {
+		long zigzag = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buf.get();
+			zigzag |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	/**
+	 * Produces a human readable description of the frame at the buffer position, used for the
+	 * console output of the UDP helper. The buffer position is left untouched.
+	 *
+	 * @param buf, The buffer holding the frame
+	 * @return String, The description of the frame
+	 */
+	public static String describe(ByteBuffer buf) {
+		ByteBuffer view = buf.duplicate();
+		try {
+			byte type = readHeader(view);
+			switch (type) {
+			case CALL:
+				return "CALL " + decodeCall(view);
+			case COMMAND:
+				return "COMMAND elevator=" + getVarInt(view) + " " + decodeCall(view);
+			case CANCEL:
+				return "CANCEL elevator=" + getVarInt(view) + " " + decodeCall(view);
+			case ASSIGN:
+				return "ASSIGN " + decodeCall(view) + " elevator=" + decodeAssignedCar(view);
+			case CANCELLED:
+				return "CANCELLED elevator=" + getVarInt(view) + " withdrawn=" + (getVarInt(view) != 0) + " "
+						+ decodeCall(view);
+			case DELTA:
+				ByteBuffer fields = view.duplicate();
+				getVarInt(fields);
+				int mask = fields.get();
+				int[] delta = decodeStatusDelta(view, number -> new int[STATUS_FIELDS]);
+				return "DELTA elevator=" + delta[STATUS_ELEVATOR_NUMBER] + " fields=" + Integer.toBinaryString(mask)
+						+ " status=" + Arrays.toString(delta);
+			case SUBSCRIBE:
+				return "SUBSCRIBE floor=" + getVarInt(view);
+			case NOTIFY:
+				int[] notification = new int[NOTIFY_FIELDS];
+				decodeNotify(view, notification);
+				return "NOTIFY kind=" + notification[NOTIFY_KIND] + " floor=" + notification[NOTIFY_FLOOR]
+						+ " elevator=" + notification[NOTIFY_ELEVATOR] + " value=" + notification[NOTIFY_VALUE];
+			case HELLO:
+				return "HELLO role=" + getVarInt(view) + " id=" + getVarInt(view);
+			case ACK:
+				return "ACK " + decodeAck(view);
+			case BATCH:
+				return "BATCH of " + getVarInt(view) + " frames";
+			case DATA:
+				return "DATA session=" + getVarInt(view) + " seq=" + getVarInt(view) + " " + describe(view);
+			case SACK:
+				return "SACK session=" + getVarInt(view) + " next=" + getVarInt(view)
+						+ " received=" + Long.toBinaryString(view.getLong());
+			case STATUS:
+				int[] status = new int[STATUS_FIELDS];
+				decodeStatus(view, status);
+				return "STATUS elevator=" + status[STATUS_ELEVATOR_NUMBER] + " port=" + status[STATUS_PORT]
+						+ " state=" + status[STATUS_STATE] + " floor=" + status[STATUS_FLOOR]
+						+ " motor=" + status[STATUS_MOTOR];
+			default:
+				return "UNKNOWN frame type " + type;
+			}
+		} catch (IllegalArgumentException | BufferUnderflowException e) {
+			return "INVALID frame (" + e.getMessage() + ")";
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package Util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ElevatorSubSystem.Direction;
+
+/**
+ * Parses a whole call trace (csv.txt layout) in parallel on the common fork/join pool. The file
+ * is split in halves at line boundaries until the pieces are below the split size; every piece is
+ * memory-mapped and parsed straight from the mapped bytes, and the pieces are joined back in file
+ * order, so the result is the same list TraceReader produces.
+ */
+public class ParallelTraceParser {
+
+	/** Pieces smaller than this are parsed on one thread */
+	public static final int SPLIT_SIZE = 1 << 20;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Parses the lines of one piece of the file, splitting it further when it is too large
+	 */
+	private static class ParseTask extends RecursiveTask<List<CallEvent>> {
+		private static final long serialVersionUID = 1L;
+
+		private final transient FileChannel channel;
+		private final Path path;
+		private final long start;
+		private final long end;
+
+		ParseTask(FileChannel channel, Path path, long start, long end) {
+			this.channel = channel;
+			this.path = path;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected List<CallEvent> compute() {
+			try {
+				if (end - start > SPLIT_SIZE) {
+					long middle = nextLine(channel, start + (end - start) / 2, end);
+					if (middle > start && middle < end) {
+						ParseTask first = new ParseTask(channel, path, start, middle);
+						ParseTask second = new ParseTask(channel, path, middle, end);
+						second.fork();
+						List<CallEvent> events = first.compute();
+						events.addAll(second.join());
+						return events;
+					}
+				}
+				return parsePiece(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), start == 0);
+			} catch (IOException e) {
+				throw new UncheckedIOException(path + ": " + e.getMessage(), e);
+			}
+		}
+
+		private List<CallEvent> parsePiece(MappedByteBuffer piece, boolean firstPiece) {
+			List<CallEvent> events = new ArrayList<CallEvent>(piece.limit() / 16);
+			int lineStart = 0;
+			int limit = piece.limit();
+			while (lineStart < limit) {
+				int lineEnd = lineStart;
+				while (lineEnd < limit && piece.get(lineEnd) != '\n') {
+					lineEnd++;
+				}
+				int contentEnd = lineEnd;
+				while (contentEnd > lineStart && piece.get(contentEnd - 1) <= ' ') {
+					contentEnd--;
+				}
+				boolean title = firstPiece && lineStart == 0 && contentEnd > 0 && !isDigit(piece.get(0));
+				if (contentEnd > lineStart && !title) {
+					events.add(parseLine(piece, lineStart, contentEnd));
+				}
+				lineStart = lineEnd + 1;
+			}
+			return events;
+		}
+
+		private CallEvent parseLine(ByteBuffer piece, int lineStart, int lineEnd) {
+			try {
+				int first = indexOf(piece, ',', lineStart, lineEnd);
+				int second = indexOf(piece, ',', first + 1, lineEnd);
+				int third = indexOf(piece, ',', second + 1, lineEnd);
+				long time = TimeParser.parseMillis(piece, skipSpaces(piece, lineStart, first), first);
+				int startFloor = parseInt(piece, first + 1, second);
+				int endFloor = parseInt(piece, second + 1, third);
+				Direction direction = parseDirection(piece, third + 1, lineEnd);
+				return new CallEvent(TimeParser.toDate(time), startFloor, endFloor, direction);
+			} catch (IllegalArgumentException e) {
+				StringBuilder line = new StringBuilder();
+				for (int i = lineStart; i < lineEnd; i++) {
+					line.append((char) piece.get(i));
+				}
+				throw new IllegalArgumentException(path + " at byte " + (start + lineStart) + ": " + e.getMessage()
+						+ ": " + line, e);
+			}
+		}
+	}
+
+	private ParallelTraceParser() {
+	}
+
+	/**
+	 * Parses every request of a trace in parallel
+	 *
+	 * @param path, The trace file
+	 * @return CallEvent List, The requests in file order
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a line is malformed
+	 */
+	public static List<CallEvent> parse(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return ForkJoinPool.commonPool().invoke(new ParseTask(channel, path, 0, channel.size()));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * The position after the first line break at or after a position, end if there is none
+	 */
+	private static long nextLine(FileChannel channel, long position, long end) throws IOException {
+		ByteBuffer chunk = ByteBuffer.allocate(256);
+		while (position < end) {
+			chunk.clear();
+			int read = channel.read(chunk, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read && position + i < end; i++) {
+				if (chunk.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return end;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static int indexOf(ByteBuffer buf, char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buf.get(i) == c) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("expected 4 fields");
+	}
+
+	private static int skipSpaces(ByteBuffer buf, int from, int to) {
+		while (from < to && buf.get(from) == ' ') {
+			from++;
+		}
+		return from;
+	}
+
+	private static int parseInt(ByteBuffer buf, int from, int to) {
+		from = skipSpaces(buf, from, to);
+		while (to > from && buf.get(to - 1) == ' ') {
+			to--;
+		}
+		if (from == to || to - from > 9) {
+			throw new IllegalArgumentException("invalid floor");
+		}
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			byte b = buf.get(i);
+			if (!isDigit(b)) {
+				throw new IllegalArgumentException("invalid floor");
+			}
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+
+	private static Direction parseDirection(ByteBuffer buf, int from, int to) {
+		from = skipSpaces(buf, from, to);
+		for (Direction direction : DIRECTIONS) {
+			String name = direction.name();
+			if (to - from == name.length()) {
+				int i = 0;
+				while (i < name.length() && buf.get(from + i) == name.charAt(i)) {
+					i++;
+				}
+				if (i == name.length()) {
+					return direction;
+				}
+			}
+		}
+		throw new IllegalArgumentException("invalid direction");
+	}
+}
@@ -3,12 +3,10 @@ package Util;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 import java.util.Date;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import ElevatorSubSystem.Direction;
 
 /**
@@ -18,7 +16,6 @@ import ElevatorSubSystem.Direction;
  */
 public class Parser 
 {
-	private SimpleDateFormat standard = new SimpleDateFormat("HH:mm:ss"); // Hours/Minutes/seconds/milliseconds
     public List<String> systemAddresses;
 	
 	/**
@@ -64,10 +61,9 @@ public class Parser
 			for (int j = 0; j < originaList.get(i).length; j++) {
 				if (j == 0) {
 					try {
-
-						date = standard.parse((String) originaList.get(i)[j]);
-
-					} catch (ParseException e) {
+						String time = originaList.get(i)[j].trim();
+						date = TimeParser.toDate(TimeParser.parseMillis(time, 0, time.length()));
+					} catch (IllegalArgumentException e) {
 						e.printStackTrace();
 					}
 				} else if (j == 1) {
@@ -85,44 +81,71 @@ public class Parser
 	}
 
 	/**
-	 * Parses byte array data received in a DatagramPacket to construct a CallEvent object.
+	 * Parses a binary CALL frame received in a DatagramPacket to construct a CallEvent object.
 	 * 
 	 * @param b, The byte array message to decode.
 	 * @return CallEvent, The Parser object that is populated from the input data.
-	 * @throws ParseException 
+	 * @throws IllegalArgumentException if the message is not a valid CALL frame
 	 */
 	public CallEvent parseByteEvent(byte[] b) {
-		
-		//String s = "" + (b[0] & 0xff + b[1] & 0xff);
-		
-		CallEvent tempParser;
-		int startFloor = 0;
-		int endFloor = 0;
-		Direction direction = null;
-		Date date = null;
-		
-		String s = new String(b, 0, b.length);
-		System.out.println("Request received: " + s );
-		
-		// Parse string with delimiter
-		Scanner scanner = new Scanner(s);
-		scanner.useDelimiter(",");
-	
-		try {
-			// Find next string matching HH:mm:ss to create Date object
-			date = standard.parse((String) scanner.findInLine("[0-9]{2}:[0-9]{2}:[0-9]{2}"));
-		} catch (ParseException e) {
-			e.printStackTrace();
+		ByteBuffer frame = ByteBuffer.wrap(b);
+		if (MessageCodec.readHeader(frame) != MessageCodec.CALL) {
+			throw new IllegalArgumentException("Expected a CALL frame");
+		}
+		CallEvent event = MessageCodec.decodeCall(frame);
+		System.out.println("Request received: " + event);
+		return event;
+	}
+
+	/**
+	 * Parses a received datagram holding a single CALL frame or a BATCH of CALL frames.
+	 *
+	 * @param b, The byte array message to decode.
+	 * @return CallEvent List, The requests in the order they were batched.
+	 * @throws IllegalArgumentException if the datagram holds anything but CALL frames
+	 */
+	public List<CallEvent> parseByteEvents(byte[] b) {
+		return parseByteEvents(ByteBuffer.wrap(b));
+	}
+
+	/**
+	 * Parses a received datagram holding a single CALL frame or a BATCH of CALL frames.
+	 *
+	 * @param datagram, The buffer holding the datagram between its position and limit.
+	 * @return CallEvent List, The requests in the order they were batched.
+	 * @throws IllegalArgumentException if the datagram holds anything but CALL frames
+	 */
+	public List<CallEvent> parseByteEvents(ByteBuffer datagram) {
+		int frames = MessageCodec.openDatagram(datagram);
+		List<CallEvent> events = new ArrayList<CallEvent>(frames);
+		for (int i = 0; i < frames; i++) {
+			if (MessageCodec.readHeader(datagram) != MessageCodec.CALL) {
+				throw new IllegalArgumentException("Expected a CALL frame");
+			}
+			CallEvent event = MessageCodec.decodeCall(datagram);
+			System.out.println("Request received: " + event);
+			events.add(event);
+		}
+		return events;
+	}
+
+	/**
+	 * Decodes a received datagram holding a single CALL frame or a BATCH of CALL frames into a
+	 * buffer of requests, without creating an object per request. Used on the scheduler receive
+	 * path, which does not print every request.
+	 *
+	 * @param datagram, The buffer holding the datagram between its position and limit.
+	 * @param calls, The buffer the requests are appended to, in the order they were batched.
+	 * @throws IllegalArgumentException if the datagram holds anything but CALL frames
+	 */
+	public void parseByteEvents(ByteBuffer datagram, CallBuffer calls) {
+		int frames = MessageCodec.openDatagram(datagram);
+		for (int i = 0; i < frames; i++) {
+			if (MessageCodec.readHeader(datagram) != MessageCodec.CALL) {
+				throw new IllegalArgumentException("Expected a CALL frame");
+			}
+			MessageCodec.decodeCall(datagram, calls);
 		}
-		scanner.next();
-		startFloor = Integer.parseInt(scanner.next());
-		endFloor = Integer.parseInt(scanner.next());
-		direction = Direction.valueOf(scanner.next().trim());
-		scanner.close();
-		
-		tempParser = new CallEvent(date, startFloor, endFloor, direction);
-		
-		return tempParser;
 	}
 
     /**
@@ -0,0 +1,78 @@
+package Util;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The receiving half of the reliable delivery layer. It tracks, per sender, which sequence
+ * numbers have been received, suppresses duplicates caused by retransmissions and produces
+ * the SACK frame that acknowledges every DATA datagram.
+ *
+ * Payloads are delivered as soon as they first arrive, so a lost datagram does not hold back
+ * the calls behind it.
+ */
+public class ReliableReceiver {
+
+	/**
+	 * The receive state of a single sender session. Bit i of received is set when sequence
+	 * cumulative + i has arrived; bit 0 is always clear.
+	 */
+	private static class SenderState {
+		int session;
+		int cumulative;
+		long received;
+	}
+
+	private final Map<SocketAddress, SenderState> senders = new HashMap<SocketAddress, SenderState>();
+
+	/**
+	 * Processes a DATA datagram and writes the SACK that acknowledges it
+	 *
+	 * @param source, The address of the sender
+	 * @param datagram, The buffer positioned after the DATA frame header; on return it is
+	 * positioned at the start of the payload
+	 * @param ack, The buffer the SACK frame is written to
+	 * @return True if the payload is new and must be delivered, False for a duplicate
+	 */
+	public synchronized boolean receive(SocketAddress source, ByteBuffer datagram, ByteBuffer ack) {
+		int session = MessageCodec.getVarInt(datagram);
+		int sequence = MessageCodec.getVarInt(datagram);
+
+		SenderState state = senders.get(source);
+		if (state == null) {
+			state = new SenderState();
+			state.session = session;
+			senders.put(source, state);
+		} else if (state.session != session) {
+			// The sender restarted, its sequence numbers start again
+			state.session = session;
+			state.cumulative = 0;
+			state.received = 0;
+		}
+
+		boolean fresh = false;
+		int offset = sequence - state.cumulative;
+		if (offset >= 0 && offset < 64 && (state.received & (1L << offset)) == 0) {
+			fresh = true;
+			state.received |= 1L << offset;
+			while ((state.received & 1) != 0) {
+				state.received >>>= 1;
+				state.cumulative++;
+			}
+		}
+
+		MessageCodec.encodeSack(ack, state.session, state.cumulative, state.received);
+		return fresh;
+	}
+
+	/**
+	 * Forgets the receive state of a sender
+	 *
+	 * @param source, The address of the sender
+	 */
+	public synchronized void reset(SocketAddress source) {
+		senders.remove(source);
+	}
+}
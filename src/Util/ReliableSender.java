@@ -0,0 +1,260 @@
+package Util;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The sending half of the reliable delivery layer. Every payload is wrapped in a DATA frame
+ * carrying a per-sender sequence number and kept until the receiver acknowledges it with a
+ * SACK (cumulative and selective). Up to window payloads may be in flight at once, so the
+ * throughput is bounded by the window instead of one round trip per payload.
+ *
+ * Unacknowledged payloads are retransmitted once the retransmission timeout expires. The
+ * timeout adapts to the measured round trip time (SRTT + 4 * RTTVAR, Karn's rule for
+ * retransmitted samples) and backs off exponentially while nothing is acknowledged.
+ */
+public class ReliableSender implements Closeable {
+
+	/**
+	 * Transmits one datagram to the receiver, e.g. through a UDPHelper
+	 */
+	public interface Link {
+		void transmit(byte[] datagram);
+	}
+
+	/** The selective acknowledgement covers 64 sequences, which bounds the window */
+	public static final int MAX_WINDOW = 64;
+
+	private static final long INITIAL_RTO = TimeUnit.MILLISECONDS.toNanos(200);
+	private static final long MIN_RTO = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long MAX_RTO = TimeUnit.SECONDS.toNanos(5);
+
+	private final Link link;
+	private final int window;
+	private final int session;
+	private final byte[][] inFlight;
+	private final long[] sentAt;
+	private final boolean[] retransmitted;
+	private final ReentrantLock lock;
+	private final Condition windowOpen;
+	private final Condition timerChanged;
+	private final Thread retransmitThread;
+
+	private int base;
+	private int next;
+	private long srtt;
+	private long rttvar;
+	private long rto;
+	private volatile boolean running;
+
+	/**
+	 * The constructor of the sender
+	 *
+	 * @param window, The maximum number of unacknowledged payloads (1 to MAX_WINDOW)
+	 * @param link, The link used to transmit DATA datagrams
+	 */
+	public ReliableSender(int window, Link link) {
+		if (window < 1 || window > MAX_WINDOW) {
+			throw new IllegalArgumentException("window must be between 1 and " + MAX_WINDOW);
+		}
+		this.link = link;
+		this.window = window;
+		this.session = ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE;
+		this.inFlight = new byte[window][];
+		this.sentAt = new long[window];
+		this.retransmitted = new boolean[window];
+		this.lock = new ReentrantLock();
+		this.windowOpen = lock.newCondition();
+		this.timerChanged = lock.newCondition();
+		this.rto = INITIAL_RTO;
+		this.running = true;
+
+		retransmitThread = new Thread(this::retransmitLoop, "Reliable_Sender_Retransmit");
+		retransmitThread.setDaemon(true);
+		retransmitThread.start();
+	}
+
+	/**
+	 * Sends a payload, blocking only while the window is full
+	 *
+	 * @param payload, A datagram produced by the MessageCodec (single frame or batch)
+	 * @return True if the payload was sent, False if the sender was closed or interrupted
+	 */
+	public boolean send(byte[] payload) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_DATAGRAM_SIZE);
+		byte[] datagram;
+		lock.lock();
+		try {
+			while (running && next - base >= window) {
+				windowOpen.await();
+			}
+			if (!running) {
+				return false;
+			}
+			MessageCodec.encodeDataHeader(buf, session, next);
+			buf.put(payload);
+			datagram = Arrays.copyOf(buf.array(), buf.position());
+
+			int slot = next % window;
+			inFlight[slot] = datagram;
+			sentAt[slot] = System.nanoTime();
+			retransmitted[slot] = false;
+			next++;
+			timerChanged.signal();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			lock.unlock();
+		}
+		link.transmit(datagram);
+		return true;
+	}
+
+	/**
+	 * Processes the body of a SACK frame received from the receiver
+	 *
+	 * @param sack, The buffer positioned after the SACK frame header
+	 */
+	public void acknowledged(ByteBuffer sack) {
+		int ackSession = MessageCodec.getVarInt(sack);
+		int cumulative = MessageCodec.getVarInt(sack);
+		long received = sack.getLong();
+		if (ackSession != session) {
+			return;
+		}
+
+		lock.lock();
+		try {
+			long now = System.nanoTime();
+			for (int seq = base; seq < next; seq++) {
+				int slot = seq % window;
+				if (inFlight[slot] == null) {
+					continue;
+				}
+				int offset = seq - cumulative;
+				if (seq < cumulative || (offset < 64 && (received & (1L << offset)) != 0)) {
+					if (!retransmitted[slot]) {
+						sampleRtt(now - sentAt[slot]);
+					}
+					inFlight[slot] = null;
+				}
+			}
+			while (base < next && inFlight[base % window] == null) {
+				base++;
+			}
+			windowOpen.signalAll();
+			timerChanged.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Updates the smoothed round trip time and the retransmission timeout (RFC 6298)
+	 */
+	private void sampleRtt(long rtt) {
+		if (srtt == 0) {
+			srtt = rtt;
+			rttvar = rtt / 2;
+		} else {
+			rttvar = (3 * rttvar + Math.abs(srtt - rtt)) / 4;
+			srtt = (7 * srtt + rtt) / 8;
+		}
+		rto = Math.max(MIN_RTO, Math.min(MAX_RTO, srtt + 4 * rttvar));
+	}
+
+	/**
+	 * Retransmits every payload whose timeout expired, sleeping until the next deadline
+	 */
+	private void retransmitLoop() {
+		byte[][] expired = new byte[window][];
+		while (running) {
+			int count = 0;
+			lock.lock();
+			try {
+				long now = System.nanoTime();
+				long wait = Long.MAX_VALUE;
+				for (int seq = base; seq < next; seq++) {
+					int slot = seq % window;
+					if (inFlight[slot] == null) {
+						continue;
+					}
+					long remaining = sentAt[slot] + rto - now;
+					if (remaining <= 0) {
+						expired[count++] = inFlight[slot];
+						sentAt[slot] = now;
+						retransmitted[slot] = true;
+						remaining = rto;
+					}
+					wait = Math.min(wait, remaining);
+				}
+				if (count > 0) {
+					rto = Math.min(MAX_RTO, rto * 2);
+				} else if (wait == Long.MAX_VALUE) {
+					timerChanged.await();
+				} else {
+					timerChanged.awaitNanos(wait);
+				}
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+			for (int i = 0; i < count; i++) {
+				link.transmit(expired[i]);
+				expired[i] = null;
+			}
+		}
+	}
+
+	/**
+	 * @return The number of payloads sent but not yet acknowledged
+	 */
+	public int inFlight() {
+		lock.lock();
+		try {
+			int count = 0;
+			for (int seq = base; seq < next; seq++) {
+				if (inFlight[seq % window] != null) {
+					count++;
+				}
+			}
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The current retransmission timeout in milliseconds
+	 */
+	public long getRetransmissionTimeout() {
+		lock.lock();
+		try {
+			return TimeUnit.NANOSECONDS.toMillis(rto);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops retransmitting and releases any thread waiting for the window
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			running = false;
+			windowOpen.signalAll();
+			timerChanged.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An inter-process transport for subsystems running on the same host. Every link between two
+ * ports is a single-producer/single-consumer ring buffer in a memory-mapped file named
+ * "source-destination.ring" in a shared directory; datagrams keep the same framing as on the
+ * network path, they are simply copied into the ring instead of a socket.
+ *
+ * Ring file layout: [magic][capacity] ... [tail at 64] ... [head at 128] ... [data at 192].
+ * Each record is [length][payload] padded to 4 bytes; a length of -1 marks padding up to the
+ * end of the ring. The producer only writes tail and the consumer only writes head.
+ *
+ * The two sides are usually separate processes, so a JVM fence would only order the accesses of
+ * one of them. Tail and head are therefore accessed in the mapped memory itself, with the volatile
+ * loads and ordered stores of sun.misc.Unsafe (looked up reflectively, it is not part of the Java 8
+ * API, and in native byte order): the producer writes the record before it publishes tail, and the
+ * consumer loads tail before it reads the records up to it. Without Unsafe no ring can be opened.
+ *
+ * The delivery thread polls every inbound ring of the transport and idles according to the
+ * configured WaitStrategy when there is nothing to read.
+ */
+public class SharedMemoryTransport implements Transport, Runnable {
+
+	/**
+	 * How the delivery thread waits while its rings are empty
+	 */
+	public enum WaitStrategy {
+		/** Lowest latency, burns a core */
+		BUSY_SPIN,
+		/** Gives the core away between polls */
+		YIELD,
+		/** Parks with an exponential back-off up to one millisecond */
+		PARK;
+
+		void idle(int idleCount) {
+			switch (this) {
+			case BUSY_SPIN:
+				break;
+			case YIELD:
+				Thread.yield();
+				break;
+			default:
+				LockSupport.parkNanos(Math.min(TimeUnit.MILLISECONDS.toNanos(1), 1000L << Math.min(idleCount, 10)));
+			}
+		}
+	}
+
+	public static final String DIRECTORY_PROPERTY = "shm.dir";
+	public static final String CAPACITY_PROPERTY = "shm.capacity";
+	public static final String WAIT_PROPERTY = "shm.wait";
+
+	private static final int MAGIC = 0x4E485231; // "NHR1"
+	private static final int CAPACITY_OFFSET = 4;
+	private static final int TAIL_OFFSET = 64;
+	private static final int HEAD_OFFSET = 128;
+	private static final int DATA_OFFSET = 192;
+	private static final int PADDING = -1;
+	private static final long RESCAN_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+	private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final InetAddress LOCAL = InetAddress.getLoopbackAddress();
+
+	/** Unsafe.getLongVolatile(Object, long) and Unsafe.putOrderedLong(Object, long, long), null without Unsafe */
+	private static final MethodHandle GET_LONG_VOLATILE;
+	private static final MethodHandle PUT_ORDERED_LONG;
+
+	/** Unsafe.getLong(Object, long) and the offset of the address of a direct buffer */
+	private static final MethodHandle GET_LONG;
+	private static final long ADDRESS_OFFSET;
+
+	static {
+		MethodHandle getLongVolatile = null;
+		MethodHandle putOrderedLong = null;
+		MethodHandle getLong = null;
+		long addressOffset = -1;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			Object unsafe = field.get(null);
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			MethodHandle fieldOffset = lookup.findVirtual(unsafeClass, "objectFieldOffset",
+					MethodType.methodType(long.class, Field.class)).bindTo(unsafe);
+			addressOffset = (long) fieldOffset.invoke(Buffer.class.getDeclaredField("address"));
+			getLongVolatile = lookup.findVirtual(unsafeClass, "getLongVolatile",
+					MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+			putOrderedLong = lookup.findVirtual(unsafeClass, "putOrderedLong",
+					MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+			getLong = lookup.findVirtual(unsafeClass, "getLong",
+					MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+		} catch (Throwable e) {
+			System.out.println("Shared memory transport unavailable: " + e);
+			getLongVolatile = null;
+		}
+		GET_LONG_VOLATILE = getLongVolatile;
+		PUT_ORDERED_LONG = putOrderedLong;
+		GET_LONG = getLong;
+		ADDRESS_OFFSET = addressOffset;
+	}
+
+	/**
+	 * Counts the failures of one kind and reports them at most once per second, so a full ring or a
+	 * failing receiver does not print a line for every datagram
+	 */
+	private static class ThrottledLog {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong nextReport = new AtomicLong(System.nanoTime());
+
+		/**
+		 * Records one failure
+		 *
+		 * @return count, The failures since the last report when a report is due, 0 otherwise
+		 */
+		long record() {
+			count.incrementAndGet();
+			long now = System.nanoTime();
+			long next = nextReport.get();
+			if (now - next < 0 || !nextReport.compareAndSet(next, now + LOG_INTERVAL_NANOS)) {
+				return 0;
+			}
+			return count.getAndSet(0);
+		}
+	}
+
+	/**
+	 * One mapped link between a source and a destination port
+	 */
+	private static class Ring {
+		final MappedByteBuffer buffer;
+		final long address;
+		final ByteBuffer view;
+		final ByteBuffer writeView;
+		final int capacity;
+		final int mask;
+		final int sourcePort;
+		final SocketAddress source;
+		final ThrottledLog failures = new ThrottledLog();
+
+		Ring(File file, int capacity, int sourcePort) throws IOException {
+			if (GET_LONG_VOLATILE == null) {
+				throw new IOException("The shared memory transport needs sun.misc.Unsafe to order the ring accesses");
+			}
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				if (raf.length() < DATA_OFFSET + capacity) {
+					raf.setLength(DATA_OFFSET + capacity);
+				}
+				buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + capacity);
+			}
+			if (buffer.getInt(0) != MAGIC) {
+				buffer.putInt(CAPACITY_OFFSET, capacity);
+				buffer.putInt(0, MAGIC);
+			} else if (buffer.getInt(CAPACITY_OFFSET) != capacity) {
+				throw new IOException(file + " was created with a capacity of " + buffer.getInt(CAPACITY_OFFSET));
+			}
+			try {
+				this.address = (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET);
+			} catch (Throwable e) {
+				throw new IOException("The address of " + file + " cannot be read", e);
+			}
+			this.capacity = capacity;
+			this.mask = capacity - 1;
+			this.view = buffer.duplicate();
+			this.writeView = buffer.duplicate();
+			this.sourcePort = sourcePort;
+			this.source = new InetSocketAddress(LOCAL, sourcePort);
+		}
+
+		/**
+		 * Producer side: copies the datagram into the ring
+		 *
+		 * @return False if the ring is full
+		 */
+		synchronized boolean offer(ByteBuffer datagram) {
+			int length = datagram.remaining();
+			int recordSize = (4 + length + 3) & ~3;
+			long tail = load(TAIL_OFFSET);
+			long head = load(HEAD_OFFSET);
+			int index = (int) (tail & mask);
+			int toEnd = capacity - index;
+			int needed = recordSize <= toEnd ? recordSize : toEnd + recordSize;
+			if (recordSize > capacity || tail + needed - head > capacity) {
+				return false;
+			}
+			if (recordSize > toEnd) {
+				buffer.putInt(DATA_OFFSET + index, PADDING);
+				tail += toEnd;
+				index = 0;
+			}
+			writeView.limit(DATA_OFFSET + index + 4 + length);
+			writeView.position(DATA_OFFSET + index + 4);
+			writeView.put(datagram);
+			buffer.putInt(DATA_OFFSET + index, length);
+			publish(TAIL_OFFSET, tail + recordSize);
+			return true;
+		}
+
+		/**
+		 * Consumer side: hands every readable record to the receiver
+		 *
+		 * @return True if at least one record was read
+		 */
+		boolean drain(Transport.Endpoint endpoint, Receiver receiver) {
+			long head = load(HEAD_OFFSET);
+			long tail = load(TAIL_OFFSET);
+			if (head == tail) {
+				return false;
+			}
+			while (head < tail) {
+				int index = (int) (head & mask);
+				int length = buffer.getInt(DATA_OFFSET + index);
+				if (length == PADDING) {
+					head += capacity - index;
+					continue;
+				}
+				view.limit(DATA_OFFSET + index + 4 + length);
+				view.position(DATA_OFFSET + index + 4);
+				try {
+					receiver.received(endpoint, view, source);
+				} catch (RuntimeException e) {
+					long failed = failures.record();
+					if (failed > 0) {
+						System.out.println("Port " + endpoint.getPort() + ": receiver failed for " + failed
+								+ " datagrams from " + source);
+						e.printStackTrace();
+					}
+				}
+				head += (4 + length + 3) & ~3;
+			}
+			publish(HEAD_OFFSET, head);
+			return true;
+		}
+
+		/**
+		 * Consumer side: discards anything left in the ring by a previous run
+		 */
+		void skipToTail() {
+			publish(HEAD_OFFSET, load(TAIL_OFFSET));
+		}
+
+		/**
+		 * Loads tail or head, no later ring read is moved before it
+		 */
+		private long load(int offset) {
+			try {
+				return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address + offset);
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		/**
+		 * Publishes tail or head, no earlier ring write or read is moved after it
+		 */
+		private void publish(int offset, long value) {
+			try {
+				PUT_ORDERED_LONG.invokeExact((Object) null, address + offset, value);
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * A port of this transport, reading the rings addressed to it
+	 */
+	private class RingEndpoint implements Endpoint {
+		private final int port;
+		private final Receiver receiver;
+		private final Map<Integer, Ring> outbound = new ConcurrentHashMap<Integer, Ring>();
+		private final Map<Integer, Ring> inbound = new ConcurrentHashMap<Integer, Ring>();
+		private final ThrottledLog drops = new ThrottledLog();
+
+		private RingEndpoint(int port, Receiver receiver) {
+			this.port = port;
+			this.receiver = receiver;
+		}
+
+		@Override
+		public boolean send(ByteBuffer datagram, SocketAddress destination) {
+			int destinationPort = ((InetSocketAddress) destination).getPort();
+			try {
+				Ring ring = outbound.get(destinationPort);
+				if (ring == null) {
+					synchronized (outbound) {
+						ring = outbound.get(destinationPort);
+						if (ring == null) {
+							ring = new Ring(linkFile(port, destinationPort), capacity, port);
+							outbound.put(destinationPort, ring);
+						}
+					}
+				}
+				if (!ring.offer(datagram)) {
+					long dropped = drops.record();
+					if (dropped > 0) {
+						System.out.println("Port " + port + ": ring to port " + destinationPort + " full, " + dropped
+								+ " datagrams dropped");
+					}
+					return false;
+				}
+				return true;
+			} catch (IOException e) {
+				System.out.println("Port " + port + ": cannot map ring to port " + destinationPort);
+				e.printStackTrace();
+				return false;
+			}
+		}
+
+		@Override
+		public int getPort() {
+			return port;
+		}
+
+		/**
+		 * Maps every inbound ring file not mapped yet
+		 */
+		private void scan(boolean skipStale) {
+			String suffix = "-" + port + ".ring";
+			File[] files = directory.listFiles((dir, name) -> name.endsWith(suffix));
+			if (files == null) {
+				return;
+			}
+			for (File file : files) {
+				String name = file.getName();
+				try {
+					int sourcePort = Integer.parseInt(name.substring(0, name.length() - suffix.length()));
+					if (!inbound.containsKey(sourcePort)) {
+						Ring ring = new Ring(file, capacity, sourcePort);
+						if (skipStale) {
+							ring.skipToTail();
+						}
+						inbound.put(sourcePort, ring);
+					}
+				} catch (NumberFormatException e) {
+					// Not a ring file of this transport
+				} catch (IOException e) {
+					System.out.println("Port " + port + ": cannot map ring " + name);
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private final File directory;
+	private final int capacity;
+	private final WaitStrategy waitStrategy;
+	private final List<RingEndpoint> endpoints;
+	private final String name;
+	private volatile boolean running;
+	private Thread deliveryThread;
+
+	/**
+	 * Creates a transport configured by the shm.dir, shm.capacity and shm.wait system properties
+	 *
+	 * @param name, The name given to the delivery thread
+	 */
+	public SharedMemoryTransport(String name) {
+		this(name, new File(System.getProperty(DIRECTORY_PROPERTY,
+				new File(System.getProperty("java.io.tmpdir"), "new-heights-shm").getPath())),
+				Integer.getInteger(CAPACITY_PROPERTY, 1 << 16),
+				WaitStrategy.valueOf(System.getProperty(WAIT_PROPERTY, WaitStrategy.PARK.name())));
+	}
+
+	/**
+	 * The constructor of the transport
+	 *
+	 * @param name, The name given to the delivery thread
+	 * @param directory, The directory shared by every process on the host
+	 * @param capacity, The data capacity of each ring in bytes (a power of two)
+	 * @param waitStrategy, How the delivery thread waits for data
+	 */
+	public SharedMemoryTransport(String name, File directory, int capacity, WaitStrategy waitStrategy) {
+		if (Integer.bitCount(capacity) != 1 || capacity < MessageCodec.MAX_DATAGRAM_SIZE * 2) {
+			throw new IllegalArgumentException("Ring capacity must be a power of two of at least "
+					+ MessageCodec.MAX_DATAGRAM_SIZE * 2);
+		}
+		this.name = name;
+		this.directory = directory;
+		this.capacity = capacity;
+		this.waitStrategy = waitStrategy;
+		this.endpoints = new CopyOnWriteArrayList<RingEndpoint>();
+		directory.mkdirs();
+	}
+
+	private File linkFile(int sourcePort, int destinationPort) {
+		return new File(directory, sourcePort + "-" + destinationPort + ".ring");
+	}
+
+	@Override
+	public Endpoint open(int port, Receiver receiver) throws IOException {
+		for (RingEndpoint endpoint : endpoints) {
+			if (endpoint.port == port) {
+				throw new BindException("Port " + port + " is already bound by this transport");
+			}
+		}
+		RingEndpoint endpoint = new RingEndpoint(port, receiver);
+		endpoint.scan(true);
+		endpoints.add(endpoint);
+		return endpoint;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (deliveryThread != null) {
+			return;
+		}
+		running = true;
+		deliveryThread = new Thread(this, name);
+		deliveryThread.start();
+	}
+
+	@Override
+	public void run() {
+		int idleCount = 0;
+		long lastScan = System.nanoTime();
+		while (running) {
+			boolean delivered = false;
+			for (RingEndpoint endpoint : endpoints) {
+				for (Ring ring : endpoint.inbound.values()) {
+					delivered |= ring.drain(endpoint, endpoint.receiver);
+				}
+			}
+			if (delivered) {
+				idleCount = 0;
+				continue;
+			}
+			long now = System.nanoTime();
+			if (now - lastScan > RESCAN_NANOS) {
+				for (RingEndpoint endpoint : endpoints) {
+					endpoint.scan(false);
+				}
+				lastScan = now;
+			}
+			waitStrategy.idle(idleCount++);
+		}
+	}
+
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			running = false;
+			thread = deliveryThread;
+		}
+		if (thread != null && thread != Thread.currentThread()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		endpoints.clear();
+	}
+}
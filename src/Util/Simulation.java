@@ -0,0 +1,36 @@
+package Util;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import ElevatorSubSystem.ElevatorBank;
+import FloorSubSystem.Floor;
+import SchedulerSubSystem.Scheduler;
+
+/**
+ * Runs the Scheduler, the Elevators and the Floor in a single JVM, connected by the
+ * in-memory transport instead of UDP sockets.
+ */
+public class Simulation {
+
+	public static void main(String[] args) throws IOException {
+
+		Scheduler scheduler = new Scheduler(new InMemoryTransport("Scheduler_Communication_Link"));
+		scheduler.start();
+
+		ElevatorBank bank = new ElevatorBank(new InMemoryTransport("Elevator_Communication_Link"), 22);
+		for (int i = 1; i <= Integer.getInteger("elevator.cars", 2); i++) {
+			bank.addCar(i);
+		}
+		bank.start();
+
+		TrafficGenerator traffic = TrafficGenerator.fromProperties();
+		// The Trace Is Replayed As It Is Read, Never Held In Memory
+		try (Stream<CallEvent> events = traffic != null ? Stream.empty()
+				: TraceReader.stream(args.length > 0 ? Paths.get(args[0]) : TraceReader.defaultTrace())) {
+			new Floor(traffic != null ? traffic : events.iterator(), new InMemoryTransport("Floor_Communication_Link"))
+					.start();
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package Util;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * An allocation-free parser for the HH:mm:ss[.SSS] times of the call traces. Times are returned
+ * as a primitive offset in milliseconds since midnight. Like the SimpleDateFormat the traces used
+ * to be parsed with, every field may have one or more digits ("00:00:5" is five seconds); the
+ * optional fraction is read as a decimal fraction of a second (".5" is 500 ms).
+ *
+ * The methods are static and keep no state, so they are safe on any number of threads.
+ */
+public final class TimeParser {
+
+	private static final long MILLIS_PER_SECOND = 1000;
+	private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+	private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+
+	private TimeParser() {
+	}
+
+	/**
+	 * Parses a time held in characters
+	 *
+	 * @param s, The characters holding the time
+	 * @param start, The index of the first character of the time
+	 * @param end, The index after the last character of the time
+	 * @return offset, The milliseconds since midnight
+	 * @throws IllegalArgumentException if the characters are not a valid time
+	 */
+	public static long parseMillis(CharSequence s, int start, int end) {
+		long millis = 0;
+		int field = 0;
+		long value = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (field == 3) {
+					if (++fractionDigits > 3) {
+						throw invalid(s, start, end);
+					}
+				}
+				value = value * 10 + (c - '0');
+				if (++digits > 9) {
+					throw invalid(s, start, end);
+				}
+			} else {
+				millis = addField(millis, field, value, digits, c, s, start, end);
+				field++;
+				value = 0;
+				digits = 0;
+			}
+		}
+		return addLastField(millis, field, value, digits, fractionDigits, s, start, end);
+	}
+
+	/**
+	 * Parses a time held in ASCII bytes, used on memory-mapped traces. The buffer position and
+	 * limit are not changed
+	 *
+	 * @param buf, The buffer holding the time
+	 * @param start, The absolute index of the first byte of the time
+	 * @param end, The absolute index after the last byte of the time
+	 * @return offset, The milliseconds since midnight
+	 * @throws IllegalArgumentException if the bytes are not a valid time
+	 */
+	public static long parseMillis(ByteBuffer buf, int start, int end) {
+		long millis = 0;
+		int field = 0;
+		long value = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		for (int i = start; i < end; i++) {
+			char c = (char) buf.get(i);
+			if (c >= '0' && c <= '9') {
+				if (field == 3) {
+					if (++fractionDigits > 3) {
+						throw invalid(buf, start, end);
+					}
+				}
+				value = value * 10 + (c - '0');
+				if (++digits > 9) {
+					throw invalid(buf, start, end);
+				}
+			} else {
+				millis = addField(millis, field, value, digits, c, buf, start, end);
+				field++;
+				value = 0;
+				digits = 0;
+			}
+		}
+		return addLastField(millis, field, value, digits, fractionDigits, buf, start, end);
+	}
+
+	/**
+	 * Adds a field closed by a separator to the offset
+	 */
+	private static long addField(long millis, int field, long value, int digits, char separator, Object source,
+			int start, int end) {
+		boolean expected = (field < 2 && separator == ':') || (field == 2 && separator == '.');
+		if (!expected || digits == 0) {
+			throw invalid(source, start, end);
+		}
+		return millis + value * (field == 0 ? MILLIS_PER_HOUR : field == 1 ? MILLIS_PER_MINUTE : MILLIS_PER_SECOND);
+	}
+
+	/**
+	 * Adds the seconds or the fraction ending the time to the offset
+	 */
+	private static long addLastField(long millis, int field, long value, int digits, int fractionDigits,
+			Object source, int start, int end) {
+		if (digits == 0 || field < 2) {
+			throw invalid(source, start, end);
+		}
+		if (field == 2) {
+			return millis + value * MILLIS_PER_SECOND;
+		}
+		for (int i = fractionDigits; i < 3; i++) {
+			value *= 10;
+		}
+		return millis + value;
+	}
+
+	private static IllegalArgumentException invalid(Object source, int start, int end) {
+		String text;
+		if (source instanceof ByteBuffer) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = start; i < end; i++) {
+				sb.append((char) ((ByteBuffer) source).get(i));
+			}
+			text = sb.toString();
+		} else {
+			text = ((CharSequence) source).subSequence(start, end).toString();
+		}
+		return new IllegalArgumentException("Invalid time, expected HH:mm:ss[.SSS]: " + text);
+	}
+
+	/**
+	 * The date of an offset on 1 January 1970 in the default time zone, which is the Date the
+	 * traces were parsed into by SimpleDateFormat("HH:mm:ss")
+	 *
+	 * @param offsetMillis, The milliseconds since midnight
+	 * @return date, The time on 1 January 1970
+	 */
+	public static Date toDate(long offsetMillis) {
+		TimeZone zone = TimeZone.getDefault();
+		return new Date(offsetMillis - zone.getOffset(offsetMillis - zone.getRawOffset()));
+	}
+
+	/**
+	 * The offset of a date produced by toDate, the inverse of toDate
+	 *
+	 * @param date, A time on 1 January 1970 in the default time zone
+	 * @return offset, The milliseconds since midnight
+	 */
+	public static long toMillis(Date date) {
+		long time = date.getTime();
+		return time + TimeZone.getDefault().getOffset(time);
+	}
+}
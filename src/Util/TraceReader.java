@@ -0,0 +1,229 @@
+package Util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import ElevatorSubSystem.Direction;
+
+/**
+ * Streams the requests of a call trace in the csv.txt layout (time, start floor, end floor,
+ * direction) from any path. Lines are read through one large buffer and turned into CallEvents
+ * one at a time as the iterator advances, so the memory used is bounded by the buffer no matter
+ * how long the trace is.
+ *
+ * A first line that does not start with a digit is treated as the title line; blank lines are
+ * skipped. A malformed line fails the iteration with an IllegalArgumentException naming the line.
+ *
+ * Besides the iterator, advance() moves to the next request and exposes its fields as primitives,
+ * for readers (such as the columnar trace converter) that do not need CallEvent objects. A trace
+ * is read either with advance() or with the iterator, not both.
+ */
+public class TraceReader implements Iterator<CallEvent>, Closeable {
+
+	/** The trace used when no path is given */
+	public static final String DEFAULT_TRACE = "csv.txt";
+
+	/** The system property selecting the trace of the Floor */
+	public static final String TRACE_PROPERTY = "trace";
+
+	/** Traces larger than this are parsed in parallel by readAll */
+	public static final long PARALLEL_THRESHOLD = 4L * ParallelTraceParser.SPLIT_SIZE;
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final BufferedReader reader;
+	private final Path path;
+	private long timeMillis;
+	private int startFloor;
+	private int endFloor;
+	private Direction direction;
+	private boolean pending;
+	private long lineNumber;
+	private boolean done;
+
+	/**
+	 * Opens a trace
+	 *
+	 * @param path, The trace file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TraceReader(Path path) throws IOException {
+		this.path = path;
+		this.reader = new BufferedReader(Files.newBufferedReader(path, StandardCharsets.US_ASCII), BUFFER_SIZE);
+	}
+
+	/**
+	 * The trace selected by the trace system property, csv.txt by default
+	 *
+	 * @return path, The path of the trace
+	 */
+	public static Path defaultTrace() {
+		return Paths.get(System.getProperty(TRACE_PROPERTY, DEFAULT_TRACE));
+	}
+
+	/**
+	 * Streams the requests of a trace lazily, closing the file when the stream is closed. Columnar
+	 * traces are streamed from their mapping (see ColumnarTrace)
+	 *
+	 * @param path, The trace file
+	 * @return stream, The requests in file order
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static Stream<CallEvent> stream(Path path) throws IOException {
+		if (ColumnarTrace.isColumnarTrace(path)) {
+			return ColumnarTrace.open(path).events().stream();
+		}
+		TraceReader trace = new TraceReader(path);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(trace,
+				Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(trace::close);
+	}
+
+	/**
+	 * Reads every request of a trace, for callers that need the whole trace at once. Columnar
+	 * traces are loaded by ColumnarTrace and text traces larger than PARALLEL_THRESHOLD bytes are
+	 * parsed in parallel by the ParallelTraceParser
+	 *
+	 * @param path, The trace file
+	 * @return CallEvent List, The requests in file order
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<CallEvent> readAll(Path path) throws IOException {
+		if (ColumnarTrace.isColumnarTrace(path)) {
+			return new ArrayList<CallEvent>(ColumnarTrace.open(path).events());
+		}
+		if (Files.size(path) > PARALLEL_THRESHOLD) {
+			return ParallelTraceParser.parse(path);
+		}
+		List<CallEvent> events = new ArrayList<CallEvent>();
+		try (TraceReader trace = new TraceReader(path)) {
+			trace.forEachRemaining(events::add);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return events;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!pending && !done) {
+			pending = advance();
+		}
+		return pending;
+	}
+
+	@Override
+	public CallEvent next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		pending = false;
+		return new CallEvent(TimeParser.toDate(timeMillis), startFloor, endFloor, direction);
+	}
+
+	/**
+	 * Moves to the next request of the trace
+	 *
+	 * @return True if there is a request, false at the end of the trace
+	 * @throws IllegalArgumentException if the line of the request is malformed
+	 * @throws UncheckedIOException if the file cannot be read
+	 */
+	public boolean advance() {
+		String line;
+		try {
+			while (!done && (line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				if (lineNumber == 1 && !Character.isDigit(line.charAt(0))) {
+					continue; // Title Line
+				}
+				parseLine(line);
+				return true;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(path + ": " + e.getMessage(), e);
+		}
+		done = true;
+		close();
+		return false;
+	}
+
+	/**
+	 * @return offset, The time of the current request in milliseconds since midnight
+	 */
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	/**
+	 * @return startFloor, The floor the current request originates from
+	 */
+	public int getStartFloor() {
+		return startFloor;
+	}
+
+	/**
+	 * @return endFloor, The destination of the current request
+	 */
+	public int getEndFloor() {
+		return endFloor;
+	}
+
+	/**
+	 * @return direction, The requested direction of the current request
+	 */
+	public Direction getDirection() {
+		return direction;
+	}
+
+	/**
+	 * Parses one "time,start floor,end floor,direction" line without splitting it
+	 */
+	private void parseLine(String line) {
+		try {
+			int first = line.indexOf(',');
+			int second = line.indexOf(',', first + 1);
+			int third = line.indexOf(',', second + 1);
+			if (first < 0 || second < 0 || third < 0) {
+				throw new IllegalArgumentException("expected 4 fields");
+			}
+			int timeStart = 0;
+			while (timeStart < first && line.charAt(timeStart) == ' ') {
+				timeStart++;
+			}
+			timeMillis = TimeParser.parseMillis(line, timeStart, first);
+			startFloor = Integer.parseInt(line.substring(first + 1, second).trim());
+			endFloor = Integer.parseInt(line.substring(second + 1, third).trim());
+			direction = Direction.valueOf(line.substring(third + 1).trim());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(path + " line " + lineNumber + ": " + e.getMessage() + ": " + line, e);
+		}
+	}
+
+	/**
+	 * Closes the trace file
+	 */
+	@Override
+	public void close() {
+		try {
+			reader.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
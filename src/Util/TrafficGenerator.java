@@ -0,0 +1,341 @@
+package Util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import ElevatorSubSystem.Direction;
+
+/**
+ * Generates synthetic elevator traffic. Every origin-destination pair of the building is an
+ * independent Poisson process whose rate is the target rate times the weight of the pair, so
+ * the calls of the whole building arrive as one Poisson process at the target calls per second
+ * and each call picks its pair in proportion to the weights. The weights come from a Profile
+ * (up-peak, down-peak, lunch or uniform inter-floor traffic) or from any origin-destination
+ * matrix.
+ *
+ * The same seed always gives the same calls. Calls are produced one at a time, either as
+ * primitives with advance() and the getters, like a TraceReader, or as CallEvents through the
+ * iterator; write() stores them as a trace in the csv.txt layout. Floors are numbered from 1,
+ * the lobby.
+ *
+ * The Floor and the Simulation replay generated traffic instead of a trace when the
+ * traffic.profile system property is set, see fromProperties.
+ */
+public class TrafficGenerator implements Iterator<CallEvent> {
+
+	/** The floor most people enter and leave the building by */
+	public static final int LOBBY = 1;
+
+	/**
+	 * The traffic patterns of an office building
+	 */
+	public enum Profile {
+		/** Morning arrivals, most calls go up from the lobby */
+		UP_PEAK(0.85, 0.05, 0.10),
+		/** Evening departures, most calls go down to the lobby */
+		DOWN_PEAK(0.05, 0.85, 0.10),
+		/** Lunch time, people leave and come back through the lobby in equal numbers */
+		LUNCH(0.40, 0.40, 0.20),
+		/** Every pair of floors is as likely as any other */
+		INTER_FLOOR(-1, -1, -1);
+
+		private final double fromLobby;
+		private final double toLobby;
+		private final double interFloor;
+
+		Profile(double fromLobby, double toLobby, double interFloor) {
+			this.fromLobby = fromLobby;
+			this.toLobby = toLobby;
+			this.interFloor = interFloor;
+		}
+
+		/**
+		 * The origin-destination weights of the profile
+		 *
+		 * @param floors, The number of floors of the building
+		 * @return weights, weights[origin][destination] indexed by floor number
+		 */
+		public double[][] weights(int floors) {
+			if (floors < 2) {
+				throw new IllegalArgumentException("A building needs at least 2 floors: " + floors);
+			}
+			double[][] weights = new double[floors + 1][floors + 1];
+			int upperFloors = floors - 1;
+			int interFloorPairs = (floors - 1) * (floors - 2);
+			for (int origin = 1; origin <= floors; origin++) {
+				for (int destination = 1; destination <= floors; destination++) {
+					if (origin == destination) {
+						continue;
+					}
+					if (this == INTER_FLOOR) {
+						weights[origin][destination] = 1;
+					} else if (origin == LOBBY) {
+						weights[origin][destination] = fromLobby / upperFloors;
+					} else if (destination == LOBBY) {
+						weights[origin][destination] = toLobby / upperFloors;
+					} else {
+						weights[origin][destination] = interFloor / interFloorPairs;
+					}
+				}
+			}
+			return weights;
+		}
+	}
+
+	private final SplittableRandom random;
+	private final double callsPerSecond;
+	private final long endMillis;
+	private final int floors;
+	private final double[] cumulative;
+	private double nextMillis;
+	private long timeMillis;
+	private int startFloor;
+	private int endFloor;
+	private Direction direction;
+	private boolean pending;
+	private boolean done;
+
+	/**
+	 * The constructor of a generator following a profile
+	 *
+	 * @param profile,        The traffic pattern
+	 * @param floors,         The number of floors of the building
+	 * @param callsPerSecond, The target rate of calls of the whole building
+	 * @param startMillis,    The time of day the traffic starts at, in milliseconds since midnight
+	 * @param durationMillis, How long the traffic lasts, in milliseconds
+	 * @param seed,           The seed of the random numbers
+	 */
+	public TrafficGenerator(Profile profile, int floors, double callsPerSecond, long startMillis, long durationMillis,
+			long seed) {
+		this(profile.weights(floors), callsPerSecond, startMillis, durationMillis, seed);
+	}
+
+	/**
+	 * The constructor of a generator following an origin-destination matrix
+	 *
+	 * @param weights,        weights[origin][destination], the relative rate of every pair of floors.
+	 *                        Row and column 0 are unused, as are the weights of a floor to itself
+	 * @param callsPerSecond, The target rate of calls of the whole building
+	 * @param startMillis,    The time of day the traffic starts at, in milliseconds since midnight
+	 * @param durationMillis, How long the traffic lasts, in milliseconds
+	 * @param seed,           The seed of the random numbers
+	 */
+	public TrafficGenerator(double[][] weights, double callsPerSecond, long startMillis, long durationMillis,
+			long seed) {
+		if (!(callsPerSecond > 0)) {
+			throw new IllegalArgumentException("The rate of calls must be positive: " + callsPerSecond);
+		}
+		this.floors = weights.length - 1;
+		this.random = new SplittableRandom(seed);
+		this.callsPerSecond = callsPerSecond;
+		this.nextMillis = startMillis;
+		this.endMillis = startMillis + durationMillis;
+		this.cumulative = new double[(floors + 1) * (floors + 1)];
+		double total = 0;
+		for (int origin = 1; origin <= floors; origin++) {
+			if (weights[origin].length != floors + 1) {
+				throw new IllegalArgumentException("The weights must be a square matrix");
+			}
+			for (int destination = 1; destination <= floors; destination++) {
+				double weight = weights[origin][destination];
+				if (weight < 0 || Double.isNaN(weight)) {
+					throw new IllegalArgumentException("Invalid weight from " + origin + " to " + destination);
+				}
+				if (origin != destination) {
+					total += weight;
+				}
+				cumulative[origin * (floors + 1) + destination] = total;
+			}
+		}
+		if (!(total > 0)) {
+			throw new IllegalArgumentException("The weights hold no pair of distinct floors");
+		}
+	}
+
+	/**
+	 * Builds the generator configured by the system properties: traffic.profile (UP_PEAK,
+	 * DOWN_PEAK, LUNCH or INTER_FLOOR), traffic.floors (5), traffic.rate in calls per second (1),
+	 * traffic.start and traffic.duration in seconds (0 and 3600) and traffic.seed (1)
+	 *
+	 * @return generator, The generator, null if traffic.profile is not set
+	 */
+	public static TrafficGenerator fromProperties() {
+		String profile = System.getProperty("traffic.profile");
+		if (profile == null) {
+			return null;
+		}
+		return new TrafficGenerator(Profile.valueOf(profile.trim().toUpperCase()),
+				Integer.getInteger("traffic.floors", 5),
+				Double.parseDouble(System.getProperty("traffic.rate", "1")),
+				Long.getLong("traffic.start", 0) * 1000,
+				Long.getLong("traffic.duration", 3600) * 1000,
+				Long.getLong("traffic.seed", 1));
+	}
+
+	/**
+	 * Moves to the next call
+	 *
+	 * @return True if there is a call, false once the duration has passed
+	 */
+	public boolean advance() {
+		if (done) {
+			return false;
+		}
+		// Exponential gaps between the calls of a Poisson process
+		nextMillis += -Math.log(1 - random.nextDouble()) / callsPerSecond * 1000;
+		if (nextMillis >= endMillis) {
+			done = true;
+			return false;
+		}
+		timeMillis = (long) nextMillis;
+		int pair = pickPair(random.nextDouble() * cumulative[cumulative.length - 1]);
+		startFloor = pair / (floors + 1);
+		endFloor = pair % (floors + 1);
+		direction = endFloor > startFloor ? Direction.UP : Direction.DOWN;
+		return true;
+	}
+
+	/**
+	 * The first pair whose cumulative weight is above a point, skipping the empty pairs
+	 */
+	private int pickPair(double point) {
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cumulative[middle] > point) {
+				high = middle;
+			} else {
+				low = middle + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return offset, The time of the current call in milliseconds since midnight
+	 */
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	/**
+	 * @return startFloor, The floor the current call originates from
+	 */
+	public int getStartFloor() {
+		return startFloor;
+	}
+
+	/**
+	 * @return endFloor, The destination of the current call
+	 */
+	public int getEndFloor() {
+		return endFloor;
+	}
+
+	/**
+	 * @return direction, The direction of the current call
+	 */
+	public Direction getDirection() {
+		return direction;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!pending && !done) {
+			pending = advance();
+		}
+		return pending;
+	}
+
+	@Override
+	public CallEvent next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		pending = false;
+		return new CallEvent(TimeParser.toDate(timeMillis), startFloor, endFloor, direction);
+	}
+
+	/**
+	 * Generates the remaining calls at once, for the Floor
+	 *
+	 * @return CallEvent List, The calls in time order
+	 */
+	public List<CallEvent> toList() {
+		List<CallEvent> events = new ArrayList<CallEvent>();
+		forEachRemaining(events::add);
+		return events;
+	}
+
+	/**
+	 * Writes the remaining calls as a trace in the csv.txt layout, with millisecond times
+	 *
+	 * @param out, The trace to write, replaced if it exists
+	 * @return count, The number of calls written
+	 * @throws IOException if the file cannot be written
+	 */
+	public long write(Path out) throws IOException {
+		long count = 0;
+		try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.US_ASCII)) {
+			writer.write("Time, Start Floor, End Floor, Button");
+			writer.newLine();
+			StringBuilder line = new StringBuilder(32);
+			while (advance()) {
+				line.setLength(0);
+				appendTime(line, timeMillis);
+				line.append(',').append(startFloor).append(',').append(endFloor).append(',').append(direction);
+				writer.append(line);
+				writer.newLine();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void appendTime(StringBuilder line, long millis) {
+		appendDigits(line, millis / 3600000, 2).append(':');
+		appendDigits(line, millis / 60000 % 60, 2).append(':');
+		appendDigits(line, millis / 1000 % 60, 2).append('.');
+		appendDigits(line, millis % 1000, 3);
+	}
+
+	private static StringBuilder appendDigits(StringBuilder line, long value, int width) {
+		String digits = Long.toString(value);
+		for (int i = digits.length(); i < width; i++) {
+			line.append('0');
+		}
+		return line.append(digits);
+	}
+
+	/**
+	 * Writes generated traffic to a trace file
+	 *
+	 * @param args, The profile, floors, calls per second, duration in seconds, seed and output trace
+	 */
+	public static void main(String[] args) {
+		if (args.length != 6) {
+			System.out.println("Usage: java Util.TrafficGenerator <UP_PEAK|DOWN_PEAK|LUNCH|INTER_FLOOR> <floors>"
+					+ " <calls per second> <duration in seconds> <seed> <trace>");
+			return;
+		}
+		try {
+			TrafficGenerator generator = new TrafficGenerator(Profile.valueOf(args[0].toUpperCase()),
+					Integer.parseInt(args[1]), Double.parseDouble(args[2]), 0, Long.parseLong(args[3]) * 1000,
+					Long.parseLong(args[4]));
+			long count = generator.write(Paths.get(args[5]));
+			System.out.println("Wrote " + count + " calls to " + args[5]);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * The transport the Floor, Scheduler and Elevator subsystems exchange datagrams over. A
+ * transport binds any number of local ports (endpoints) and delivers every datagram received
+ * on an endpoint to the receiver registered for it.
+ *
+ * Implementations are selected by name with create(): "udp" (DatagramEventLoop, the default)
+ * sends over the network, "memory" (InMemoryTransport) passes datagrams between subsystems
+ * running in the same JVM without going through the kernel and "shm" (SharedMemoryTransport)
+ * passes them between processes on the same host through memory-mapped ring buffers.
+ */
+public interface Transport extends Closeable {
+
+	/** The system property used to select the transport of the subsystems */
+	String TRANSPORT_PROPERTY = "transport";
+
+	/**
+	 * Called for every datagram received on an endpoint. The datagram buffer is only valid for
+	 * the duration of the call.
+	 */
+	interface Receiver {
+		void received(Endpoint endpoint, ByteBuffer datagram, SocketAddress source);
+	}
+
+	/**
+	 * A bound local port, used to send datagrams from that port
+	 */
+	interface Endpoint {
+
+		/**
+		 * Sends a datagram without blocking
+		 *
+		 * @param datagram, The bytes between position and limit are sent
+		 * @param destination, The address and port of the receiver
+		 * @return True if the datagram was handed to the transport
+		 */
+		boolean send(ByteBuffer datagram, SocketAddress destination);
+
+		/**
+		 * @return port, The local port of the endpoint
+		 */
+		int getPort();
+	}
+
+	/**
+	 * Binds a local port. May be called before or after start().
+	 *
+	 * @param port, The local port to bind
+	 * @param receiver, The receiver of datagrams arriving on the port
+	 * @return endpoint, The endpoint used to send from the port
+	 * @throws IOException if the port cannot be bound
+	 */
+	Endpoint open(int port, Receiver receiver) throws IOException;
+
+	/**
+	 * Starts delivering received datagrams
+	 */
+	void start();
+
+	/**
+	 * Stops delivery and releases every endpoint
+	 */
+	@Override
+	void close();
+
+	/**
+	 * Creates the transport selected by the "transport" system property (udp by default)
+	 *
+	 * @param name, The name given to the transport's delivery thread
+	 * @return transport, A transport that has not been started yet
+	 * @throws IOException if the transport cannot be created
+	 */
+	static Transport create(String name) throws IOException {
+		return create(System.getProperty(TRANSPORT_PROPERTY, "udp"), name);
+	}
+
+	/**
+	 * Creates a transport by kind
+	 *
+	 * @param kind, "udp", "memory" or "shm"
+	 * @param name, The name given to the transport's delivery thread
+	 * @return transport, A transport that has not been started yet
+	 * @throws IOException if the transport cannot be created
+	 */
+	static Transport create(String kind, String name) throws IOException {
+		switch (kind) {
+		case "udp":
+			return new DatagramEventLoop(name);
+		case "memory":
+			return new InMemoryTransport(name);
+		case "shm":
+			return new SharedMemoryTransport(name);
+		default:
+			throw new IllegalArgumentException("Unknown transport: " + kind);
+		}
+	}
+}
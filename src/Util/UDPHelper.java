@@ -1,248 +1,119 @@
 package Util;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import ElevatorSubSystem.ElevatorMotor;
 import ElevatorSubSystem.ElevatorState;
 
 /**
- * The UDP Helper Class.
+ * The UDP Helper Class, builds the frames sent as single datagrams. Datagrams are sent and received
+ * by the transports (see Transport and DatagramEventLoop).
  * @author Samantha Tripp
  *
  */
 public class UDPHelper {
-	
-
-	private DatagramSocket socket;
-	private DatagramPacket sendPacket, receivePacket;
-	private int portNumber;
-	private InetAddress destinationHostAddress;
-	private byte[] data;
-
-    /**
-     * The constructor of the UDP Helper class with the associated PORT Number
-     * @param portNumber
-     */
-	public UDPHelper(int portNumber) {
-		// Construct DatagramSocket and bind it to portNumber
-		this.portNumber = portNumber;
-		try {
-			socket = new DatagramSocket(portNumber);
-		} catch (SocketException e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * The UDP Send Packet command
-     * @param message, The associated message
-     * @param destinationPort, The destination selected port number
-     * @param elevatorStatus, the elevator status used to check the elevators 
-     * @param portAddress, The IP Address of destination
-     */
-	public void send(byte[] message, int destinationPort, boolean elevatorStatus, InetAddress portAddress) {
-
-		// Construct DataPacket to send message
-        sendPacket = new DatagramPacket(message, message.length, portAddress, destinationPort);
-
-        // Print packet information
-        if(!elevatorStatus){
-            printUDPData(sendPacket, false, false);
-        }
-
-		// Send the DatagramPacket 
-		try {
-			socket.send(sendPacket);
-		} catch (IOException e) {
-			System.out.println("Error sending DatagramPacket:");
-			e.printStackTrace();
-			System.exit(1);
-		}
-
-        if(!elevatorStatus){
-            System.out.println("Packet sent.\n");
-        }
 
-	}
-
-    /**
-     * The UDP Helper To Receive The Packet From the Associated Socket
-     * @param printElevatorStatus, Flag used to minimise the (Suppress The Print Statements)
-     * @return The data that is received
-     */
-	public byte[] receive(boolean printElevatorStatus) {
-		
-		// Construct DatagramPacket to receive data
-		data = new byte[100];
-		receivePacket = new DatagramPacket(data, data.length);
-		destinationHostAddress = receivePacket.getAddress();
-		// Block until a DatagramPacket response is received
-		try { 
-			System.out.println("UDP Handler: waiting for packet");
-			socket.receive(receivePacket);
-			data = receivePacket.getData();
-		} catch(IOException e) {
-			System.out.println("Error receiving DatagramPacket response:");
-			e.printStackTrace();
-			System.exit(1);
-		}
-		// Process the received DataPacket
-		printUDPData(receivePacket, true, printElevatorStatus);
-		return data;
-	}
-	
 	/**
-	 * Helper method to assist printing DatagramPacket information to the console.
+	 * Function to convert CallEvent objects to binary CALL frames for
+	 * use in constructing DatagramPackets.
 	 * 
-	 * @param packet, The DatagramPacket containing the data to print.
-	 * @param dataReceived, Indicator of an incoming (true) or outgoing (false) DatagramPacket.
+	 * @param floorEvent, The associated floor request
 	 */
-	private void printUDPData(DatagramPacket packet, boolean dataReceived, boolean elevatorStatus) {
-		if (dataReceived) { // Print statements for received DatagramPacket
-			System.out.println("Port " + portNumber + ": Packet received");
-			System.out.println("From host: " + packet.getAddress());
-			System.out.println("Host port: " + packet.getPort());
-		} else {
-			System.out.println("Port " + portNumber + ": sending packet");
-			System.out.println("To host: " + packet.getAddress());
-			System.out.println("Destination host port: " + packet.getPort());
-		}
-		
-		System.out.print("Data as string: ");
-		if (!elevatorStatus) {
-			System.out.println(bytesToString(packet.getData()));
-		} else {
-			
-			//Print elevator status information
-			// [0] -> Elevator Number
-	        // [1] -> Elevator Port Number
-		    // [2] -> The Current State of the Elevator
-	        // [3] -> The Current Floor Level of the Elevator
-	        // [4] -> The Current Direction of the Elevator Motor
-			
-			System.out.println("\nElevator " + packet.getData()[0]);
-	        System.out.println("Current Elevator State: "+ ElevatorState.values()[packet.getData()[2]].toString());
-	        System.out.println("Current Elevator Floor: "+ packet.getData()[3]);
-	        System.out.println("Current Elevator Motor State: "+ ElevatorMotor.values()[packet.getData()[4]].toString() +'\n');
-		}
-		System.out.print("Data in bytes: ");
-		printBytes(packet.getData());
-		System.out.println();
+	public static byte[] createMessage(CallEvent floorEvent) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeCall(buf, floorEvent);
+		return Arrays.copyOf(buf.array(), buf.position());
 	}
 	
 	/**
-	 * Function to convert CallEvent objects to byte array messages for
-	 * use in constructing DatagramPackets.
+	 * Create a COMMAND frame carrying a request addressed to one elevator of a bank.
 	 * 
-	 * @param floorEvent, The associated floor request
+	 * @param elevatorNumber, The number of the elevator the request is for
+	 * @param floorEvent, The request
+	 * @return Byte array
 	 */
-	public byte[] createMessage(CallEvent floorEvent) {
-		
-		byte[] sendData;
-		
-		// Prepare byte array of data to send
-		try {
-			ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-			
-			
-			// Convert floor event to bytes
-			byteStream.write(floorEvent.toString().getBytes());
-			
-			// Create byte array
-			sendData = byteStream.toByteArray();
-			byteStream.close();
-			
-			return sendData;
-		
-		} catch (IOException e) {
-			System.out.println("Create Message Error: ");
-			e.printStackTrace();
-			System.exit(1);
-		}
-		
-		return null;
+	public static byte[] createCommand(int elevatorNumber, CallEvent floorEvent) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeCommand(buf, elevatorNumber, floorEvent);
+		return Arrays.copyOf(buf.array(), buf.position());
 	}
 	
 	/**
-	 * Create a reply byte array confirming that a DatagramPacket was received.
+	 * Create a HELLO frame announcing a floor or an elevator to the scheduler.
 	 * 
+	 * @param role, MessageCodec.ROLE_FLOOR or MessageCodec.ROLE_ELEVATOR
+	 * @param id, The floor identifier or elevator number
 	 * @return Byte array
-	 * @throws IOException
 	 */
-	public byte[] createReply() throws IOException {
-		byte[] reply;
-		String msg = "Received";
-		try {
-			ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-			
-			byteStream.write(msg.getBytes());
-			byteStream.close();
-			reply = byteStream.toByteArray();
-			return reply;
-		} catch (IOException e) {
-			System.out.println("createReply() error:");
-			e.printStackTrace();
-			System.exit(1);
-		}
-		return null;
+	public static byte[] createHello(int role, int id) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeHello(buf, role, id);
+		return Arrays.copyOf(buf.array(), buf.position());
 	}
 	
 	/**
-	 * Private method to decode byte array received in DatagramPacket to
-	 * a CallEvent object.
+	 * Create a SUBSCRIBE frame asking the scheduler for the notifications of a floor.
 	 * 
-	 * @param message, The byte array that is to be decoded
-	 * @return string, the decoded message
+	 * @param floor, The floor whose notifications are wanted
+	 * @return Byte array
 	 */
-	public synchronized String decodeMessage(byte[] message) {
-		return bytesToString(message);
-	
+	public static byte[] createSubscribe(int floor) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeSubscribe(buf, floor);
+		return Arrays.copyOf(buf.array(), buf.position());
 	}
 	
-
 	/**
-	 * Parses the byte array so that it can show the first two bits (01, 02 or 03)
-	 * then formats a new string based off of the other bits.
+	 * Create a NOTIFY frame pushed by the scheduler to the subscribers of a floor.
 	 * 
-	 * @param b, the byte array that is to be printed
-	 * @return s, the computed string from the decoded bytes
+	 * @param kind, MessageCodec.NOTIFY_ARRIVAL, NOTIFY_ASSIGNED or NOTIFY_ETA
+	 * @param floor, The floor the notification is about
+	 * @param elevatorNumber, The elevator the notification is about
+	 * @param value, The direction of an assignment or the ETA in seconds
+	 * @return Byte array
 	 */
-	public static String bytesToString(byte[] b) {
-		String s = "";
-		s += new String(b, 0, b.length);
-		return s;
+	public static byte[] createNotify(int kind, int floor, int elevatorNumber, int value) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeNotify(buf, kind, floor, elevatorNumber, value);
+		return Arrays.copyOf(buf.array(), buf.position());
 	}
 	
 	/**
-	 * Helper method to print arrays of bytes.
-	 * Caps long strings to 80chars to make 100 byte arrays easier to read.
+	 * Create an ACK frame confirming that a DatagramPacket was received.
 	 * 
-	 * @param bytes, the bytes that need to be decoded
+	 * @return Byte array
 	 */
-	public static void printBytes(byte[] bytes) {
-		String s = "";
-		if (bytes.length <= 5) {
-			for (int i = 0; i < bytes.length - 1; i++) {
-				s += bytes[i] + ", ";
-			}
-			System.out.println( s);
-			return;
-		}
-		for (int i = 0; i < bytes.length - 1; i++) {
-			if (bytes[1] == 4) {
-				s += bytes[0] + ", " + bytes[1] + ", " + bytes[2] + ", " + bytes[3];
-				System.out.println( s);
-				return;
-			}
-			if (bytes[i] == 0 && bytes[i + 1] == 0) {
-				break;
-			}
-			s += bytes[i] + ", ";
-		}
-		System.out.println(s);
+	public static byte[] createReply() {
+		return createReply(1);
 	}
 
+	/**
+	 * Create an ACK frame confirming that a number of frames (a batch) were received.
+	 * 
+	 * @param count, The number of frames being acknowledged
+	 * @return Byte array
+	 */
+	public static byte[] createReply(int count) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeAck(buf, count);
+		return Arrays.copyOf(buf.array(), buf.position());
+	}
 
-	
+	/**
+	 * Create a STATUS frame describing the current state of an elevator.
+	 *
+	 * @param elevatorNumber, The unique elevator number
+	 * @param elevatorPort, The port the elevator receives commands on
+	 * @param state, The current elevator state
+	 * @param floor, The current floor of the elevator
+	 * @param motor, The current motor state
+	 * @return Byte array
+	 */
+	public static byte[] createStatus(int elevatorNumber, int elevatorPort, ElevatorState state, int floor,
+			ElevatorMotor motor) {
+		ByteBuffer buf = ByteBuffer.allocate(MessageCodec.MAX_FRAME_SIZE);
+		MessageCodec.encodeStatus(buf, elevatorNumber, elevatorPort, state.ordinal(), floor, motor.ordinal());
+		return Arrays.copyOf(buf.array(), buf.position());
+	}
 }